@@ -0,0 +1,295 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.security.*;
+import java.util.*;
+
+// The results of the checks kept in a directory (--cache DIR), so that a file that was checked before, with the same
+// compiler, is not parsed or checked again. An entry is found by the SHA-256 of the version of the compiler and of
+// the content of the file, whatever its name; the file is read once, and checked from the bytes of its key. It keeps
+// the symbol table of a file that passed (its classes, fields and methods with their offsets, see SymbolTable.write()),
+// the output of a file that failed, and the diagnostics, without the name of the file, which is put back in when they
+// are printed again.
+// An entry is written into a file of its own and moved into place, so the runs that share a directory see either
+// the whole entry or none. The last time an entry was used is the last modified time of its file, and once the
+// entries take more than the size given, the ones used least recently are deleted.
+// A file that broke the compiler itself (an internal error) is not kept.
+
+public class CheckCache {
+
+    // What replay() returns if the file has no entry, no exit status is this one
+    public static final int MISS = Integer.MIN_VALUE;
+
+    // The version of the format of the entries, to be changed along with it
+    protected static final int FORMAT = 1;
+
+    protected static final String SUFFIX = ".check";
+
+    protected static byte[] compilerVersion;       // see compilerVersion(), null until a cache needs it
+
+    protected Path directory;
+    protected long maxSize;         // the most the entries take, in bytes
+    protected long size;            // what they take as far as this cache knows, -1 before it looks
+    protected byte[] version;
+
+    public CheckCache(Path directory, long maxSize) throws IOException {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.size = -1;
+        this.version = compilerVersion();
+
+        Files.createDirectories(directory);
+    }
+
+    // The version of the compiler: the format of the entries and the SHA-256 of the classes of the compiler, with their
+    // paths, so that any change of any class (even one built within the same second as the old one) makes new keys.
+    // The classes are the jar Main was loaded from, or the class files of the default package in the directory it was
+    // loaded from and the ones of syntaxtree and visitor under it; the rest of the directory (the examples and the
+    // benchmarks, when the compiler runs from its sources) is left out. It is worked out by the first cache of the run.
+    protected static synchronized byte[] compilerVersion() {
+        if(compilerVersion != null) {
+            return compilerVersion;
+        }
+
+        MessageDigest digest = sha256();
+        digest.update(("minijava-" + FORMAT).getBytes(StandardCharsets.UTF_8));
+
+        try{
+            Path classes = Paths.get(Main.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+            if(Files.isDirectory(classes)) {
+                ArrayList<Path> classFiles = new ArrayList<Path>();
+                classFiles(classes, classFiles);
+                classFiles(classes.resolve("syntaxtree"), classFiles);
+                classFiles(classes.resolve("visitor"), classFiles);
+                Collections.sort(classFiles);
+
+                for(Path classFile : classFiles) {
+                    digest.update((byte) 0);
+                    digest.update(classes.relativize(classFile).toString().getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 0);
+                    digest.update(Files.readAllBytes(classFile));
+                }
+            }
+            else {
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(classes));
+            }
+        }
+
+        catch(IOException | URISyntaxException | RuntimeException ex){
+            // Only the format then
+        }
+
+        compilerVersion = digest.digest();
+        return compilerVersion;
+    }
+
+    // Adds the class files right in the directory, not the ones of its subdirectories
+    protected static void classFiles(Path directory, ArrayList<Path> classFiles) throws IOException {
+        if(!Files.isDirectory(directory)) {
+            return;
+        }
+
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.class")){
+            for(Path file : files) {
+                classFiles.add(file);
+            }
+        }
+    }
+
+    protected static MessageDigest sha256() {
+        try{
+            return MessageDigest.getInstance("SHA-256");
+        }
+
+        catch(NoSuchAlgorithmException ex){
+            // Every Java platform has it
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    // The key of the given content of a file, which is then checked from the same bytes
+    public String key(byte[] content) {
+        MessageDigest digest = sha256();
+        digest.update(this.version);
+        digest.update((byte) 0);
+        digest.update(content);
+
+        StringBuilder key = new StringBuilder();
+        for(byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    protected Path entry(String key) {
+        return this.directory.resolve(key + SUFFIX);
+    }
+
+    // Prints what Main.compile() printed for the file when its entry was made, and returns its exit status,
+    // or returns MISS if there is no entry for the key
+    public int replay(String key, String fileName, PrintStream out, PrintStream err) {
+        Path entry = entry(key);
+        int status;
+        boolean parsed;
+        String printed;
+        SymbolTable symbolTable = null;
+        Diagnostics diagnostics = new Diagnostics(fileName);
+
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))){
+            if(input.readInt() != FORMAT) {
+                return MISS;
+            }
+
+            status = input.readInt();
+            parsed = input.readBoolean();
+            printed = readString(input);
+
+            int diagnosticNum = input.readInt();
+            for(int i = 0; i < diagnosticNum; i++) {
+                Diagnostic.Severity severity = Diagnostic.Severity.values()[input.readInt()];
+                int line = input.readInt();
+                int column = input.readInt();
+                diagnostics.report(severity, line, column, readString(input));
+            }
+
+            if(input.readBoolean()) {
+                symbolTable = SymbolTable.read(input, diagnostics);
+            }
+        }
+
+        // No entry, or one that another run is deleting or is broken
+        catch(IOException | RuntimeException ex){
+            return MISS;
+        }
+
+        // The entry is the most recently used now
+        try{
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+
+        catch(IOException ex){
+            // It is still used, only its place in the eviction order is lost
+        }
+
+        if(parsed) {
+            err.println("Program parsed successfully.");
+        }
+
+        if(symbolTable != null) {
+            symbolTable.printSymbolTable(out);
+        }
+        else {
+            out.print(printed);
+        }
+
+        diagnostics.print(err);
+        err.println(fileName + ": " + (diagnostics.hasErrors() ? "failed" : "passed"));
+
+        return status;
+    }
+
+    // Keeps the result of the check of the file for the key: its exit status, whether it was parsed, what it printed
+    // if it failed, its diagnostics, and its symbol table if it passed.
+    // The key is the one of the bytes that were checked, so the entry is right even if the file changed since.
+    public void store(String key, int status, boolean parsed, String printed, Diagnostics diagnostics, SymbolTable symbolTable) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(buffer);
+
+        output.writeInt(FORMAT);
+        output.writeInt(status);
+        output.writeBoolean(parsed);
+        writeString(output, printed);
+
+        output.writeInt(diagnostics.getDiagnostics().size());
+        for(int i = 0; i < diagnostics.getDiagnostics().size(); i++) {
+            Diagnostic diagnostic = diagnostics.getDiagnostics().get(i);
+
+            output.writeInt(diagnostic.getSeverity().ordinal());
+            output.writeInt(diagnostic.getLine());
+            output.writeInt(diagnostic.getColumn());
+            writeString(output, diagnostic.getMessage());
+        }
+
+        output.writeBoolean(symbolTable != null);
+        if(symbolTable != null) {
+            symbolTable.write(output);
+        }
+        output.flush();
+
+        Path entry = entry(key);
+        Path temporary = Files.createTempFile(this.directory, key, ".tmp");
+
+        try{
+            try(OutputStream file = Files.newOutputStream(temporary)){
+                buffer.writeTo(file);
+            }
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        finally{
+            Files.deleteIfExists(temporary);
+        }
+
+        added(buffer.size());
+    }
+
+    // Counts a new entry, and deletes the least recently used ones if the entries take too much
+    protected synchronized void added(long entrySize) throws IOException {
+        if(this.size >= 0) {
+            this.size += entrySize;
+        }
+
+        if(this.size >= 0 && this.size <= this.maxSize) {
+            return;
+        }
+
+        // Look at the directory, which other runs may have changed as well
+        ArrayList<Path> entries = new ArrayList<Path>();
+        HashMap<Path, BasicFileAttributes> attributes = new HashMap<Path, BasicFileAttributes>();
+        long total = 0;
+
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + SUFFIX)){
+            for(Path entry : stream) {
+                try{
+                    BasicFileAttributes entryAttributes = Files.readAttributes(entry, BasicFileAttributes.class);
+
+                    entries.add(entry);
+                    attributes.put(entry, entryAttributes);
+                    total += entryAttributes.size();
+                }
+
+                catch(IOException ex){
+                    // Deleted by another run in the meantime
+                }
+            }
+        }
+
+        entries.sort(Comparator.comparing(entry -> attributes.get(entry).lastModifiedTime()));
+
+        for(int i = 0; i < entries.size() && total > this.maxSize; i++) {
+            Files.deleteIfExists(entries.get(i));
+            total -= attributes.get(entries.get(i)).size();
+        }
+
+        this.size = total;
+    }
+
+    // The strings may be longer than writeUTF() takes
+    protected static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    protected static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -4,15 +4,23 @@ public class ClassData extends Data {
     protected ClassData parent;
     protected ArrayList<IdData> variables;       // records for class variables of form: (variable_name, type, initialized)
     protected ArrayList<MethodData> methods;   // same for class methods of form: (class_name, return_type, arguments, variables)
+    protected HashMap<String, IdData> variableMap;      // Map the variable_names to their data, the lists keep the declaration order
+    protected HashMap<String, MethodData> methodMap;    // Map the method_names to their data
+    protected DataType type;         // the type of the objects of the class
     protected int fieldOffset;
     protected int methodOffset;
+    protected int preorder;          // position of the class in the preorder of the inheritance tree
+    protected int lastDescendant;    // and the position of its last subclass, see SymbolTable.freezeHierarchy
 
 
     public ClassData(ClassData parent, String name, int offset){
         this.parent = parent;
         this.name = name;
+        this.type = new DataType(name, this);
         this.variables = new ArrayList<IdData>();
         this.methods = new ArrayList<MethodData>();
+        this.variableMap = new HashMap<String, IdData>();
+        this.methodMap = new HashMap<String, MethodData>();
         this.offset = offset;
         this.fieldOffset = 0;
         this.methodOffset = 0;
@@ -22,12 +30,18 @@ public class ClassData extends Data {
         return this.parent;
     }
 
+    public DataType getType() {
+        return this.type;
+    }
+
     public ArrayList<IdData> getVariables() {
         return this.variables;
     }
 
     public void insertVariable(IdData variableData) {
         variables.add(variableData);
+        // If a name is declared twice, the lookups return the first declaration
+        variableMap.putIfAbsent(variableData.getName(), variableData);
     }
 
     public ArrayList<MethodData> getMethods() {
@@ -36,68 +50,41 @@ public class ClassData extends Data {
 
     public void insertMethod(MethodData methodData) {
         methods.add(methodData);
+        methodMap.putIfAbsent(methodData.getName(), methodData);
     }
 
     public boolean variableExists(String variableName) {
         // Check if variable_name already exists in class
-        ArrayList<IdData> variableList = this.getVariables();
-        int classVarNum = variableList.size();
-        int index;
-        
-        // Check for variable list
-        for(index = 0; index < classVarNum; index++) {
-            if(variableList.get(index).getName().equals(variableName)) {
-                return true;
-            }
-        }
-
-        return false;
+        return this.variableMap.containsKey(variableName);
     }
 
     public boolean methodExists(String methodName) {
         // Check if methodName already exists in class
-        ArrayList<MethodData> methodList = this.getMethods();
-        int classMethNum = methodList.size();
-        int index;
-        
-        // Check for variable list
-        for(index = 0; index < classMethNum; index++) {
-            if(methodList.get(index).getName().equals(methodName)) {
-                return true;
-            }
-        }
-
-        return false;
+        return this.methodMap.containsKey(methodName);
     }
 
     public MethodData getCertainMethod(String methodName) {
-        ArrayList<MethodData> methodList = this.getMethods();
+        return this.methodMap.get(methodName);
+    }
+
+    public IdData getCertainVariable(String variableName) {
+        return this.variableMap.get(variableName);
+    }
+
+    public int getPreorder() {
+        return this.preorder;
+    }
 
-        int classMethNum = methodList.size();
-        int index;
-        
-        for(index = 0; index < classMethNum; index++) {
-            if(methodList.get(index).getName().equals(methodName)) {
-                return methodList.get(index);
-            }
-        }
+    public void setPreorder(int preorder) {
+        this.preorder = preorder;
+    }
 
-        return null;
+    public int getLastDescendant() {
+        return this.lastDescendant;
     }
 
-    public IdData getCertainVariable(String variableName) {
-        ArrayList<IdData> variableList = this.getVariables();
-
-        int classVarNum = variableList.size();
-        int index;
-        
-        for(index = 0; index < classVarNum; index++) {
-            if(variableList.get(index).getName().equals(variableName)) {
-                return variableList.get(index);
-            }
-        }
-
-        return null;
+    public void setLastDescendant(int lastDescendant) {
+        this.lastDescendant = lastDescendant;
     }
 
     public void incFieldOffset(int increment) { 
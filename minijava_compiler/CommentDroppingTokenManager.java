@@ -0,0 +1,65 @@
+import java.io.*;
+
+// The generated token manager without the comments (--drop-comments). The grammar makes the comments special tokens,
+// which the generated code scans a character at a time through its automaton, into the buffer of the stream (with a
+// line and a column for every character), to make a Token of each one and chain it to the next token; none of the
+// visitors reads them, and a file with long license and documentation blocks spends a good part of its scanning on
+// them. Here the white space and the comments before a token are skipped first, the comments by
+// JavaCharStream.skipComment(), which only looks for their ends, and the generated code scans the token after them.
+// The tokens are then the same ones without special tokens, and the errors (a '/' that starts no comment, or a comment
+// the input ends in) are the same ones. The few comments skipComment() leaves alone are scanned by the generated code,
+// which makes no Token for them either.
+
+public class CommentDroppingTokenManager extends MiniJavaParserTokenManager {
+
+    public CommentDroppingTokenManager(JavaCharStream stream) {
+        super(stream);
+    }
+
+    // Whether a token of the given kind is a comment
+    public static boolean isComment(int kind) {
+        return kind == SINGLE_LINE_COMMENT || kind == FORMAL_COMMENT || kind == MULTI_LINE_COMMENT;
+    }
+
+    // The end of the input is met as the generated code meets it, so that its token is at the same position
+    @Override
+    public Token getNextToken() {
+        for(;;) {
+            char c;
+
+            try{
+                c = this.input_stream.BeginToken();
+            }
+
+            catch(IOException ex){
+                this.jjmatchedKind = EOF;
+                return jjFillToken();
+            }
+
+            try{
+                while(c <= ' ' && (0x100003600L & (1L << c)) != 0L) {
+                    c = this.input_stream.BeginToken();
+                }
+            }
+
+            catch(IOException ex){
+                continue;
+            }
+
+            if(c != '/' || !this.input_stream.skipComment()) {
+                this.input_stream.backup(1);
+                return super.getNextToken();
+            }
+        }
+    }
+
+    // The comments skipComment() leaves to the generated code ("/**/", see JavaCharStream) make no Token either: the
+    // generated code keeps a null special token then, and goes on to the next token
+    @Override
+    protected Token jjFillToken() {
+        if(isComment(this.jjmatchedKind)) {
+            return null;
+        }
+        return super.jjFillToken();
+    }
+}
@@ -0,0 +1,151 @@
+import syntaxtree.*;
+import java.lang.reflect.*;
+import java.util.*;
+
+// Makes a parsed tree smaller before it is checked (--compact-tree):
+// - the lists of children become CompactVectors, exactly as long as they are and read without a lock;
+// - the keywords and the punctuation, whose image is fixed, become a single shared NodeToken per kind, without a
+//   position, as JTB makes them when it builds a node itself. The NodeTokens the parser made for them are left to the
+//   garbage collector, so the tree keeps only the identifiers and the literals.
+// The tree of the generated parser is compacted once it is whole; DescentParser builds it this way from the start.
+// A diagnostic points at the first token of a node that has a position (see TokenLocator), so the first token of every
+// node keeps its own NodeToken, and with it the positions of all the diagnostics stay the same. A token that is not
+// the first one of its parent is not the first one of any node above it either.
+
+public class CompactTree {
+
+    // The shared tokens, by kind, for the kinds with a fixed image
+    protected static final NodeToken[] FIXED;
+
+    // The children of every kind of node of the grammar: its fields f0, f1, f2, ... in order
+    protected static final ClassValue<Field[]> CHILDREN = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            ArrayList<Field> children = new ArrayList<Field>();
+
+            for(Field field : type.getFields()) {
+                if(field.getName().matches("f[0-9]+") && Node.class.isAssignableFrom(field.getType())) {
+                    children.add(field);
+                }
+            }
+            children.sort(Comparator.comparingInt(field -> Integer.parseInt(field.getName().substring(1))));
+
+            return children.toArray(new Field[0]);
+        }
+    };
+
+    static {
+        String[] images = MiniJavaParserTokenManager.jjstrLiteralImages;
+
+        FIXED = new NodeToken[images.length];
+        for(int kind = 0; kind < images.length; kind++) {
+            if(images[kind] != null) {
+                FIXED[kind] = new NodeToken(images[kind], kind, -1, -1, -1, -1);
+            }
+        }
+    }
+
+    private CompactTree() {
+    }
+
+    // The shared token of the kind, null if its image is not fixed
+    public static NodeToken fixed(int kind) {
+        return (kind >= 0 && kind < FIXED.length) ? FIXED[kind] : null;
+    }
+
+    public static void compact(Node root) {
+        try{
+            compactNode(root);
+        }
+
+        catch(IllegalAccessException ex){
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    // Compacts the children of the node; returns whether the node has a token with a position
+    protected static boolean compactNode(Node node) throws IllegalAccessException {
+        if(node instanceof NodeToken) {
+            return ((NodeToken) node).beginLine >= 0;
+        }
+        else if(node instanceof NodeChoice) {
+            return compactNode(((NodeChoice) node).choice);
+        }
+        else if(node instanceof NodeOptional) {
+            NodeOptional optional = (NodeOptional) node;
+            return optional.present() && compactNode(optional.node);
+        }
+        else if(node instanceof NodeListOptional) {
+            NodeListOptional list = (NodeListOptional) node;
+            boolean positioned = compactList(list.nodes);
+            list.nodes = new CompactVector<Node>(list.nodes);
+            return positioned;
+        }
+        else if(node instanceof NodeList) {
+            NodeList list = (NodeList) node;
+            boolean positioned = compactList(list.nodes);
+            list.nodes = new CompactVector<Node>(list.nodes);
+            return positioned;
+        }
+        else if(node instanceof NodeSequence) {
+            NodeSequence sequence = (NodeSequence) node;
+            boolean positioned = compactList(sequence.nodes);
+            sequence.nodes = new CompactVector<Node>(sequence.nodes);
+            return positioned;
+        }
+
+        boolean positioned = false;
+
+        for(Field field : CHILDREN.get(node.getClass())) {
+            Node child = (Node) field.get(node);
+
+            if(child instanceof NodeToken) {
+                NodeToken token = (NodeToken) child;
+                NodeToken shared = shared(token, positioned);
+
+                if(shared != token) {
+                    field.set(node, shared);
+                }
+                positioned |= token.beginLine >= 0;
+            }
+            else if(child != null) {
+                positioned |= compactNode(child);
+            }
+        }
+
+        return positioned;
+    }
+
+    // Same for the children of a list, which stay in the given vector
+    protected static boolean compactList(Vector<Node> nodes) throws IllegalAccessException {
+        boolean positioned = false;
+
+        for(int i = 0; i < nodes.size(); i++) {
+            Node child = nodes.get(i);
+
+            if(child instanceof NodeToken) {
+                NodeToken token = (NodeToken) child;
+                NodeToken shared = shared(token, positioned);
+
+                if(shared != token) {
+                    nodes.set(i, shared);
+                }
+                positioned |= token.beginLine >= 0;
+            }
+            else {
+                positioned |= compactNode(child);
+            }
+        }
+
+        return positioned;
+    }
+
+    // The shared token that replaces the given one, if its image is fixed and an earlier child of the same parent has
+    // a position; otherwise the token itself
+    protected static NodeToken shared(NodeToken token, boolean afterPosition) {
+        if(afterPosition && fixed(token.kind) != null && token.specialTokens == null) {
+            return fixed(token.kind);
+        }
+        return token;
+    }
+}
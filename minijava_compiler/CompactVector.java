@@ -0,0 +1,47 @@
+import java.util.*;
+
+// The list of children of a NodeList, NodeListOptional or NodeSequence once the tree is compacted (--compact-tree).
+// The lists of JTB are Vectors, which take a lock on every call and keep room to grow; this one holds exactly its
+// elements and reads them without a lock. The tree is complete when it is compacted and is only read afterwards
+// (by several threads with --method-jobs), so the reads need no lock. A change still goes through Vector, locked.
+// It has to be a Vector, which is the type of the lists in the classes of syntaxtree, so it keeps the few fields of one.
+
+public class CompactVector<E> extends Vector<E> {
+    private static final long serialVersionUID = 1L;
+
+    protected static final Object[] EMPTY = new Object[0];
+
+    public CompactVector(Vector<E> source) {
+        super(0);
+        this.elementData = source.isEmpty() ? EMPTY : source.toArray();
+        this.elementCount = this.elementData.length;
+    }
+
+    @Override
+    public int size() {
+        return this.elementCount;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.elementCount == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E elementAt(int index) {
+        if(index >= this.elementCount) {
+            throw new ArrayIndexOutOfBoundsException(index + " >= " + this.elementCount);
+        }
+        return (E) this.elementData[index];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if(index >= this.elementCount) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return (E) this.elementData[index];
+    }
+}
@@ -0,0 +1,667 @@
+import syntaxtree.*;
+import visitor.*;
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+// Checks the same file again and again, for an editor that checks it on every save, without doing the whole work
+// every time. The session keeps what the last check of the file that passed left behind: its source, its tree, its
+// symbol table, its method bodies (main and every method, see MethodBody) with where each one is in the source, and
+// what the check printed.
+// The next version of the file is compared with that source. If every change is inside bodies (any number of them,
+// and the text between them is the same), only the bodies whose text changed are parsed again. When the declaration
+// of one of their methods changed (its return type, its name or its parameter types), every body that uses one of the
+// old or new names is checked again as well, as the types of its calls may have changed. When the signature changed
+// in any other way (the variables), the symbol table is built again from the kept tree, without parsing the file.
+// Then only the parsed and dependent bodies are checked by Visitor 3, and the output is the one of the last check,
+// printed again if the symbol table changed, or the error of the first body that fails.
+// Any other change (outside the bodies, on which the rest of the file depends) goes through the whole check, as does
+// a body that does not parse on its own or a symbol table that cannot be built, so the errors are always the ones Main
+// would report.
+// Only plain ASCII files without backslashes are checked this way, the offsets of their bytes are those of their
+// characters; a session is not safe for threads.
+
+public class CompilerSession implements MiniJavaParserConstants {
+
+    // What recheck() returns when the whole file has to be checked, no exit status is this one
+    protected static final int WHOLE = Integer.MIN_VALUE;
+    protected String fileName;
+    protected Options options;
+
+    // What the last check that passed left behind, none of it if it failed
+    protected byte[] source;
+    protected Goal root;
+    protected SymbolTable symbolTable;
+    protected ArrayList<MethodBody> bodies;
+    protected int[] starts;             // the offset of the first character of every body in the source
+    protected int[] ends;               // and of the character after it
+    protected int[] lines;              // the line of the first character
+    protected NodeListOptional[] lists; // the list of methods of the class of every body, null for main
+    protected ArrayList<String[]> identifiers;  // the distinct identifiers of every body, null until they are needed
+    protected byte[] output;            // what the check printed
+    protected byte[] errors;
+
+    protected int checks;               // the number of checks, and how many of them were incremental
+    protected int incrementalChecks;
+
+    public CompilerSession(String fileName, Options options) {
+        this.fileName = fileName;
+        this.options = options;
+    }
+
+    public String getFileName() {
+        return this.fileName;
+    }
+
+    public Goal getRoot() {
+        return this.root;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return this.symbolTable;
+    }
+
+    public int getChecks() {
+        return this.checks;
+    }
+
+    public int getIncrementalChecks() {
+        return this.incrementalChecks;
+    }
+
+    // Checks the file as it is now, printing exactly what Main.compile() would print.
+    // Returns 0 if the file passed, otherwise the exit status of the failed check.
+    public int check(PrintStream out, PrintStream err) throws Exception {
+        byte[] source = null;
+        this.checks++;
+
+        try{
+            source = Files.readAllBytes(Paths.get(this.fileName));
+        }
+
+        catch(IOException | InvalidPathException ex){
+            // The whole check reports it
+        }
+
+        if(source != null && this.root != null) {
+            int status = recheck(source, out, err);
+
+            if(status != WHOLE) {
+                this.incrementalChecks++;
+                return status;
+            }
+        }
+
+        return checkWhole(source, out, err);
+    }
+
+    // The whole check, through Main.compile()
+    protected int checkWhole(byte[] source, PrintStream out, PrintStream err) throws Exception {
+        ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+        PrintStream outStream = new PrintStream(outBuffer, true);
+        PrintStream errStream = new PrintStream(errBuffer, true);
+        int status;
+
+        forget();
+
+        try{
+            status = Main.compile(this.fileName, this.options, outStream, errStream, this);
+        }
+
+        finally{
+            outStream.flush();
+            errStream.flush();
+            outBuffer.writeTo(out);
+            errBuffer.writeTo(err);
+        }
+
+        // The file may have changed since it was read, then the tree is not the one of the source
+        if(status == 0 && this.root != null && source != null && locate(source)) {
+            this.source = source;
+            this.output = outBuffer.toByteArray();
+            this.errors = errBuffer.toByteArray();
+        }
+        else {
+            forget();
+        }
+
+        return status;
+    }
+
+    // Called by Main.compile() when the file passed Visitor 3
+    public void keep(Goal root, SymbolTable symbolTable, ArrayList<MethodBody> bodies) {
+        this.root = root;
+        this.symbolTable = symbolTable;
+        this.bodies = bodies;
+    }
+
+    protected void forget() {
+        this.source = null;
+        this.root = null;
+        this.symbolTable = null;
+        this.bodies = null;
+        this.starts = null;
+        this.ends = null;
+        this.lines = null;
+        this.lists = null;
+        this.identifiers = null;
+        this.output = null;
+        this.errors = null;
+    }
+
+    // Finds every body in the source from its tokens: main is the first class, a method starts with "public" in a
+    // class and ends with the "}" that closes it. Returns false if they are not the bodies of the tree.
+    protected boolean locate(byte[] source) {
+        TokenArray tokens = TokenArray.lex(source, this.options.getDropComments());
+        if(tokens == null) {
+            return false;
+        }
+
+        int count = this.bodies.size();
+        int[] firsts = new int[count];
+        int[] ends = new int[count];
+
+        if(scan(tokens, 0, 0, firsts, ends) != count) {
+            return false;
+        }
+
+        int[] starts = new int[count];
+        int[] lines = new int[count];
+
+        for(int body = 0; body < count; body++) {
+            int first = firsts[body];
+            NodeToken token = TokenLocator.locate(this.bodies.get(body).getNode());
+
+            if(token == null || token.beginLine != tokens.getBeginLine(first) || token.beginColumn != tokens.getBeginColumn(first)) {
+                return false;
+            }
+
+            starts[body] = tokens.getStart(first);
+            lines[body] = tokens.getBeginLine(first);
+        }
+
+        // The lists the methods are in, to put a new version of a method in place of the old one
+        NodeListOptional[] lists = new NodeListOptional[count];
+        int method = 1;
+
+        for(int i = 0; i < this.root.f1.size(); i++) {
+            NodeChoice declaration = ((TypeDeclaration) this.root.f1.elementAt(i)).f0;
+            NodeListOptional methods;
+
+            if(declaration.choice instanceof ClassDeclaration) {
+                methods = ((ClassDeclaration) declaration.choice).f4;
+            }
+            else {
+                methods = ((ClassExtendsDeclaration) declaration.choice).f6;
+            }
+
+            for(int j = 0; j < methods.size() && method < count; j++) {
+                if(methods.elementAt(j) != this.bodies.get(method).getNode()) {
+                    return false;
+                }
+                lists[method++] = methods;
+            }
+        }
+
+        if(method != count) {
+            return false;
+        }
+
+        this.starts = starts;
+        this.ends = ends;
+        this.lines = lines;
+        this.lists = lists;
+        this.identifiers = new ArrayList<String[]>(Collections.nCopies(count, (String[]) null));
+        return true;
+    }
+
+    // Finds the bodies in the tokens as locate() does, the first one being the given body, with the tokens starting
+    // at the given depth of braces. Puts the first token of every body found and the offset after its last one into
+    // the arrays, and returns how many bodies it found, at most as many as the arrays take.
+    protected static int scan(TokenArray tokens, int body, int depth, int[] firsts, int[] ends) {
+        int found = 0;
+        int first = -1;         // the first token of the body being read
+
+        for(int i = 0; i < tokens.getTokenCount() && found < firsts.length; i++) {
+            int kind = tokens.getKind(i);
+
+            if(tokens.isSpecial(i)) {
+                continue;
+            }
+
+            boolean main = (body + found == 0);
+
+            if(first < 0 && ((main && depth == 0 && kind == CLASS) || (!main && depth == 1 && kind == PUBLIC))) {
+                first = i;
+                firsts[found] = i;
+            }
+
+            if(kind == LBRACE) {
+                depth++;
+            }
+            else if(kind == RBRACE) {
+                depth--;
+
+                if(first >= 0 && depth == (main ? 0 : 1)) {
+                    ends[found++] = tokens.getStart(i) + 1;
+                    first = -1;
+                }
+            }
+        }
+
+        return found;
+    }
+
+    // Checks the new source from what the last check kept, if only bodies changed.
+    // Returns the exit status, or WHOLE if the whole file must be checked.
+    protected int recheck(byte[] source, PrintStream out, PrintStream err) throws Exception {
+        byte[] old = this.source;
+
+        if(Arrays.equals(source, old)) {
+            out.write(this.output);
+            err.write(this.errors);
+            return 0;
+        }
+
+        // The changed bytes: the same prefix and the same suffix of both versions are left out
+        int prefix = 0;
+        int limit = Math.min(source.length, old.length);
+        while(prefix < limit && source[prefix] == old[prefix]) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        limit -= prefix;
+        while(suffix < limit && source[source.length - 1 - suffix] == old[old.length - 1 - suffix]) {
+            suffix++;
+        }
+
+        // The bodies they are in: they must start in a body and end in the same one or in a later one
+        int first = lastStartBefore(prefix + 1);
+        int last = lastStartBefore(old.length - suffix);
+
+        if(first < 0 || last < first || prefix >= this.ends[first] || old.length - suffix > this.ends[last]) {
+            return WHOLE;
+        }
+
+        int count = this.starts.length;
+        int[] starts = this.starts.clone();
+        int[] ends = this.ends.clone();
+        int[] lines = this.lines.clone();
+
+        if(!relocate(source, first, last, starts, ends, lines)) {
+            return WHOLE;
+        }
+
+        // Parse the bodies that changed, then the ones that depend on a declaration that changed, each at the position
+        // it has in the file. A change of the variables of a body, or of the name of a parameter, changes only the
+        // symbol table; a change of the return type, the name or the types of the parameters of a method (or of the
+        // name of the main class) is seen by the bodies that name it.
+        TreeMap<Integer, Node> nodes = new TreeMap<Integer, Node>();
+        HashSet<String> changedNames = new HashSet<String>();
+        boolean signatureChanged = false;
+
+        for(int body = first; body <= last; body++) {
+            if(Arrays.equals(old, this.starts[body], this.ends[body], source, starts[body], ends[body])) {
+                continue;
+            }
+
+            Node node = parseBody(source, body, starts[body], ends[body], lines[body]);
+            if(node == null) {
+                return WHOLE;
+            }
+
+            Node oldNode = this.bodies.get(body).getNode();
+            if(!signature(node).equals(signature(oldNode))) {
+                signatureChanged = true;
+
+                if(!declaration(node).equals(declaration(oldNode))) {
+                    changedNames.add(name(node));
+                    changedNames.add(name(oldNode));
+                }
+            }
+            nodes.put(body, node);
+        }
+
+        if(!changedNames.isEmpty()) {
+            for(int body = 0; body < count; body++) {
+                if(!nodes.containsKey(body) && uses(body, changedNames)) {
+                    Node node = parseBody(source, body, starts[body], ends[body], lines[body]);
+                    if(node == null) {
+                        return WHOLE;
+                    }
+                    nodes.put(body, node);
+                }
+            }
+        }
+
+        // The new bodies go into the tree in place of the old ones
+        for(Map.Entry<Integer, Node> entry : nodes.entrySet()) {
+            replace(entry.getKey(), this.bodies.get(entry.getKey()).getNode(), entry.getValue());
+        }
+
+        Diagnostics diagnostics = new Diagnostics(this.fileName);
+        SymbolTable symbolTable = this.symbolTable;
+        ArrayList<MethodBody> bodies;
+
+        if(signatureChanged) {
+            // The symbol table is built again from the tree, which takes no parse; an error in it is reported by the
+            // whole check, at the position it has in the new source
+            symbolTable = new SymbolTable(diagnostics);
+            bodies = new ArrayList<MethodBody>();
+
+            try{
+                this.root.accept(new Visitor1(symbolTable), null);
+                symbolTable.freezeHierarchy();
+                this.root.accept(new Visitor2(symbolTable, bodies), null);
+                symbolTable.freezeMembers();
+            }
+
+            catch(SemanticException | RuntimeException | StackOverflowError ex){
+                return WHOLE;
+            }
+
+            if(bodies.size() != count) {
+                return WHOLE;
+            }
+        }
+        else {
+            bodies = new ArrayList<MethodBody>(this.bodies);
+            for(Map.Entry<Integer, Node> entry : nodes.entrySet()) {
+                bodies.set(entry.getKey(), new MethodBody(entry.getValue(), this.bodies.get(entry.getKey()).getMethodData()));
+            }
+        }
+
+        // Only the new bodies are checked by Visitor 3: the others name nothing that changed, so they pass as before,
+        // and the first error of the new ones is the first error of the file
+        try{
+            Visitor3 vis3 = new Visitor3(symbolTable, diagnostics);
+
+            for(int body : nodes.keySet()) {
+                vis3.checkBody(bodies.get(body));
+            }
+        }
+
+        catch(SemanticException ex){
+            // Printed as Main prints it; what is kept stays the last version that passed
+            for(Map.Entry<Integer, Node> entry : nodes.entrySet()) {
+                replace(entry.getKey(), entry.getValue(), this.bodies.get(entry.getKey()).getNode());
+            }
+
+            if(ex.getNewLine()) {
+                out.println(ex.getMessage());
+            }
+            else {
+                out.print(ex.getMessage());
+            }
+
+            err.println("Program parsed successfully.");
+            diagnostics.print(err);
+            err.println(this.fileName + ": failed");
+            return ex.getStatus();
+        }
+
+        catch(RuntimeException | StackOverflowError ex){
+            return WHOLE;
+        }
+
+        // The file passed; the output is the symbol table, which is printed again if it was built again
+        if(signatureChanged) {
+            ByteArrayOutputStream printed = new ByteArrayOutputStream();
+            PrintStream printer = new PrintStream(printed, true);
+
+            symbolTable.setOffsets();
+            symbolTable.printSymbolTable(printer);
+            printer.flush();
+            this.output = printed.toByteArray();
+        }
+
+        out.write(this.output);
+        err.write(this.errors);
+
+        for(int body : nodes.keySet()) {
+            this.identifiers.set(body, null);
+        }
+
+        this.source = source;
+        this.symbolTable = symbolTable;
+        this.bodies = bodies;
+        this.starts = starts;
+        this.ends = ends;
+        this.lines = lines;
+        return 0;
+    }
+
+    // The last body that starts before the offset, -1 if none does
+    protected int lastStartBefore(int offset) {
+        int body = -1;
+        int low = 0;
+        int high = this.starts.length - 1;
+
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+
+            if(this.starts[middle] < offset) {
+                body = middle;
+                low = middle + 1;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        return body;
+    }
+
+    // Finds the bodies from first to last in the new source, in which everything before the first one and after the
+    // last one is as in the old source, and moves the bodies after them. Returns false if they are not found, or if
+    // the text between two of them (the end of a class, the declarations of the next one) is not the same as before.
+    protected boolean relocate(byte[] source, int first, int last, int[] starts, int[] ends, int[] lines) {
+        byte[] old = this.source;
+        int delta = source.length - old.length;
+        int from = this.starts[first];
+        int to = this.ends[last] + delta;
+
+        if(to <= from) {
+            return false;
+        }
+
+        // Only the text of the bodies is scanned
+        TokenArray tokens = TokenArray.lex(Arrays.copyOfRange(source, from, to));
+        if(tokens == null) {
+            return false;
+        }
+
+        int count = last - first + 1;
+        int[] firsts = new int[count];
+        int[] bodyEnds = new int[count];
+
+        if(scan(tokens, first, (first == 0) ? 0 : 1, firsts, bodyEnds) != count || tokens.getStart(firsts[0]) != 0 || bodyEnds[count - 1] != to - from) {
+            return false;
+        }
+
+        for(int i = 0; i < count; i++) {
+            int body = first + i;
+
+            starts[body] = from + tokens.getStart(firsts[i]);
+            ends[body] = from + bodyEnds[i];
+            lines[body] = this.lines[first] + tokens.getBeginLine(firsts[i]) - 1;
+
+            if(i > 0 && !Arrays.equals(old, this.ends[body - 1], this.starts[body], source, ends[body - 1], starts[body])) {
+                return false;
+            }
+        }
+
+        int lineDelta = lineCount(source, from, to) - lineCount(old, from, this.ends[last]);
+        for(int body = last + 1; body < starts.length; body++) {
+            starts[body] += delta;
+            ends[body] += delta;
+            lines[body] += lineDelta;
+        }
+
+        return true;
+    }
+
+    // The body parsed from its text in the source, at the position it has in the file; null if it does not parse
+    // on its own
+    protected Node parseBody(byte[] source, int body, int start, int end, int line) {
+        String text = new String(source, start, end - start, StandardCharsets.US_ASCII);
+
+        try{
+            JavaCharStream stream = new JavaCharStream(new StringReader(text), line, columnOf(source, start));
+            MiniJavaParser parser = new MiniJavaParser(this.options.getDropComments() ? new CommentDroppingTokenManager(stream) : new MiniJavaParserTokenManager(stream));
+            Node node = (body == 0) ? parser.MainClass() : parser.MethodDeclaration();
+
+            return (parser.getToken(1).kind == EOF) ? node : null;
+        }
+
+        catch(ParseException | TokenMgrError ex){
+            return null;
+        }
+    }
+
+    // Puts the node in the tree in place of the node of the body that is there
+    protected void replace(int body, Node oldNode, Node node) {
+        if(body == 0) {
+            this.root.f0 = (MainClass) node;
+        }
+        else {
+            NodeListOptional methods = this.lists[body];
+            methods.nodes.set(methods.nodes.indexOf(oldNode), node);
+        }
+    }
+
+    // Whether the body names any of the names: its identifiers are collected the first time they are needed
+    protected boolean uses(int body, HashSet<String> names) throws Exception {
+        String[] identifiers = this.identifiers.get(body);
+
+        if(identifiers == null) {
+            Identifiers visitor = new Identifiers();
+            this.bodies.get(body).getNode().accept(visitor);
+            identifiers = visitor.identifiers.toArray(new String[0]);
+            this.identifiers.set(body, identifiers);
+        }
+
+        for(String identifier : identifiers) {
+            if(names.contains(identifier)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The tokens of what the rest of the file depends on in a body: the signature and the variables of the method,
+    // the name of the class and of the parameter of main
+    protected static String signature(Node node) throws Exception {
+        Images images = new Images();
+
+        if(node instanceof MainClass) {
+            MainClass mainClass = (MainClass) node;
+            mainClass.f1.accept(images);
+            mainClass.f11.accept(images);
+            mainClass.f14.accept(images);
+        }
+        else {
+            MethodDeclaration method = (MethodDeclaration) node;
+            method.f1.accept(images);
+            method.f2.accept(images);
+            method.f4.accept(images);
+            method.f7.accept(images);
+        }
+
+        return images.toString();
+    }
+
+    // The tokens of what the other bodies depend on: the return type, the name and the types of the parameters of
+    // a method, the name of the class of main
+    protected static String declaration(Node node) throws Exception {
+        Images images = new Images();
+
+        if(node instanceof MainClass) {
+            ((MainClass) node).f1.accept(images);
+        }
+        else {
+            MethodDeclaration method = (MethodDeclaration) node;
+            method.f1.accept(images);
+            method.f2.accept(images);
+
+            if(method.f4.present()) {
+                FormalParameterList parameters = (FormalParameterList) method.f4.node;
+                parameters.f0.f0.accept(images);
+
+                for(int i = 0; i < parameters.f1.f0.size(); i++) {
+                    ((FormalParameterTerm) parameters.f1.f0.elementAt(i)).f1.f0.accept(images);
+                }
+            }
+        }
+
+        return images.toString();
+    }
+
+    // The name of the method of a body, or of the class of main
+    protected static String name(Node node) {
+        if(node instanceof MainClass) {
+            return ((MainClass) node).f1.f0.tokenImage;
+        }
+        return ((MethodDeclaration) node).f2.f0.tokenImage;
+    }
+
+    // The column of the character at the given offset, as JavaCharStream counts it
+    protected static int columnOf(byte[] source, int offset) {
+        int lineStart = offset;
+        while(lineStart > 0 && source[lineStart - 1] != '\n' && source[lineStart - 1] != '\r') {
+            lineStart--;
+        }
+
+        int column = 0;
+        for(int i = lineStart; i <= offset; i++) {
+            if(source[i] == '\t') {
+                column += 8 - (column % 8);
+            }
+            else {
+                column++;
+            }
+        }
+        return column;
+    }
+
+    // The number of lines that end between the given offsets
+    protected static int lineCount(byte[] source, int start, int end) {
+        int count = 0;
+
+        for(int i = start; i < end; i++) {
+            if(source[i] == '\n' || (source[i] == '\r' && (i + 1 == source.length || source[i + 1] != '\n'))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // The distinct identifiers under a node
+    protected static class Identifiers extends DepthFirstVisitor {
+        protected LinkedHashSet<String> identifiers = new LinkedHashSet<String>();
+
+        @Override
+        public void visit(NodeToken node) {
+            if(node.kind == IDENTIFIER) {
+                this.identifiers.add(node.tokenImage);
+            }
+        }
+    }
+
+    // The images of the tokens under a node, one after the other
+    protected static class Images extends DepthFirstVisitor {
+        protected StringBuilder images = new StringBuilder();
+
+        @Override
+        public void visit(NodeToken node) {
+            this.images.append(node.tokenImage).append(' ');
+        }
+
+        @Override
+        public String toString() {
+            return this.images.toString();
+        }
+    }
+}
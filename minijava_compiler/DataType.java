@@ -0,0 +1,38 @@
+// Class to represent the data types of mini java (int, boolean, int[], the classes and the String[] of main).
+// There is exactly one object for every type, so types are compared by reference.
+
+public class DataType {
+    public static final DataType INT = new DataType("int", null);
+    public static final DataType BOOLEAN = new DataType("boolean", null);
+    public static final DataType INT_ARRAY = new DataType("int[]", null);
+    public static final DataType STRING_ARRAY = new DataType("String[]", null);
+    public static final DataType VOID = new DataType("void", null);
+    // The type of "this": the checks of assignments, calls and arguments take it as the class of the method,
+    // the rest reject it and print it as "this"
+    public static final DataType THIS = new DataType("this", null);
+
+    protected String name;
+    protected ClassData classData;      // the class of a class type, null for the rest
+
+    public DataType(String name, ClassData classData) {
+        this.name = name;
+        this.classData = classData;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public ClassData getClassData() {
+        return this.classData;
+    }
+
+    public boolean isClass() {
+        return this.classData != null;
+    }
+
+    // The messages of the checks print the types by their names
+    public String toString() {
+        return this.name;
+    }
+}
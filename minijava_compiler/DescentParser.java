@@ -0,0 +1,435 @@
+import syntaxtree.*;
+import java.io.*;
+
+// A hand-written parser of whole files over the tokens of a TokenArray (--descent-parser), which builds the same tree
+// as the generated parser, so the visitors see no difference.
+// The generated parser peeks at the next token through jj_ntk, keeps jj_la1 for its error messages, makes a Token
+// for every token it reads, and chooses among alternatives by scanning ahead and throwing LookaheadSuccess. Here the
+// declarations and the statements are parsed by plain recursive descent straight from the arrays of the TokenArray,
+// with the same fixed lookahead as the grammar where it has one:
+//
+//   - a VarDeclaration in a method (or in main) starts with "int" "[", or with "int", "boolean" or an identifier
+//     followed by an identifier (LOOKAHEAD(2));
+//   - a Type is an ArrayType if it starts with "int" "[" "]" (LOOKAHEAD(3));
+//   - a TypeDeclaration is a ClassDeclaration if it starts with "class" Identifier "{" (LOOKAHEAD(3));
+//   - a Statement that starts with an identifier is an AssignmentStatement before "=", an ArrayAssignmentStatement
+//     before "[" (LOOKAHEAD(2)).
+//
+// The expressions are parsed by ExpressionParser. An operator there takes one prefix on its left and one on its right
+// and never chains, so an operator-precedence loop has only one round and is written as the switch on the operator.
+// A file this parser takes is taken by the generated one with the same tree. The error of a file it does not take is
+// the one of the generated parser, which parses the file again.
+// With --compact-tree the tree is built as CompactTree makes it, with its lists exactly sized and a shared NodeToken
+// for every keyword and punctuation that is not the first child of its node, so the full tree is never made.
+
+public class DescentParser extends ExpressionParser {
+
+    public DescentParser(TokenArray tokens) {
+        super(tokens);
+    }
+
+    // Parses the open file as Main.newParser(fin, options).Goal() would, compacted with --compact-tree
+    public static Goal parse(InputStream fin, Options options) throws Exception {
+        byte[] source = fin.readAllBytes();
+        TokenArray tokens = TokenArray.lex(source, options.getDropComments());
+
+        if(tokens != null) {
+            try{
+                DescentParser parser = new DescentParser(tokens);
+                parser.setCompact(options.getCompactTree());
+                return parser.Goal();
+            }
+
+            catch(ParseException | StackOverflowError ex){
+                // Parsed again below for the error
+            }
+        }
+
+        // The whole file again, from the bytes read
+        Goal root = Main.newParser(new ByteArrayInputStream(source), options).Goal();
+
+        if(options.getCompactTree()) {
+            CompactTree.compact(root);
+        }
+        return root;
+    }
+
+    /**
+     * f0 -> MainClass()
+     * f1 -> ( TypeDeclaration() )*
+     * f2 -> <EOF>
+     */
+    public Goal Goal() throws ParseException {
+        MainClass mainClass = MainClass();
+        NodeListOptional declarations = new NodeListOptional();
+
+        while(next() == CLASS) {
+            declarations.addNode(TypeDeclaration());
+        }
+
+        // The generated parser moves the end of the input a column to the right, the shared one has no position
+        NodeToken eof = consumeFixed(EOF);
+        if(eof.beginLine >= 0) {
+            eof.beginColumn++;
+            eof.endColumn++;
+        }
+
+        return new Goal(mainClass, complete(declarations), eof);
+    }
+
+    /**
+     * f0 -> "class"
+     * f1 -> Identifier()
+     * f2 -> "{"
+     * f3 -> "public"
+     * f4 -> "static"
+     * f5 -> "void"
+     * f6 -> "main"
+     * f7 -> "("
+     * f8 -> "String"
+     * f9 -> "["
+     * f10 -> "]"
+     * f11 -> Identifier()
+     * f12 -> ")"
+     * f13 -> "{"
+     * f14 -> ( VarDeclaration() )*
+     * f15 -> ( Statement() )*
+     * f16 -> "}"
+     * f17 -> "}"
+     */
+    public MainClass MainClass() throws ParseException {
+        NodeToken keyword = consume(CLASS);
+        Identifier name = Identifier();
+        NodeToken open = consumeFixed(LBRACE);
+        NodeToken publicKeyword = consumeFixed(PUBLIC);
+        NodeToken staticKeyword = consumeFixed(STATIC);
+        NodeToken voidKeyword = consumeFixed(VOID);
+        NodeToken mainKeyword = consumeFixed(MAIN);
+        NodeToken parameterOpen = consumeFixed(LPAREN);
+        NodeToken string = consumeFixed(STRING);
+        NodeToken arrayOpen = consumeFixed(LSQPAREN);
+        NodeToken arrayClose = consumeFixed(RSQPAREN);
+        Identifier parameter = Identifier();
+        NodeToken parameterClose = consumeFixed(RPAREN);
+        NodeToken bodyOpen = consumeFixed(LBRACE);
+        NodeListOptional variables = LocalVarDeclarations();
+        NodeListOptional statements = Statements();
+        NodeToken bodyClose = consumeFixed(RBRACE);
+
+        return new MainClass(keyword, name, open, publicKeyword, staticKeyword, voidKeyword, mainKeyword, parameterOpen, string, arrayOpen, arrayClose, parameter, parameterClose, bodyOpen, variables, statements, bodyClose, consumeFixed(RBRACE));
+    }
+
+    /**
+     * f0 -> ClassDeclaration()
+     *       | ClassExtendsDeclaration()
+     */
+    public TypeDeclaration TypeDeclaration() throws ParseException {
+        if(peek(1) == CLASS && peek(2) == IDENTIFIER && peek(3) == LBRACE) {
+            NodeToken keyword = consume(CLASS);
+            Identifier name = Identifier();
+            NodeToken open = consumeFixed(LBRACE);
+            NodeListOptional fields = FieldDeclarations();
+            NodeListOptional methods = MethodDeclarations();
+
+            return new TypeDeclaration(new NodeChoice(new ClassDeclaration(keyword, name, open, fields, methods, consumeFixed(RBRACE)), 0));
+        }
+
+        NodeToken keyword = consume(CLASS);
+        Identifier name = Identifier();
+        NodeToken extendsKeyword = consumeFixed(EXTENDS);
+        Identifier superclass = Identifier();
+        NodeToken open = consumeFixed(LBRACE);
+        NodeListOptional fields = FieldDeclarations();
+        NodeListOptional methods = MethodDeclarations();
+
+        return new TypeDeclaration(new NodeChoice(new ClassExtendsDeclaration(keyword, name, extendsKeyword, superclass, open, fields, methods, consumeFixed(RBRACE)), 1));
+    }
+
+    // The fields of a class: every declaration that starts with a type
+    protected NodeListOptional FieldDeclarations() throws ParseException {
+        NodeListOptional fields = new NodeListOptional();
+
+        while(next() == BOOLEAN || next() == INTEGER || next() == IDENTIFIER) {
+            fields.addNode(VarDeclaration());
+        }
+
+        return complete(fields);
+    }
+
+    // The variables of a method or of main, which the grammar tells from the statements with two tokens
+    protected NodeListOptional LocalVarDeclarations() throws ParseException {
+        NodeListOptional variables = new NodeListOptional();
+
+        while(startsVarDeclaration()) {
+            variables.addNode(VarDeclaration());
+        }
+
+        return complete(variables);
+    }
+
+    protected boolean startsVarDeclaration() {
+        switch(next()) {
+            case INTEGER:
+                return peek(2) == LSQPAREN || peek(2) == IDENTIFIER;
+            case BOOLEAN:
+            case IDENTIFIER:
+                return peek(2) == IDENTIFIER;
+            default:
+                return false;
+        }
+    }
+
+    protected NodeListOptional MethodDeclarations() throws ParseException {
+        NodeListOptional methods = new NodeListOptional();
+
+        while(next() == PUBLIC) {
+            methods.addNode(MethodDeclaration());
+        }
+
+        return complete(methods);
+    }
+
+    /**
+     * f0 -> Type()
+     * f1 -> Identifier()
+     * f2 -> ";"
+     */
+    public VarDeclaration VarDeclaration() throws ParseException {
+        Type type = Type();
+        Identifier name = Identifier();
+        return new VarDeclaration(type, name, consumeFixed(SEMICOLON));
+    }
+
+    /**
+     * f0 -> "public"
+     * f1 -> Type()
+     * f2 -> Identifier()
+     * f3 -> "("
+     * f4 -> ( FormalParameterList() )?
+     * f5 -> ")"
+     * f6 -> "{"
+     * f7 -> ( VarDeclaration() )*
+     * f8 -> ( Statement() )*
+     * f9 -> "return"
+     * f10 -> Expression()
+     * f11 -> ";"
+     * f12 -> "}"
+     */
+    public MethodDeclaration MethodDeclaration() throws ParseException {
+        NodeToken keyword = consume(PUBLIC);
+        Type type = Type();
+        Identifier name = Identifier();
+        NodeToken parameterOpen = consumeFixed(LPAREN);
+        NodeOptional parameters = new NodeOptional();
+
+        if(next() == BOOLEAN || next() == INTEGER || next() == IDENTIFIER) {
+            parameters.addNode(FormalParameterList());
+        }
+
+        NodeToken parameterClose = consumeFixed(RPAREN);
+        NodeToken bodyOpen = consumeFixed(LBRACE);
+        NodeListOptional variables = LocalVarDeclarations();
+        NodeListOptional statements = Statements();
+        NodeToken returnKeyword = consumeFixed(RETURN);
+        Expression expression = Expression();
+        NodeToken semicolon = consumeFixed(SEMICOLON);
+
+        return new MethodDeclaration(keyword, type, name, parameterOpen, parameters, parameterClose, bodyOpen, variables, statements, returnKeyword, expression, semicolon, consumeFixed(RBRACE));
+    }
+
+    /**
+     * f0 -> FormalParameter()
+     * f1 -> FormalParameterTail()
+     */
+    public FormalParameterList FormalParameterList() throws ParseException {
+        FormalParameter first = FormalParameter();
+        NodeListOptional terms = new NodeListOptional();
+
+        while(next() == COMMA) {
+            NodeToken comma = consume(COMMA);
+            terms.addNode(new FormalParameterTerm(comma, FormalParameter()));
+        }
+
+        return new FormalParameterList(first, new FormalParameterTail(complete(terms)));
+    }
+
+    /**
+     * f0 -> Type()
+     * f1 -> Identifier()
+     */
+    public FormalParameter FormalParameter() throws ParseException {
+        Type type = Type();
+        return new FormalParameter(type, Identifier());
+    }
+
+    /**
+     * f0 -> ArrayType()
+     *       | BooleanType()
+     *       | IntegerType()
+     *       | Identifier()
+     */
+    public Type Type() throws ParseException {
+        switch(next()) {
+            case INTEGER:
+                if(peek(2) == LSQPAREN && peek(3) == RSQPAREN) {
+                    NodeToken type = consume(INTEGER);
+                    NodeToken open = consumeFixed(LSQPAREN);
+                    return new Type(new NodeChoice(new ArrayType(type, open, consumeFixed(RSQPAREN)), 0));
+                }
+                return new Type(new NodeChoice(new IntegerType(consume(INTEGER)), 2));
+            case BOOLEAN:
+                return new Type(new NodeChoice(new BooleanType(consume(BOOLEAN)), 1));
+            case IDENTIFIER:
+                return new Type(new NodeChoice(Identifier(), 3));
+            default:
+                throw error();
+        }
+    }
+
+    // The statements up to the first token that cannot start one
+    protected NodeListOptional Statements() throws ParseException {
+        NodeListOptional statements = new NodeListOptional();
+
+        while(startsStatement(next())) {
+            statements.addNode(Statement());
+        }
+
+        return complete(statements);
+    }
+
+    protected static boolean startsStatement(int kind) {
+        switch(kind) {
+            case LBRACE:
+            case IF:
+            case WHILE:
+            case PRINT:
+            case IDENTIFIER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * f0 -> Block()
+     *       | AssignmentStatement()
+     *       | ArrayAssignmentStatement()
+     *       | IfStatement()
+     *       | WhileStatement()
+     *       | PrintStatement()
+     */
+    public Statement Statement() throws ParseException {
+        switch(next()) {
+            case LBRACE:
+                return new Statement(new NodeChoice(Block(), 0));
+            case IDENTIFIER:
+                if(peek(2) == ASSIGN) {
+                    return new Statement(new NodeChoice(AssignmentStatement(), 1));
+                }
+                if(peek(2) == LSQPAREN) {
+                    return new Statement(new NodeChoice(ArrayAssignmentStatement(), 2));
+                }
+                throw error();
+            case IF:
+                return new Statement(new NodeChoice(IfStatement(), 3));
+            case WHILE:
+                return new Statement(new NodeChoice(WhileStatement(), 4));
+            case PRINT:
+                return new Statement(new NodeChoice(PrintStatement(), 5));
+            default:
+                throw error();
+        }
+    }
+
+    /**
+     * f0 -> "{"
+     * f1 -> ( Statement() )*
+     * f2 -> "}"
+     */
+    public Block Block() throws ParseException {
+        NodeToken open = consume(LBRACE);
+        NodeListOptional statements = Statements();
+        return new Block(open, statements, consumeFixed(RBRACE));
+    }
+
+    /**
+     * f0 -> Identifier()
+     * f1 -> "="
+     * f2 -> Expression()
+     * f3 -> ";"
+     */
+    public AssignmentStatement AssignmentStatement() throws ParseException {
+        Identifier name = Identifier();
+        NodeToken assign = consumeFixed(ASSIGN);
+        Expression expression = Expression();
+        return new AssignmentStatement(name, assign, expression, consumeFixed(SEMICOLON));
+    }
+
+    /**
+     * f0 -> Identifier()
+     * f1 -> "["
+     * f2 -> Expression()
+     * f3 -> "]"
+     * f4 -> "="
+     * f5 -> Expression()
+     * f6 -> ";"
+     */
+    public ArrayAssignmentStatement ArrayAssignmentStatement() throws ParseException {
+        Identifier name = Identifier();
+        NodeToken open = consumeFixed(LSQPAREN);
+        Expression index = Expression();
+        NodeToken close = consumeFixed(RSQPAREN);
+        NodeToken assign = consumeFixed(ASSIGN);
+        Expression expression = Expression();
+        return new ArrayAssignmentStatement(name, open, index, close, assign, expression, consumeFixed(SEMICOLON));
+    }
+
+    /**
+     * f0 -> "if"
+     * f1 -> "("
+     * f2 -> Expression()
+     * f3 -> ")"
+     * f4 -> Statement()
+     * f5 -> "else"
+     * f6 -> Statement()
+     */
+    public IfStatement IfStatement() throws ParseException {
+        NodeToken keyword = consume(IF);
+        NodeToken open = consumeFixed(LPAREN);
+        Expression condition = Expression();
+        NodeToken close = consumeFixed(RPAREN);
+        Statement then = Statement();
+        NodeToken elseKeyword = consumeFixed(ELSE);
+        return new IfStatement(keyword, open, condition, close, then, elseKeyword, Statement());
+    }
+
+    /**
+     * f0 -> "while"
+     * f1 -> "("
+     * f2 -> Expression()
+     * f3 -> ")"
+     * f4 -> Statement()
+     */
+    public WhileStatement WhileStatement() throws ParseException {
+        NodeToken keyword = consume(WHILE);
+        NodeToken open = consumeFixed(LPAREN);
+        Expression condition = Expression();
+        NodeToken close = consumeFixed(RPAREN);
+        return new WhileStatement(keyword, open, condition, close, Statement());
+    }
+
+    /**
+     * f0 -> "System.out.println"
+     * f1 -> "("
+     * f2 -> Expression()
+     * f3 -> ")"
+     * f4 -> ";"
+     */
+    public PrintStatement PrintStatement() throws ParseException {
+        NodeToken keyword = consume(PRINT);
+        NodeToken open = consumeFixed(LPAREN);
+        Expression expression = Expression();
+        NodeToken close = consumeFixed(RPAREN);
+        return new PrintStatement(keyword, open, expression, close, consumeFixed(SEMICOLON));
+    }
+}
@@ -0,0 +1,269 @@
+// The tokens of MiniJava as a single deterministic automaton over classes of characters, kept in flat tables
+// (--dfa-lexer). The generated token manager simulates an NFA with sets of states for every character; here a
+// character is one lookup in CLASSES and one in NEXT, and the kind of a token is ACCEPT of the last accepting state.
+// Keywords are scanned as identifiers and told apart by a perfect hash, and "System.out.println" is recognized
+// after the identifier "System", which is what the longest match of the generated lexer amounts to.
+// Only ASCII is in the tables: a token that starts with (or an identifier that runs into) any other character is
+// left to the generated lexer, which knows the Unicode letters and digits of the grammar, and so is every error.
+
+public final class DfaLexer implements MiniJavaParserConstants {
+
+    // Classes of characters
+    static final int OTHER_CHAR = 0;    // an ASCII character that no token starts with
+    static final int HIGH_CHAR = 1;     // any character above ASCII
+    static final int LETTER_CHAR = 2;
+    static final int ZERO_CHAR = 3;
+    static final int DIGIT_CHAR = 4;    // 1 to 9
+    static final int SLASH_CHAR = 5;
+    static final int STAR_CHAR = 6;
+    static final int NEWLINE_CHAR = 7;
+    static final int RETURN_CHAR = 8;
+    static final int AMPERSAND_CHAR = 9;
+    static final int SINGLE_CHAR = 10;  // the first class of the single character tokens, one class each
+
+    static final String SINGLES = "()[]{};.=<+-!,";
+    static final int CLASS_COUNT = SINGLE_CHAR + SINGLES.length();
+
+    // States
+    static final int START = 0;
+    static final int IDENTIFIER_STATE = 1;
+    static final int ZERO_STATE = 2;
+    static final int NUMBER_STATE = 3;
+    static final int AMPERSAND_STATE = 4;
+    static final int AND_STATE = 5;
+    static final int STAR_STATE = 6;
+    static final int SLASH_STATE = 7;
+    static final int LINE = 8;          // in a // comment
+    static final int LINE_RETURN = 9;   // a // comment ended by '\r', maybe followed by '\n'
+    static final int LINE_END = 10;
+    static final int BLOCK_OPEN = 11;   // "/*"
+    static final int FORMAL_OPEN = 12;  // "/**"
+    static final int SHORT_BLOCK = 13;  // "/**/" is a whole comment, but a longer formal comment can still follow
+    static final int FORMAL = 14;
+    static final int FORMAL_STAR = 15;
+    static final int FORMAL_END = 16;
+    static final int BLOCK = 17;
+    static final int BLOCK_STAR = 18;
+    static final int BLOCK_END = 19;
+    static final int SINGLE_STATE = 20; // the first state of the single character tokens, one state each
+    static final int STATE_COUNT = SINGLE_STATE + SINGLES.length();
+
+    // Transitions that are not states
+    static final byte DEAD = -1;        // the token cannot go on
+    static final byte GENERATED = -2;   // the token has characters outside the tables
+
+    static final byte[] CLASSES = new byte[128];
+    static final byte[] NEXT = new byte[STATE_COUNT * CLASS_COUNT];
+    static final int[] ACCEPT = new int[STATE_COUNT];
+    static final boolean[] FINAL = new boolean[STATE_COUNT];
+
+    // The keywords by their hash, see keyword()
+    static final char[][] KEYWORDS = new char[64][];
+    static final int[] KEYWORD_KINDS = new int[64];
+
+    static final char[] PRINT_REST = ".out.println".toCharArray();
+
+    static {
+        for(int c = 0; c < 128; c++) {
+            if(c == '$' || c == '_' || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                CLASSES[c] = LETTER_CHAR;
+            }
+            else if(c >= '1' && c <= '9') {
+                CLASSES[c] = DIGIT_CHAR;
+            }
+            else {
+                CLASSES[c] = OTHER_CHAR;
+            }
+        }
+        CLASSES['0'] = ZERO_CHAR;
+        CLASSES['/'] = SLASH_CHAR;
+        CLASSES['*'] = STAR_CHAR;
+        CLASSES['\n'] = NEWLINE_CHAR;
+        CLASSES['\r'] = RETURN_CHAR;
+        CLASSES['&'] = AMPERSAND_CHAR;
+        for(int i = 0; i < SINGLES.length(); i++) {
+            CLASSES[SINGLES.charAt(i)] = (byte) (SINGLE_CHAR + i);
+        }
+
+        java.util.Arrays.fill(NEXT, DEAD);
+        java.util.Arrays.fill(ACCEPT, -1);
+
+        edge(START, HIGH_CHAR, GENERATED);
+        edge(START, LETTER_CHAR, IDENTIFIER_STATE);
+        edge(START, ZERO_CHAR, ZERO_STATE);
+        edge(START, DIGIT_CHAR, NUMBER_STATE);
+        edge(START, AMPERSAND_CHAR, AMPERSAND_STATE);
+        edge(START, STAR_CHAR, STAR_STATE);
+        edge(START, SLASH_CHAR, SLASH_STATE);
+        for(int i = 0; i < SINGLES.length(); i++) {
+            edge(START, SINGLE_CHAR + i, SINGLE_STATE + i);
+            ACCEPT[SINGLE_STATE + i] = singleKind(SINGLES.charAt(i));
+        }
+
+        edge(IDENTIFIER_STATE, LETTER_CHAR, IDENTIFIER_STATE);
+        edge(IDENTIFIER_STATE, ZERO_CHAR, IDENTIFIER_STATE);
+        edge(IDENTIFIER_STATE, DIGIT_CHAR, IDENTIFIER_STATE);
+        edge(IDENTIFIER_STATE, HIGH_CHAR, GENERATED);
+        ACCEPT[IDENTIFIER_STATE] = IDENTIFIER;
+
+        ACCEPT[ZERO_STATE] = INTEGER_LITERAL;
+        edge(NUMBER_STATE, ZERO_CHAR, NUMBER_STATE);
+        edge(NUMBER_STATE, DIGIT_CHAR, NUMBER_STATE);
+        ACCEPT[NUMBER_STATE] = INTEGER_LITERAL;
+
+        edge(AMPERSAND_STATE, AMPERSAND_CHAR, AND_STATE);
+        ACCEPT[AND_STATE] = AND;
+        ACCEPT[STAR_STATE] = singleKind('*');
+
+        edge(SLASH_STATE, SLASH_CHAR, LINE);
+        edge(SLASH_STATE, STAR_CHAR, BLOCK_OPEN);
+
+        all(LINE, LINE);
+        edge(LINE, NEWLINE_CHAR, LINE_END);
+        edge(LINE, RETURN_CHAR, LINE_RETURN);
+        edge(LINE_RETURN, NEWLINE_CHAR, LINE_END);
+        ACCEPT[LINE_RETURN] = SINGLE_LINE_COMMENT;
+        ACCEPT[LINE_END] = SINGLE_LINE_COMMENT;
+
+        all(BLOCK_OPEN, BLOCK);
+        edge(BLOCK_OPEN, STAR_CHAR, FORMAL_OPEN);
+        all(FORMAL_OPEN, FORMAL);
+        edge(FORMAL_OPEN, STAR_CHAR, FORMAL_STAR);
+        edge(FORMAL_OPEN, SLASH_CHAR, SHORT_BLOCK);
+        all(SHORT_BLOCK, FORMAL);
+        edge(SHORT_BLOCK, STAR_CHAR, FORMAL_STAR);
+        ACCEPT[SHORT_BLOCK] = MULTI_LINE_COMMENT;
+        all(FORMAL, FORMAL);
+        edge(FORMAL, STAR_CHAR, FORMAL_STAR);
+        all(FORMAL_STAR, FORMAL);
+        edge(FORMAL_STAR, STAR_CHAR, FORMAL_STAR);
+        edge(FORMAL_STAR, SLASH_CHAR, FORMAL_END);
+        ACCEPT[FORMAL_END] = FORMAL_COMMENT;
+        all(BLOCK, BLOCK);
+        edge(BLOCK, STAR_CHAR, BLOCK_STAR);
+        all(BLOCK_STAR, BLOCK);
+        edge(BLOCK_STAR, STAR_CHAR, BLOCK_STAR);
+        edge(BLOCK_STAR, SLASH_CHAR, BLOCK_END);
+        ACCEPT[BLOCK_END] = MULTI_LINE_COMMENT;
+
+        // A token that cannot go on ends without looking at the next character, as in the generated code
+        for(int state = 0; state < STATE_COUNT; state++) {
+            FINAL[state] = true;
+            for(int i = 0; i < CLASS_COUNT; i++) {
+                if(NEXT[state * CLASS_COUNT + i] != DEAD) {
+                    FINAL[state] = false;
+                }
+            }
+        }
+
+        int[] kinds = {BOOLEAN, CLASS, INTERFACE, ELSE, EXTENDS, FALSE, IF, WHILE, INTEGER, LENGTH, MAIN, NEW,
+                       PUBLIC, RETURN, STATIC, STRING, THIS, TRUE, VOID};
+        for(int kind : kinds) {
+            char[] keyword = MiniJavaParserTokenManager.jjstrLiteralImages[kind].toCharArray();
+            int slot = hash(keyword, keyword.length);
+
+            if(KEYWORDS[slot] != null) {
+                throw new IllegalStateException("The keyword hash is not perfect");
+            }
+            KEYWORDS[slot] = keyword;
+            KEYWORD_KINDS[slot] = kind;
+        }
+    }
+
+    private DfaLexer() {
+    }
+
+    private static void edge(int from, int characterClass, int to) {
+        NEXT[from * CLASS_COUNT + characterClass] = (byte) to;
+    }
+
+    // Every class goes from the state to the given one (the edges set afterwards override it)
+    private static void all(int from, int to) {
+        for(int i = 0; i < CLASS_COUNT; i++) {
+            edge(from, i, to);
+        }
+    }
+
+    // The kind of the token of a single character, named in the grammar or not, from the images of the generated lexer
+    public static int singleKind(char c) {
+        String image = String.valueOf(c);
+
+        for(int kind = 0; kind < MiniJavaParserTokenManager.jjstrLiteralImages.length; kind++) {
+            if(image.equals(MiniJavaParserTokenManager.jjstrLiteralImages[kind])) {
+                return kind;
+            }
+        }
+        throw new IllegalStateException("No token for " + c);
+    }
+
+    public static int classOf(char c) {
+        return (c < 128) ? CLASSES[c] : HIGH_CHAR;
+    }
+
+    // The next state from the given one on a character, DEAD or GENERATED
+    public static int next(int state, char c) {
+        return NEXT[state * CLASS_COUNT + classOf(c)];
+    }
+
+    // The kind of the tokens that end in the given state, -1 if it is not accepting
+    public static int accept(int state) {
+        return ACCEPT[state];
+    }
+
+    // Whether no character goes on from the given state
+    public static boolean isFinal(int state) {
+        return FINAL[state];
+    }
+
+    // A perfect hash of the keywords, from the length and the first and last characters
+    static int hash(char[] text, int length) {
+        return (length + text[0] + 3 * text[length - 1]) & 63;
+    }
+
+    // The same hash over length ASCII bytes from start
+    static int hash(byte[] text, int start, int length) {
+        return (length + text[start] + 3 * text[start + length - 1]) & 63;
+    }
+
+    // The kind of the keyword in the first length characters of text, IDENTIFIER if they are no keyword
+    public static int keyword(char[] text, int length) {
+        int slot = hash(text, length);
+        char[] keyword = KEYWORDS[slot];
+
+        if(keyword == null || keyword.length != length) {
+            return IDENTIFIER;
+        }
+        for(int i = 0; i < length; i++) {
+            if(keyword[i] != text[i]) {
+                return IDENTIFIER;
+            }
+        }
+        return KEYWORD_KINDS[slot];
+    }
+
+    // The same for length ASCII bytes from start
+    public static int keyword(byte[] text, int start, int length) {
+        int slot = hash(text, start, length);
+        char[] keyword = KEYWORDS[slot];
+
+        if(keyword == null || keyword.length != length) {
+            return IDENTIFIER;
+        }
+        for(int i = 0; i < length; i++) {
+            if(keyword[i] != text[start + i]) {
+                return IDENTIFIER;
+            }
+        }
+        return KEYWORD_KINDS[slot];
+    }
+
+    // Whether the first length characters of text are "System", which with ".out.println" after it is a single token
+    public static boolean isSystem(char[] text, int length) {
+        return length == 6 && text[0] == 'S' && text[1] == 'y' && text[2] == 's' && text[3] == 't' && text[4] == 'e' && text[5] == 'm';
+    }
+
+    // Whether the length ASCII bytes from start are "System"
+    public static boolean isSystem(byte[] text, int start, int length) {
+        return length == 6 && text[start] == 'S' && text[start + 1] == 'y' && text[start + 2] == 's' && text[start + 3] == 't' && text[start + 4] == 'e' && text[start + 5] == 'm';
+    }
+}
@@ -0,0 +1,221 @@
+import java.io.*;
+import java.util.*;
+
+// The token manager of --dfa-lexer: the tokens are scanned with the tables of DfaLexer, over the same JavaCharStream
+// and into the same Tokens (kinds, images, positions and special tokens) as the generated token manager.
+// A token the tables do not cover, and every lexical error, is scanned again from its first character by the
+// generated code, so that non-ASCII identifiers and the messages of the errors stay exactly the same.
+// With --drop-comments the comments are skipped by JavaCharStream.skipComment() before the tables see them, as in
+// CommentDroppingTokenManager, and no Token is made for the few ones it leaves to the tables.
+
+public class DfaTokenManager extends MiniJavaParserTokenManager {
+    protected char[] text;          // the characters of the current token
+    protected boolean dropComments;
+
+    public DfaTokenManager(JavaCharStream stream) {
+        this(stream, false);
+    }
+
+    public DfaTokenManager(JavaCharStream stream, boolean dropComments) {
+        super(stream);
+        this.text = new char[64];
+        this.dropComments = dropComments;
+    }
+
+    public boolean getDropComments() {
+        return this.dropComments;
+    }
+
+    // Reinitialises the token manager for another stream
+    public void ReInit(JavaCharStream stream, boolean dropComments) {
+        ReInit(stream);
+        this.dropComments = dropComments;
+    }
+
+    @Override
+    public Token getNextToken() {
+        Token specialToken = null;
+
+        for(;;) {
+            char c;
+
+            try{
+                c = this.input_stream.BeginToken();
+            }
+
+            catch(IOException ex){
+                return attach(fill(EOF, ""), specialToken);
+            }
+
+            // White space is skipped a character at a time, as the generated code does
+            try{
+                while(c <= ' ' && (0x100003600L & (1L << c)) != 0L) {
+                    c = this.input_stream.BeginToken();
+                }
+            }
+
+            // The end of the input is taken as a token of its own on the next round, as the generated code does
+            catch(IOException ex){
+                continue;
+            }
+
+            if(this.dropComments && c == '/' && this.input_stream.skipComment()) {
+                continue;
+            }
+
+            int state = DfaLexer.START;
+            int read = 1;           // characters taken from the stream for this token, c included
+            int length = 0;         // characters that went through the automaton
+            int kind = -1;          // kind of the longest token so far
+            int matched = 0;        // and its length
+
+            for(;;) {
+                int next = DfaLexer.next(state, c);
+
+                if(next == DfaLexer.GENERATED) {
+                    this.input_stream.backup(read);
+                    return generated(specialToken);
+                }
+                if(next == DfaLexer.DEAD) {
+                    break;
+                }
+
+                if(length == this.text.length) {
+                    this.text = Arrays.copyOf(this.text, length * 2);
+                }
+                this.text[length++] = c;
+                state = next;
+
+                if(DfaLexer.accept(state) >= 0) {
+                    kind = DfaLexer.accept(state);
+                    matched = length;
+                }
+                if(DfaLexer.isFinal(state)) {
+                    break;
+                }
+
+                try{
+                    c = this.input_stream.readChar();
+                    read++;
+                }
+
+                catch(IOException ex){
+                    break;
+                }
+            }
+
+            // Nothing matched: a lexical error, which the generated code reports
+            if(kind < 0) {
+                this.input_stream.backup(read);
+                return generated(specialToken);
+            }
+
+            this.input_stream.backup(read - matched);
+
+            if(this.dropComments && CommentDroppingTokenManager.isComment(kind)) {
+                continue;
+            }
+
+            if(kind == IDENTIFIER) {
+                kind = DfaLexer.keyword(this.text, matched);
+
+                if(kind == IDENTIFIER && DfaLexer.isSystem(this.text, matched) && readPrint()) {
+                    kind = PRINT;
+                }
+            }
+
+            String image = jjstrLiteralImages[kind];
+            if(image == null) {
+                image = new String(this.text, 0, matched);
+            }
+            Token token = fill(kind, image);
+
+            if(kind == SINGLE_LINE_COMMENT || kind == FORMAL_COMMENT || kind == MULTI_LINE_COMMENT) {
+                if(specialToken == null) {
+                    specialToken = token;
+                }
+                else {
+                    token.specialToken = specialToken;
+                    specialToken = (specialToken.next = token);
+                }
+                continue;
+            }
+
+            return attach(token, specialToken);
+        }
+    }
+
+    // The comments the generated code scans for generated() are dropped as well
+    @Override
+    protected Token jjFillToken() {
+        if(this.dropComments && CommentDroppingTokenManager.isComment(this.jjmatchedKind)) {
+            return null;
+        }
+        return super.jjFillToken();
+    }
+
+    // Takes ".out.println" after "System" if it is there, otherwise leaves the stream as it was
+    protected boolean readPrint() {
+        char[] rest = DfaLexer.PRINT_REST;
+        int read = 0;
+
+        try{
+            while(read < rest.length) {
+                char c = this.input_stream.readChar();
+                read++;
+
+                if(c != rest[read - 1]) {
+                    break;
+                }
+                if(read == rest.length) {
+                    return true;
+                }
+            }
+        }
+
+        catch(IOException ex){
+            // The input ends before the whole of it
+        }
+
+        this.input_stream.backup(read);
+        return false;
+    }
+
+    // A token of the given kind over the characters from the start of the token to the current one
+    protected Token fill(int kind, String image) {
+        Token token = Token.newToken(kind, image);
+
+        token.beginLine = this.input_stream.getBeginLine();
+        token.beginColumn = this.input_stream.getBeginColumn();
+        token.endLine = this.input_stream.getEndLine();
+        token.endColumn = this.input_stream.getEndColumn();
+
+        return token;
+    }
+
+    // Puts the special tokens found before the token in front of it
+    protected Token attach(Token token, Token specialToken) {
+        token.specialToken = specialToken;
+        return token;
+    }
+
+    // Scans the next token with the generated code, from the start of the token; the special tokens found before
+    // it here come before the ones the generated code finds
+    protected Token generated(Token specialToken) {
+        Token token = super.getNextToken();
+
+        if(specialToken != null) {
+            Token first = token;
+            while(first.specialToken != null) {
+                first = first.specialToken;
+            }
+
+            first.specialToken = specialToken;
+            if(first != token) {
+                specialToken.next = first;
+            }
+        }
+
+        return token;
+    }
+}
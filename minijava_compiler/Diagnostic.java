@@ -0,0 +1,54 @@
+// A single message produced while checking a file, along with the place of the file it refers to.
+
+public class Diagnostic {
+
+    public enum Severity {
+        ERROR,
+        WARNING
+    }
+
+    protected Severity severity;
+    protected String fileName;
+    protected int line;            // -1 if the position is not known
+    protected int column;
+    protected String message;
+
+    public Diagnostic(Severity severity, String fileName, int line, int column, String message) {
+        this.severity = severity;
+        this.fileName = fileName;
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    public Severity getSeverity() {
+        return this.severity;
+    }
+
+    public String getFileName() {
+        return this.fileName;
+    }
+
+    public int getLine() {
+        return this.line;
+    }
+
+    public int getColumn() {
+        return this.column;
+    }
+
+    public String getMessage() {
+        return this.message;
+    }
+
+    // Print it in the usual "file:line:column: error: message" form
+    public String toString() {
+        String location = (this.fileName != null) ? this.fileName : "<input>";
+
+        if(this.line >= 0) {
+            location = location + ":" + this.line + ":" + this.column;
+        }
+
+        return location + ": " + this.severity.name().toLowerCase() + ": " + this.message;
+    }
+}
@@ -0,0 +1,81 @@
+import syntaxtree.*;
+import java.io.*;
+import java.util.*;
+
+// Collects the diagnostics of a single file.
+// The visitors and the symbol table report into it, so a bad file no longer terminates the whole program.
+
+public class Diagnostics {
+    protected String fileName;
+    protected ArrayList<Diagnostic> diagnostics;
+    protected int errorCount;
+
+    public Diagnostics(String fileName) {
+        this.fileName = fileName;
+        this.diagnostics = new ArrayList<Diagnostic>();
+        this.errorCount = 0;
+    }
+
+    public String getFileName() {
+        return this.fileName;
+    }
+
+    public ArrayList<Diagnostic> getDiagnostics() {
+        return this.diagnostics;
+    }
+
+    public boolean hasErrors() {
+        return this.errorCount != 0;
+    }
+
+    public Diagnostic report(Diagnostic.Severity severity, int line, int column, String message) {
+        Diagnostic diagnostic = new Diagnostic(severity, this.fileName, line, column, message);
+
+        this.diagnostics.add(diagnostic);
+        if(severity == Diagnostic.Severity.ERROR) {
+            this.errorCount++;
+        }
+
+        return diagnostic;
+    }
+
+    // Report a message about the given node. It points at the first token of the node.
+    public Diagnostic report(Diagnostic.Severity severity, Node node, String message) {
+        NodeToken token = TokenLocator.locate(node);
+
+        if(token == null) {
+            return report(severity, -1, -1, message);
+        }
+
+        return report(severity, token.beginLine, token.beginColumn, message);
+    }
+
+    // Report an error and return the exception that stops checking the file.
+    // The visitors use it as: throw diagnostics.error(node, "...");
+    public SemanticException error(Node node, String message) {
+        return error(node, message, -1, true);
+    }
+
+    public SemanticException error(Node node, String message, int status, boolean newLine) {
+        return new SemanticException(report(Diagnostic.Severity.ERROR, node, message), status, newLine);
+    }
+
+    // Append the diagnostics of another sink of the same file, e.g. the one of a task that checked a part of it
+    public void merge(Diagnostics other) {
+        for(int i = 0; i < other.getDiagnostics().size(); i++) {
+            Diagnostic diagnostic = other.getDiagnostics().get(i);
+
+            this.diagnostics.add(diagnostic);
+            if(diagnostic.getSeverity() == Diagnostic.Severity.ERROR) {
+                this.errorCount++;
+            }
+        }
+    }
+
+    // Print every diagnostic in its located form
+    public void print(PrintStream out) {
+        for(int i = 0; i < this.diagnostics.size(); i++) {
+            out.println(this.diagnostics.get(i));
+        }
+    }
+}
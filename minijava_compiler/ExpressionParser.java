@@ -0,0 +1,314 @@
+import syntaxtree.*;
+
+// A parser of the expressions of MiniJava over the tokens of a TokenArray, which builds the same nodes as the
+// generated parser without any of its backtracking.
+// In the grammar an Expression is chosen by syntactic lookahead: LOOKAHEAD( Clause() "&&" ), then
+// LOOKAHEAD( PrimaryExpression() "<" ) and so on, each one scanning a whole Clause or PrimaryExpression before the
+// operator after it is seen, and the scans of the brackets inside it scan their own expressions again for every
+// alternative. The time grows exponentially with the nesting of the brackets (8 levels of "(((x)))" take seconds).
+// Every alternative starts with the same Clause, so the grammar is left-factored here and the operator after the
+// Clause chooses the node, with a single token of lookahead everywhere but after a ".", where the next two tokens
+// tell an ArrayLength or a MessageSend from an expression that ends before the ".", as in the grammar:
+//
+//   Expression        ::= NotExpression ( "&&" Clause )?
+//                       | PrimaryExpression ( "&&" Clause | "<" PrimaryExpression | "+" PrimaryExpression
+//                                           | "-" PrimaryExpression | "*" PrimaryExpression
+//                                           | "[" PrimaryExpression "]"
+//                                           | "." "length" | "." Identifier "(" ( ExpressionList )? ")" )?
+//   Clause            ::= NotExpression | PrimaryExpression
+//   PrimaryExpression ::= <INTEGER_LITERAL> | "true" | "false" | Identifier | "this"
+//                       | "new" ( "int" "[" Expression "]" | Identifier "(" ")" ) | "(" Expression ")"
+//
+// The nodes are the ones of the original productions: the first Clause or PrimaryExpression becomes the first child
+// of the node the operator chooses. The language and the trees are the same; the message of a syntax error is not
+// the one of the generated parser, which has the expected tokens of the state it stopped in, so a caller that
+// reports it parses the input again with the generated parser.
+
+public class ExpressionParser implements MiniJavaParserConstants {
+
+    // The kinds of the tokens that the grammar has no name for
+    protected static final int COMMA = DfaLexer.singleKind(',');
+    protected static final int TIMES = DfaLexer.singleKind('*');
+
+    protected TokenArray tokens;
+    protected int position;         // the next token to read, never a comment
+    protected boolean compact;      // whether the nodes are built as CompactTree makes them (--compact-tree)
+
+    public ExpressionParser(TokenArray tokens) {
+        this(tokens, 0);
+    }
+
+    // Starts reading at the given token
+    public ExpressionParser(TokenArray tokens, int position) {
+        this.tokens = tokens;
+        this.position = skipSpecials(position);
+    }
+
+    public TokenArray getTokens() {
+        return this.tokens;
+    }
+
+    public int getPosition() {
+        return this.position;
+    }
+
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    // The first token at or after the given one that is not a comment; the end of the input is never a comment
+    protected int skipSpecials(int token) {
+        while(this.tokens.isSpecial(token)) {
+            token++;
+        }
+        return token;
+    }
+
+    // The kind of the next token
+    protected int next() {
+        return this.tokens.getKind(this.position);
+    }
+
+    // The kind of the token the given number of tokens ahead, 1 for the next one
+    protected int peek(int ahead) {
+        int token = this.position;
+
+        for(int i = 1; i < ahead && this.tokens.getKind(token) != EOF; i++) {
+            token = skipSpecials(token + 1);
+        }
+        return this.tokens.getKind(token);
+    }
+
+    // Reads the next token, which must be of the given kind, into a NodeToken as JTBToolkit makes it
+    protected NodeToken consume(int kind) throws ParseException {
+        int token = this.position;
+
+        if(this.tokens.getKind(token) != kind) {
+            throw error();
+        }
+
+        if(this.tokens.getKind(token) != EOF) {
+            this.position = skipSpecials(token + 1);
+        }
+
+        String image = this.tokens.getImage(token);
+        if(kind == IDENTIFIER || kind == INTEGER_LITERAL) {
+            image = image.intern();
+        }
+
+        return new NodeToken(image, kind, this.tokens.getBeginLine(token), this.tokens.getBeginColumn(token), this.tokens.getEndLine(token), this.tokens.getEndColumn(token));
+    }
+
+    // Same for a token that is not the first child of its node: when the nodes are compact, a token with a fixed image
+    // is the shared one of its kind, and no NodeToken is made for it
+    protected NodeToken consumeFixed(int kind) throws ParseException {
+        NodeToken shared = this.compact ? CompactTree.fixed(kind) : null;
+
+        if(shared == null) {
+            return consume(kind);
+        }
+
+        if(this.tokens.getKind(this.position) != kind) {
+            throw error();
+        }
+
+        if(kind != EOF) {
+            this.position = skipSpecials(this.position + 1);
+        }
+        return shared;
+    }
+
+    // The list once all of its nodes are added: exactly as long as it is, a CompactVector when the nodes are compact
+    protected NodeListOptional complete(NodeListOptional list) {
+        if(this.compact) {
+            list.nodes = new CompactVector<Node>(list.nodes);
+        }
+        else {
+            list.nodes.trimToSize();
+        }
+        return list;
+    }
+
+    // The error at the next token
+    protected ParseException error() {
+        int token = this.position;
+
+        return new ParseException("Encountered \"" + this.tokens.getImage(token) + "\" at line " + this.tokens.getBeginLine(token) + ", column " + this.tokens.getBeginColumn(token) + ".");
+    }
+
+    /**
+     * f0 -> AndExpression()
+     *       | CompareExpression()
+     *       | PlusExpression()
+     *       | MinusExpression()
+     *       | TimesExpression()
+     *       | ArrayLookup()
+     *       | ArrayLength()
+     *       | MessageSend()
+     *       | Clause()
+     */
+    public Expression Expression() throws ParseException {
+        if(next() == NOT) {
+            Clause clause = new Clause(new NodeChoice(NotExpression(), 0));
+
+            if(next() == AND) {
+                return new Expression(new NodeChoice(AndExpression(clause), 0));
+            }
+            return new Expression(new NodeChoice(clause, 8));
+        }
+
+        PrimaryExpression primary = PrimaryExpression();
+        int operator = next();
+
+        // The kind of "*" is looked up, so it cannot be a case of the switch
+        if(operator == TIMES) {
+            return new Expression(new NodeChoice(new TimesExpression(primary, consumeFixed(TIMES), PrimaryExpression()), 4));
+        }
+
+        switch(operator) {
+            case AND:
+                return new Expression(new NodeChoice(AndExpression(new Clause(new NodeChoice(primary, 1))), 0));
+            case LT:
+                return new Expression(new NodeChoice(new CompareExpression(primary, consumeFixed(LT), PrimaryExpression()), 1));
+            case PLUS:
+                return new Expression(new NodeChoice(new PlusExpression(primary, consumeFixed(PLUS), PrimaryExpression()), 2));
+            case MINUS:
+                return new Expression(new NodeChoice(new MinusExpression(primary, consumeFixed(MINUS), PrimaryExpression()), 3));
+            case LSQPAREN:
+                return new Expression(new NodeChoice(new ArrayLookup(primary, consumeFixed(LSQPAREN), PrimaryExpression(), consumeFixed(RSQPAREN)), 5));
+            case DOT:
+                if(peek(2) == LENGTH) {
+                    return new Expression(new NodeChoice(new ArrayLength(primary, consumeFixed(DOT), consumeFixed(LENGTH)), 6));
+                }
+                if(peek(2) == IDENTIFIER && peek(3) == LPAREN) {
+                    return new Expression(new NodeChoice(MessageSend(primary, consumeFixed(DOT)), 7));
+                }
+                // The "." is left to what follows the expression, which does not take it either
+                return new Expression(new NodeChoice(new Clause(new NodeChoice(primary, 1)), 8));
+            default:
+                return new Expression(new NodeChoice(new Clause(new NodeChoice(primary, 1)), 8));
+        }
+    }
+
+    // The rest of an AndExpression after its first Clause
+    protected AndExpression AndExpression(Clause clause) throws ParseException {
+        return new AndExpression(clause, consumeFixed(AND), Clause());
+    }
+
+    // The rest of a MessageSend after its PrimaryExpression and its "."
+    protected MessageSend MessageSend(PrimaryExpression primary, NodeToken dot) throws ParseException {
+        Identifier identifier = Identifier();
+        NodeToken open = consumeFixed(LPAREN);
+        NodeOptional arguments = new NodeOptional();
+
+        if(startsExpression(next())) {
+            arguments.addNode(ExpressionList());
+        }
+
+        return new MessageSend(primary, dot, identifier, open, arguments, consumeFixed(RPAREN));
+    }
+
+    /**
+     * f0 -> Expression()
+     * f1 -> ExpressionTail()
+     */
+    public ExpressionList ExpressionList() throws ParseException {
+        Expression first = Expression();
+        NodeListOptional terms = new NodeListOptional();
+
+        while(next() == COMMA) {
+            NodeToken comma = consume(COMMA);
+            terms.addNode(new ExpressionTerm(comma, Expression()));
+        }
+
+        return new ExpressionList(first, new ExpressionTail(complete(terms)));
+    }
+
+    // Whether a token of the given kind starts an expression
+    protected static boolean startsExpression(int kind) {
+        switch(kind) {
+            case LPAREN:
+            case NOT:
+            case FALSE:
+            case NEW:
+            case THIS:
+            case TRUE:
+            case INTEGER_LITERAL:
+            case IDENTIFIER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * f0 -> NotExpression()
+     *       | PrimaryExpression()
+     */
+    public Clause Clause() throws ParseException {
+        if(next() == NOT) {
+            return new Clause(new NodeChoice(NotExpression(), 0));
+        }
+        return new Clause(new NodeChoice(PrimaryExpression(), 1));
+    }
+
+    /**
+     * f0 -> IntegerLiteral()
+     *       | TrueLiteral()
+     *       | FalseLiteral()
+     *       | Identifier()
+     *       | ThisExpression()
+     *       | ArrayAllocationExpression()
+     *       | AllocationExpression()
+     *       | BracketExpression()
+     */
+    public PrimaryExpression PrimaryExpression() throws ParseException {
+        switch(next()) {
+            case INTEGER_LITERAL:
+                return new PrimaryExpression(new NodeChoice(new IntegerLiteral(consume(INTEGER_LITERAL)), 0));
+            case TRUE:
+                return new PrimaryExpression(new NodeChoice(new TrueLiteral(consume(TRUE)), 1));
+            case FALSE:
+                return new PrimaryExpression(new NodeChoice(new FalseLiteral(consume(FALSE)), 2));
+            case IDENTIFIER:
+                return new PrimaryExpression(new NodeChoice(Identifier(), 3));
+            case THIS:
+                return new PrimaryExpression(new NodeChoice(new ThisExpression(consume(THIS)), 4));
+            case NEW:
+                NodeToken keyword = consume(NEW);
+
+                if(next() == INTEGER) {
+                    NodeToken type = consumeFixed(INTEGER);
+                    NodeToken open = consumeFixed(LSQPAREN);
+                    Expression size = Expression();
+                    return new PrimaryExpression(new NodeChoice(new ArrayAllocationExpression(keyword, type, open, size, consumeFixed(RSQPAREN)), 5));
+                }
+
+                Identifier identifier = Identifier();
+                NodeToken open = consumeFixed(LPAREN);
+                return new PrimaryExpression(new NodeChoice(new AllocationExpression(keyword, identifier, open, consumeFixed(RPAREN)), 6));
+            case LPAREN:
+                NodeToken left = consume(LPAREN);
+                Expression expression = Expression();
+                return new PrimaryExpression(new NodeChoice(new BracketExpression(left, expression, consumeFixed(RPAREN)), 7));
+            default:
+                throw error();
+        }
+    }
+
+    /**
+     * f0 -> <IDENTIFIER>
+     */
+    public Identifier Identifier() throws ParseException {
+        return new Identifier(consume(IDENTIFIER));
+    }
+
+    /**
+     * f0 -> "!"
+     * f1 -> Clause()
+     */
+    public NotExpression NotExpression() throws ParseException {
+        NodeToken not = consume(NOT);
+        return new NotExpression(not, Clause());
+    }
+}
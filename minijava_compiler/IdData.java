@@ -1,17 +1,19 @@
 // Class to store the basic info for every Identifier (i.e variables, arguments etc.)
 
 public class IdData extends Data{
-    protected String type;
+    protected DataType type;
     protected boolean initialized;
+    protected int argumentIndex;    // its position in the arguments of its method, -1 if it is no argument
 
-    public IdData(String type, boolean initialized, String name, int offset) {
+    public IdData(DataType type, boolean initialized, String name, int offset) {
         this.type = type;
         this.name = name;
         this.initialized = initialized;
         this.offset = offset;
+        this.argumentIndex = -1;
     }
 
-    public String getType() {
+    public DataType getType() {
         return this.type;
     }
 
@@ -22,4 +24,12 @@ public class IdData extends Data{
     public void setInitialized(boolean initialized) {
         this.initialized = initialized; 
     }
+
+    public int getArgumentIndex() {
+        return this.argumentIndex;
+    }
+
+    public void setArgumentIndex(int argumentIndex) {
+        this.argumentIndex = argumentIndex;
+    }
 }
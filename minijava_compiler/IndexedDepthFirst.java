@@ -0,0 +1,33 @@
+import syntaxtree.*;
+import visitor.*;
+
+// GJDepthFirst with the lists of children walked by index instead of through an Enumeration, so that walking a list
+// makes no garbage (and takes no lock on the CompactVectors of a compacted tree, see CompactTree).
+// The results are the ones of GJDepthFirst: the result of the only child of a list of one, null otherwise.
+
+class IndexedDepthFirst<R, A> extends GJDepthFirst<R, A> {
+
+    public R visit(NodeList n, A argu) throws Exception {
+        return visitAll(n, argu);
+    }
+
+    public R visit(NodeListOptional n, A argu) throws Exception {
+        return visitAll(n, argu);
+    }
+
+    public R visit(NodeSequence n, A argu) throws Exception {
+        return visitAll(n, argu);
+    }
+
+    protected R visitAll(NodeListInterface n, A argu) throws Exception {
+        int size = n.size();
+
+        if(size == 1) {
+            return n.elementAt(0).accept(this, argu);
+        }
+        for(int i = 0; i < size; i++) {
+            n.elementAt(i).accept(this, argu);
+        }
+        return null;
+    }
+}
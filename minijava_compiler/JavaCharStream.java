@@ -80,15 +80,43 @@ class JavaCharStream
   protected int nextCharInd = -1;
   protected int inBuf = 0;
   protected int tabSize = 8;
+  /** The characters of nextCharBuf after nextCharInd and before plainEnd are no backslashes. */
+  protected int plainEnd = 0;
+  /** The characters of the comment skipComment() is skipping that nextCharBuf may no longer hold. */
+  protected char[] skipped;
+  protected int skippedCount = 0;
 
-  protected void setTabSize(int i) { tabSize = i; }
+  /**
+   * Lazy positions (see setLazyPositions): the line starts and the tabs of the input,
+   * null when a line and a column are kept for every buffered character.
+   */
+  protected LineMap lineMap;
+  /** Number of input characters read before nextCharBuf[0]. */
+  protected int charsBefore = 0;
+  /**
+   * Input characters minus buffered characters so far. A unicode escape is one buffered character
+   * for six or more input characters, and the end of the input can take a buffered character of its own.
+   * shiftIndex[i] is the first buffered character (counted from the start) whose input offset is
+   * its index plus shiftValue[i].
+   */
+  protected int shift = 0;
+  protected int[] shiftIndex;
+  protected int[] shiftValue;
+  protected int shiftCount = 0;
+
+  protected void setTabSize(int i)
+  {
+    tabSize = i;
+    if (lineMap != null)
+      lineMap.setTabSize(i);
+  }
   protected int getTabSize(int i) { return tabSize; }
 
   protected void ExpandBuff(boolean wrapAround)
   {
     char[] newbuffer = new char[bufsize + 2048];
-    int newbufline[] = new int[bufsize + 2048];
-    int newbufcolumn[] = new int[bufsize + 2048];
+    int newbufline[] = (lineMap == null) ? new int[bufsize + 2048] : null;
+    int newbufcolumn[] = (lineMap == null) ? new int[bufsize + 2048] : null;
 
     try
     {
@@ -98,13 +126,16 @@ class JavaCharStream
         System.arraycopy(buffer, 0, newbuffer, bufsize - tokenBegin, bufpos);
         buffer = newbuffer;
 
-        System.arraycopy(bufline, tokenBegin, newbufline, 0, bufsize - tokenBegin);
-        System.arraycopy(bufline, 0, newbufline, bufsize - tokenBegin, bufpos);
-        bufline = newbufline;
+        if (lineMap == null)
+        {
+          System.arraycopy(bufline, tokenBegin, newbufline, 0, bufsize - tokenBegin);
+          System.arraycopy(bufline, 0, newbufline, bufsize - tokenBegin, bufpos);
+          bufline = newbufline;
 
-        System.arraycopy(bufcolumn, tokenBegin, newbufcolumn, 0, bufsize - tokenBegin);
-        System.arraycopy(bufcolumn, 0, newbufcolumn, bufsize - tokenBegin, bufpos);
-        bufcolumn = newbufcolumn;
+          System.arraycopy(bufcolumn, tokenBegin, newbufcolumn, 0, bufsize - tokenBegin);
+          System.arraycopy(bufcolumn, 0, newbufcolumn, bufsize - tokenBegin, bufpos);
+          bufcolumn = newbufcolumn;
+        }
 
         bufpos += (bufsize - tokenBegin);
     }
@@ -113,11 +144,14 @@ class JavaCharStream
         System.arraycopy(buffer, tokenBegin, newbuffer, 0, bufsize - tokenBegin);
         buffer = newbuffer;
 
-        System.arraycopy(bufline, tokenBegin, newbufline, 0, bufsize - tokenBegin);
-        bufline = newbufline;
+        if (lineMap == null)
+        {
+          System.arraycopy(bufline, tokenBegin, newbufline, 0, bufsize - tokenBegin);
+          bufline = newbufline;
 
-        System.arraycopy(bufcolumn, tokenBegin, newbufcolumn, 0, bufsize - tokenBegin);
-        bufcolumn = newbufcolumn;
+          System.arraycopy(bufcolumn, tokenBegin, newbufcolumn, 0, bufsize - tokenBegin);
+          bufcolumn = newbufcolumn;
+        }
 
         bufpos -= tokenBegin;
       }
@@ -135,7 +169,10 @@ class JavaCharStream
   {
     int i;
     if (maxNextCharInd == 4096)
-      maxNextCharInd = nextCharInd = 0;
+    {
+      maxNextCharInd = nextCharInd = plainEnd = 0;
+      charsBefore += 4096;
+    }
 
     try {
       if ((i = inputStream.read(nextCharBuf, maxNextCharInd,
@@ -149,16 +186,21 @@ class JavaCharStream
       return;
     }
     catch(java.io.IOException e) {
+      if (lineMap != null)
+        --nextCharInd; // nothing was read, keep inputOffset() on the last character
+
       if (bufpos != 0)
       {
         --bufpos;
         backup(0);
       }
-      else
+      else if (lineMap == null)
       {
         bufline[bufpos] = line;
         bufcolumn[bufpos] = column;
       }
+      else
+        addShift(inputOffset() - shift + 1, -1); // the slot stands for the end of the input, at the last character
       throw e;
     }
   }
@@ -212,6 +254,20 @@ class JavaCharStream
   }
 
   protected void UpdateLineColumn(char c)
+  {
+    if (lineMap != null)
+    {
+      UpdateLineMap(c);
+      return;
+    }
+
+    MoveLineColumn(c);
+    bufline[bufpos] = line;
+    bufcolumn[bufpos] = column;
+  }
+
+  /** Move the line and the column on past a character, without a buffered character to keep them for. */
+  protected void MoveLineColumn(char c)
   {
     column++;
 
@@ -246,9 +302,128 @@ class JavaCharStream
       default :
         break;
     }
+  }
 
-    bufline[bufpos] = line;
-    bufcolumn[bufpos] = column;
+  /** Lazy positions: record where the lines start and where the tabs are instead. */
+  protected void UpdateLineMap(char c)
+  {
+    int offset = inputOffset();
+
+    if (prevCharIsLF)
+    {
+      prevCharIsLF = false;
+      lineMap.addLineStart(offset);
+    }
+    else if (prevCharIsCR)
+    {
+      prevCharIsCR = false;
+      if (c == '\n')
+        prevCharIsLF = true;
+      else
+        lineMap.addLineStart(offset);
+    }
+
+    switch (c)
+    {
+      case '\r' :
+        prevCharIsCR = true;
+        break;
+      case '\n' :
+        prevCharIsLF = true;
+        break;
+      case '\t' :
+        lineMap.addTab(offset);
+        break;
+      default :
+        break;
+    }
+  }
+
+  /** @return offset in the input of the last character read from it */
+  protected int inputOffset()
+  {
+    return charsBefore + nextCharInd;
+  }
+
+  /** From the buffered character first on, input offsets are ahead of buffered ones by amount more. */
+  protected void addShift(int first, int amount)
+  {
+    if (shiftIndex == null)
+    {
+      shiftIndex = new int[16];
+      shiftValue = new int[16];
+    }
+    else if (shiftCount == shiftIndex.length)
+    {
+      shiftIndex = java.util.Arrays.copyOf(shiftIndex, shiftCount * 2);
+      shiftValue = java.util.Arrays.copyOf(shiftValue, shiftCount * 2);
+    }
+
+    shift += amount;
+    shiftIndex[shiftCount] = first;
+    shiftValue[shiftCount++] = shift;
+  }
+
+  /** @return offset in the input of the buffered character that is back characters before the last one */
+  protected int inputOffset(int back)
+  {
+    int index = inputOffset() - shift - back;
+
+    if (shiftCount == 0 || index < shiftIndex[0])
+      return index;
+
+    int low = 0, high = shiftCount - 1;
+    while (low < high)
+    {
+      int middle = (low + high + 1) >>> 1;
+      if (shiftIndex[middle] <= index)
+        low = middle;
+      else
+        high = middle - 1;
+    }
+
+    return index + shiftValue[low];
+  }
+
+  /** @return how many buffered characters the token begins before bufpos */
+  protected int tokenLength()
+  {
+    return (bufpos >= tokenBegin) ? bufpos - tokenBegin : bufsize - tokenBegin + bufpos;
+  }
+
+  /**
+   * Work out the line and the column of a character only when they are asked for, from the
+   * offsets where the lines start, instead of keeping them for every buffered character.
+   * Must be called before the first character is read; the positions then count from the start line and column.
+   */
+  public void setLazyPositions()
+  {
+    if (nextCharInd != -1)
+      throw new IllegalStateException("Lazy positions must be set before reading");
+
+    lineMap = new LineMap();
+    lineMap.setTabSize(tabSize);
+    if (line != 1 || column != 0)
+      lineMap.adjust(0, line, column + 1);
+    bufline = null;
+    bufcolumn = null;
+  }
+
+  /** @return true if positions are worked out lazily */
+  public boolean getLazyPositions()
+  {
+    return lineMap != null;
+  }
+
+  /** Look for the next backslash in the characters read into nextCharBuf but not taken yet. */
+  protected void ScanPlain()
+  {
+    int i = nextCharInd + 1;
+
+    while (i < maxNextCharInd && nextCharBuf[i] != '\\')
+      i++;
+
+    plainEnd = i;
   }
 
 /** Read a character. */
@@ -264,6 +439,23 @@ class JavaCharStream
       return buffer[bufpos];
     }
 
+    // Almost no input has unicode escapes: a character that is not a backslash is taken as it is
+    if (nextCharInd + 1 < plainEnd && bufpos + 1 < available)
+    {
+      char c = buffer[++bufpos] = nextCharBuf[++nextCharInd];
+      UpdateLineColumn(c);
+      return c;
+    }
+
+    return readCharWithEscapes();
+  }
+
+  /** Read a character that may be (or start) a unicode escape, or that needs more input or buffer. */
+  protected char readCharWithEscapes() throws java.io.IOException
+  {
+    if (nextCharInd + 1 >= plainEnd)
+      ScanPlain();
+
     char c;
 
     if (++bufpos == available)
@@ -312,22 +504,36 @@ class JavaCharStream
       }
 
       // Here, we have seen an odd number of backslash's followed by a 'u'
+      int firstU = inputOffset(), lastU = -1;
       try
       {
         while ((c = ReadByte()) == 'u')
           ++column;
 
+        lastU = inputOffset() - 1;
+
         buffer[bufpos] = c = (char)(hexval(c) << 12 |
                                     hexval(ReadByte()) << 8 |
                                     hexval(ReadByte()) << 4 |
                                     hexval(ReadByte()));
 
         column += 4;
+
+        if (lineMap != null)
+          addShift(firstU - shift, inputOffset() - firstU + 1); // the escape itself stays at its backslash
       }
       catch(java.io.IOException e)
       {
-        throw new Error("Invalid escape character at line " + line +
-                                         " column " + column + ".");
+        if (lineMap != null)
+        {
+          if (lastU < 0)
+            lastU = inputOffset();
+          line = lineMap.getLine(lastU);
+          column = lineMap.getColumn(lastU);
+        }
+        // A lexical error of the file, reported as the token manager reports its own
+        throw new TokenMgrError("Invalid escape character at line " + line +
+                                         " column " + column + ".", TokenMgrError.LEXICAL_ERROR);
       }
 
       if (backSlashCnt == 1)
@@ -345,12 +551,257 @@ class JavaCharStream
     }
   }
 
+  /**
+   * Skip the rest of a comment (--drop-comments), after its '/' was read by BeginToken().
+   * Returns false, with the '/' still the last character read, if the next character does not start a comment,
+   * or if the comment is "/**" followed by a "/" (see startsEmptyComment()).
+   * The characters of the comment are taken straight out of nextCharBuf, without going into the buffer, and
+   * only the line and the column (or the line starts) move on past them, so the comment costs neither a
+   * buffered character nor a line and a column per character, and a long one no longer makes the buffer grow.
+   * They are kept aside only where nextCharBuf would lose them (before it is filled again, and around an escape),
+   * for the message of a comment the input ends in, which is the lexical error the token manager reports.
+   */
+  public boolean skipComment()
+  {
+    char c;
+
+    try
+    {
+      c = readChar();
+    }
+    catch (java.io.IOException e)
+    {
+      return false;
+    }
+
+    if (c != '/' && c != '*')
+    {
+      backup(1);
+      return false;
+    }
+
+    skippedCount = 0;
+    keepSkipped('/');
+    keepSkipped(c);
+
+    if (c == '*' && startsEmptyComment())
+    {
+      backup(1);
+      return false;
+    }
+
+    boolean lineComment = (c == '/');
+    boolean star = false;
+    boolean buffered = true; // whether c went through the buffer
+    int run = nextCharInd + 1; // the first character of nextCharBuf not kept aside yet
+
+    tokenBegin = bufpos;
+
+    for (;;)
+    {
+      if (inBuf == 0 && nextCharInd + 1 >= plainEnd)
+      {
+        keepSkipped(nextCharBuf, run, nextCharInd + 1 - run);
+        if (!fillSkipped())
+          throw unterminatedComment(c, buffered);
+        run = nextCharInd + 1;
+      }
+
+      if (inBuf == 0 && nextCharInd + 1 < plainEnd)
+      {
+        c = nextCharBuf[++nextCharInd];
+        buffered = false;
+        if (lineMap != null)
+          UpdateLineMap(c);
+        else
+          MoveLineColumn(c);
+      }
+      else
+      {
+        // A character backed up into the buffer or one at a backslash, read as any other one is
+        try
+        {
+          c = readChar();
+        }
+        catch (java.io.IOException e)
+        {
+          throw unterminatedComment(c, buffered);
+        }
+
+        buffered = true;
+        tokenBegin = bufpos; // the buffer holds one character at a time
+        keepSkipped(c);
+        run = nextCharInd + 1;
+      }
+
+      if (lineComment)
+      {
+        if (c == '\n')
+          return true;
+
+        if (c == '\r')
+        {
+          // A line feed right after it is part of the comment
+          if (inBuf == 0 && nextCharInd + 1 >= plainEnd && !fillSkipped())
+            return true;
+
+          if (inBuf == 0 && nextCharInd + 1 < plainEnd)
+          {
+            if (nextCharBuf[nextCharInd + 1] == '\n')
+            {
+              c = nextCharBuf[++nextCharInd];
+              if (lineMap != null)
+                UpdateLineMap(c);
+              else
+                MoveLineColumn(c);
+            }
+          }
+          else
+          {
+            try
+            {
+              if (readChar() != '\n')
+                backup(1);
+            }
+            catch (java.io.IOException e)
+            {
+              // The input ends after the comment
+            }
+          }
+          return true;
+        }
+      }
+      else if (star && c == '/')
+        return true;
+      else
+        star = (c == '*');
+    }
+  }
+
+  /**
+   * Whether the "/*" just read is followed by a "*" and a "/". The grammar then matches the longest of that
+   * empty comment and of a documentation comment that goes on to the next end of a comment of the input, so the
+   * comment is left to the token manager, which can go back. The characters looked at are backed up either way.
+   */
+  protected boolean startsEmptyComment()
+  {
+    boolean empty = false;
+    int read = 0;
+
+    try
+    {
+      char c = readChar();
+      read++;
+
+      if (c == '*')
+      {
+        c = readChar();
+        read++;
+        empty = (c == '/');
+      }
+    }
+    catch (java.io.IOException e)
+    {
+      // The input ends in the comment, which skipComment() reports
+    }
+
+    backup(read);
+    return empty;
+  }
+
+  /**
+   * Make sure there is a character after nextCharInd in nextCharBuf, and find where the next backslash is,
+   * for skipComment(); returns false at the end of the input. Unlike FillBuff() it leaves the buffer alone.
+   */
+  protected boolean fillSkipped()
+  {
+    if (nextCharInd + 1 >= maxNextCharInd)
+    {
+      if (maxNextCharInd == 4096)
+      {
+        maxNextCharInd = plainEnd = 0;
+        nextCharInd = -1;
+        charsBefore += 4096;
+      }
+
+      try
+      {
+        int i = inputStream.read(nextCharBuf, maxNextCharInd, 4096 - maxNextCharInd);
+
+        if (i == -1)
+        {
+          inputStream.close();
+          return false;
+        }
+        maxNextCharInd += i;
+      }
+      catch (java.io.IOException e)
+      {
+        return false;
+      }
+    }
+
+    ScanPlain();
+    return true;
+  }
+
+  /** Keep characters of the comment being skipped aside. */
+  protected void keepSkipped(char[] chars, int offset, int length)
+  {
+    growSkipped(length);
+    System.arraycopy(chars, offset, skipped, skippedCount, length);
+    skippedCount += length;
+  }
+
+  protected void keepSkipped(char c)
+  {
+    growSkipped(1);
+    skipped[skippedCount++] = c;
+  }
+
+  protected void growSkipped(int more)
+  {
+    if (skipped == null)
+      skipped = new char[Math.max(64, more)];
+    else if (skippedCount + more > skipped.length)
+      skipped = java.util.Arrays.copyOf(skipped, Math.max(skippedCount + more, 2 * skipped.length));
+  }
+
+  /**
+   * The lexical error of a comment the input ends in, whose last character was the given one: the error
+   * the token manager reports when it scans the comment to the end of the input. That character is at the
+   * position kept for it if it went through the buffer (a unicode escape is at its backslash there).
+   */
+  protected TokenMgrError unterminatedComment(char last, boolean buffered)
+  {
+    int errorLine = (lineMap != null || buffered) ? getEndLine() : line;
+    int errorColumn = (lineMap != null || buffered) ? getEndColumn() : column;
+
+    return unterminatedComment(errorLine, errorColumn, new String(skipped, 0, skippedCount), last);
+  }
+
+  /** Same, for a comment with the given characters whose last one is at the given line and column. */
+  protected static TokenMgrError unterminatedComment(int errorLine, int errorColumn, String image, char last)
+  {
+    if (last == '\n' || last == '\r')
+    {
+      errorLine++;
+      errorColumn = 0;
+    }
+    else
+      errorColumn++;
+
+    return new TokenMgrError(true, 0, errorLine, errorColumn, image, last, TokenMgrError.LEXICAL_ERROR);
+  }
+
   @Deprecated
   /**
    * @deprecated
    * @see #getEndColumn
    */
   public int getColumn() {
+    if (lineMap != null)
+      return getEndColumn();
     return bufcolumn[bufpos];
   }
 
@@ -360,26 +811,36 @@ class JavaCharStream
    * @see #getEndLine
    */
   public int getLine() {
+    if (lineMap != null)
+      return getEndLine();
     return bufline[bufpos];
   }
 
 /** Get end column. */
   public int getEndColumn() {
+    if (lineMap != null)
+      return lineMap.getColumn(inputOffset(inBuf));
     return bufcolumn[bufpos];
   }
 
 /** Get end line. */
   public int getEndLine() {
+    if (lineMap != null)
+      return lineMap.getLine(inputOffset(inBuf));
     return bufline[bufpos];
   }
 
 /** @return column of token start */
   public int getBeginColumn() {
+    if (lineMap != null)
+      return lineMap.getColumn(inputOffset(inBuf + tokenLength()));
     return bufcolumn[tokenBegin];
   }
 
 /** @return line number of token start */
   public int getBeginLine() {
+    if (lineMap != null)
+      return lineMap.getLine(inputOffset(inBuf + tokenLength()));
     return bufline[tokenBegin];
   }
 
@@ -391,6 +852,11 @@ class JavaCharStream
       bufpos += bufsize;
   }
 
+/** Constructor for a subclass that keeps its characters elsewhere: no buffers until ReInit. */
+  protected JavaCharStream()
+  {
+  }
+
 /** Constructor. */
   public JavaCharStream(java.io.Reader dstream,
                  int startline, int startcolumn, int buffersize)
@@ -430,13 +896,24 @@ class JavaCharStream
     {
       available = bufsize = buffersize;
       buffer = new char[buffersize];
-      bufline = new int[buffersize];
-      bufcolumn = new int[buffersize];
+      bufline = (lineMap == null) ? new int[buffersize] : null;
+      bufcolumn = (lineMap == null) ? new int[buffersize] : null;
       nextCharBuf = new char[4096];
     }
+    else
+      available = bufsize; // reused buffers are all free again, as in a new stream
     prevCharIsLF = prevCharIsCR = false;
-    tokenBegin = inBuf = maxNextCharInd = 0;
+    tokenBegin = inBuf = maxNextCharInd = plainEnd = 0;
     nextCharInd = bufpos = -1;
+
+    if (lineMap != null)
+    {
+      lineMap = new LineMap();
+      lineMap.setTabSize(tabSize);
+      if (startline != 1 || startcolumn != 1)
+        lineMap.adjust(0, startline, startcolumn);
+      charsBefore = shift = shiftCount = 0;
+    }
   }
 
 /** Reinitialise. */
@@ -562,6 +1039,7 @@ class JavaCharStream
     buffer = null;
     bufline = null;
     bufcolumn = null;
+    skipped = null;
   }
 
   /**
@@ -569,6 +1047,13 @@ class JavaCharStream
    */
   public void adjustBeginLineColumn(int newLine, int newCol)
   {
+    if (lineMap != null)
+    {
+      // The token begin and the input after it are counted from the new position
+      lineMap.adjust(inputOffset(inBuf + tokenLength()), newLine, newCol);
+      return;
+    }
+
     int start = tokenBegin;
     int len;
 
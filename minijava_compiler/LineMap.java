@@ -0,0 +1,228 @@
+import java.util.*;
+
+// The positions of a source file, kept as the offsets where its lines start and the offsets of its tabs instead of a
+// line and a column for every character. The line and the column of an offset are worked out only when asked for,
+// with the same rules as JavaCharStream: a line starts after a '\n', or after a '\r' that is not followed by a '\n',
+// columns start at 1 and a tab moves the column to the next multiple of the tab size.
+// The offsets are given in increasing order while the file is read.
+// The positions can be moved from an offset on (see adjust), as JavaCharStream.adjustBeginLineColumn moves them.
+
+public class LineMap {
+    protected int[] lineStarts;     // lineStarts[i] is the offset of the first character of line i + 1
+    protected int lines;
+    protected int[] tabs;           // the offsets of the tabs, in order
+    protected int tabCount;
+    protected int tabSize;
+    protected int lastLine;         // index of the line found by the last lookup, the next one is usually on it too
+
+    // The last column worked out on a line with tabs; the lexer asks for the columns of a line from left to right,
+    // so the next one starts from here instead of from the start of the line
+    protected int columnLine;
+    protected int columnOffset;
+    protected int columnValue;
+    protected int columnTab;        // index of the first tab after columnOffset
+
+    // The adjusted positions, in increasing order of their offsets: from adjustedOffsets[i] on, the lines are
+    // lineDeltas[i] more than counted, and the rest of its line is counted from the column adjustedColumns[i]
+    protected int[] adjustedOffsets;
+    protected int[] adjustedColumns;
+    protected int[] lineDeltas;
+    protected int adjustmentCount;
+
+    public LineMap() {
+        this.lineStarts = new int[256];
+        this.lineStarts[0] = 0;
+        this.lines = 1;
+        this.tabs = new int[16];
+        this.tabCount = 0;
+        this.tabSize = 8;
+        this.lastLine = 0;
+        this.columnLine = -1;
+    }
+
+    // A LineMap of the same lines and tabs as the given one, which it shares while no more are added to either, with
+    // lookups of its own: the lookups move the positions they start from, so a LineMap is not safe for threads
+    public LineMap(LineMap lineMap) {
+        this.lineStarts = lineMap.lineStarts;
+        this.lines = lineMap.lines;
+        this.tabs = lineMap.tabs;
+        this.tabCount = lineMap.tabCount;
+        this.tabSize = lineMap.tabSize;
+        this.adjustedOffsets = lineMap.adjustedOffsets;
+        this.adjustedColumns = lineMap.adjustedColumns;
+        this.lineDeltas = lineMap.lineDeltas;
+        this.adjustmentCount = lineMap.adjustmentCount;
+        this.lastLine = 0;
+        this.columnLine = -1;
+    }
+
+    public void setTabSize(int tabSize) {
+        this.tabSize = tabSize;
+        this.columnLine = -1;
+    }
+
+    public int getTabSize() {
+        return this.tabSize;
+    }
+
+    // A new line starts at the given offset
+    public void addLineStart(int offset) {
+        if(this.lines == this.lineStarts.length) {
+            this.lineStarts = Arrays.copyOf(this.lineStarts, this.lines * 2);
+        }
+        this.lineStarts[this.lines++] = offset;
+    }
+
+    // There is a tab at the given offset
+    public void addTab(int offset) {
+        if(this.tabCount == this.tabs.length) {
+            this.tabs = Arrays.copyOf(this.tabs, this.tabCount * 2);
+        }
+        this.tabs[this.tabCount++] = offset;
+    }
+
+    // From the given offset on, which must be read already, the characters are counted as JavaCharStream counts them
+    // from its start line and column: the one at the offset is at the given line and column (unless it is a tab, which
+    // goes to the next tab stop), the rest of its line follows it and the next lines are numbered from there.
+    // An adjustment replaces the ones at the same offset or after it.
+    public void adjust(int offset, int line, int column) {
+        while(this.adjustmentCount > 0 && this.adjustedOffsets[this.adjustmentCount - 1] >= offset) {
+            this.adjustmentCount--;
+        }
+
+        if(this.adjustedOffsets == null) {
+            this.adjustedOffsets = new int[4];
+            this.adjustedColumns = new int[4];
+            this.lineDeltas = new int[4];
+        }
+        else if(this.adjustmentCount == this.adjustedOffsets.length) {
+            this.adjustedOffsets = Arrays.copyOf(this.adjustedOffsets, this.adjustmentCount * 2);
+            this.adjustedColumns = Arrays.copyOf(this.adjustedColumns, this.adjustmentCount * 2);
+            this.lineDeltas = Arrays.copyOf(this.lineDeltas, this.adjustmentCount * 2);
+        }
+
+        this.adjustedOffsets[this.adjustmentCount] = offset;
+        this.adjustedColumns[this.adjustmentCount] = column;
+        this.lineDeltas[this.adjustmentCount] = line - (lineIndex(offset) + 1);
+        this.adjustmentCount++;
+        this.columnLine = -1;
+    }
+
+    public int getLineCount() {
+        return this.lines;
+    }
+
+    // The line of the character at the given offset, 1 for the offset -1 (before the first character)
+    public int getLine(int offset) {
+        int adjustment = adjustmentIndex(offset);
+        return lineIndex(offset) + 1 + ((adjustment < 0) ? 0 : this.lineDeltas[adjustment]);
+    }
+
+    // The column of the character at the given offset, 0 for the offset -1 (before the first character)
+    public int getColumn(int offset) {
+        int line = lineIndex(offset);
+        int start = this.lineStarts[line];
+        int before = 0;         // the column of the character before start
+
+        // The line of an adjusted position is counted from there
+        int adjustment = adjustmentIndex(offset);
+        if(adjustment >= 0 && this.adjustedOffsets[adjustment] >= start) {
+            start = this.adjustedOffsets[adjustment];
+            before = this.adjustedColumns[adjustment] - 1;
+        }
+
+        if(this.tabCount == 0 || this.tabs[this.tabCount - 1] < start) {
+            return before + offset - start + 1;
+        }
+
+        // Walk over the tabs of the line up to the offset, every other character is a single column.
+        // previous is the offset after the last character counted and column is the column of that character.
+        int column;
+        int previous;
+        int tab;
+        if(line == this.columnLine && offset >= this.columnOffset && this.columnOffset >= start) {
+            column = this.columnValue;
+            previous = this.columnOffset + 1;
+            tab = this.columnTab;
+        }
+        else {
+            column = before;
+            previous = start;
+            tab = firstTab(start);
+        }
+
+        for(; tab < this.tabCount && this.tabs[tab] <= offset; tab++) {
+            column += this.tabs[tab] - previous;
+            column += this.tabSize - (column % this.tabSize);
+            previous = this.tabs[tab] + 1;
+        }
+        column += offset - previous + 1;
+
+        this.columnLine = line;
+        this.columnOffset = offset;
+        this.columnValue = column;
+        this.columnTab = tab;
+        return column;
+    }
+
+    // The index of the line of the given offset
+    protected int lineIndex(int offset) {
+        int line = this.lastLine;
+
+        if(this.lineStarts[line] <= offset && (line + 1 == this.lines || offset < this.lineStarts[line + 1])) {
+            return line;
+        }
+
+        // The last line that starts at or before the offset
+        int low = 0;
+        int high = this.lines - 1;
+        while(low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if(this.lineStarts[middle] <= offset) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+
+        this.lastLine = low;
+        return low;
+    }
+
+    // The index of the last adjustment at or before the given offset, -1 if there is none
+    protected int adjustmentIndex(int offset) {
+        if(this.adjustmentCount == 0 || offset < this.adjustedOffsets[0]) {
+            return -1;
+        }
+
+        int low = 0;
+        int high = this.adjustmentCount - 1;
+        while(low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if(this.adjustedOffsets[middle] <= offset) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    // The index of the first tab at or after the given offset
+    protected int firstTab(int offset) {
+        int low = 0;
+        int high = this.tabCount;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(this.tabs[middle] < offset) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -1,56 +1,407 @@
 import syntaxtree.*;
 import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 public class Main {
+    protected static ForkJoinPool methodPool;      // Where the method bodies are checked with --method-jobs, and the classes
+                                                   // are parsed with --parallel-parse
+    protected static CheckCache cache;             // Where the results of the checks are kept with --cache
+
     public static void main(String[] args) throws Exception {
 
-        FileInputStream fin = null;
+        Options options = null;
+
+        try{
+            options = Options.parse(args);
+        }
+
+        catch(IllegalArgumentException ex){
+            usage(ex.getMessage());
+        }
+        ArrayList<String> fileNames = options.getFileNames();
+
+        if(options.getMethodJobs() > 1) {
+            methodPool = new ForkJoinPool(options.getMethodJobs());
+        }
+
+        if(options.getCacheDirectory() != null) {
+            cache = new CheckCache(Paths.get(options.getCacheDirectory()), options.getCacheSize());
+        }
+
+        if(options.getJobs() > 1 && fileNames.size() > 1) {
+            int exitStatus = compileParallel(options);
+
+            if(exitStatus != 0) {
+                System.exit(exitStatus);
+            }
+            return;
+        }
+
+        int exitStatus = 0;
+
+        for(int i = 0; i < fileNames.size(); i++) {
+            int status = compile(fileNames.get(i), options, System.out, System.err);
+
+            // A bad file does not stop the rest of them, the program exits with the status of the first failure
+            if(status != 0 && exitStatus == 0) {
+                exitStatus = status;
+            }
+        }
+
+        if(exitStatus != 0) {
+            System.exit(exitStatus);
+        }
+    }
+
+    static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: java Main [--jobs N] [--method-jobs N] [--fused] [--mapped] [--lazy-positions] [--dfa-lexer]");
+        System.err.println("       [--token-array] [--compact-tree] [--streaming] [--cache DIR] [--cache-size MB] [--reuse-parsers]");
+        System.err.println("       [--parallel-parse] [--descent-parser] [--drop-comments] FILE...");
+        System.exit(2);
+    }
+
+    // Runs the whole pipeline (parse, Visitor 1, 2, 3, offsets, print) for a single file.
+    // Every error is reported into the diagnostics of the file; the checks of the file stop at the first one.
+    // Returns 0 if the file passed, otherwise the exit status of the failed check.
+    public static int compile(String fileName, Options options, PrintStream out, PrintStream err) throws Exception {
+        return compile(fileName, options, out, err, null);
+    }
+
+    // Same, and if the file passes, the given session keeps its tree, its symbol table and its method bodies
+    // to check the next version of the file again incrementally (not with --streaming, which keeps no tree)
+    public static int compile(String fileName, Options options, PrintStream out, PrintStream err, CompilerSession session) throws Exception {
 
-        for(int i = 0; i < args.length; i++) {
+        // A file that the same compiler checked before is not checked again (--cache). The file is read once, for its key
+        // and for the check, so the entry is kept for the content that was checked.
+        byte[] source = null;
+        String cacheKey = null;
+        if(cache != null && session == null) {
             try{
-                fin = new FileInputStream(args[i]);
-                MiniJavaParser parser = new MiniJavaParser(fin);
-    
-                Goal root = parser.Goal();
-                System.err.println("Program parsed successfully.");
-    
-                SymbolTable symbolTable = new SymbolTable();
-    
-                // Call Visitor 1 to collect all the new data types and classes and do some necessary checks 
+                source = Files.readAllBytes(Paths.get(fileName));
+                cacheKey = cache.key(source);
+            }
+
+            catch(IOException | InvalidPathException ex){
+                // The check reports it
+            }
+        }
+        if(cacheKey != null) {
+            int cachedStatus = cache.replay(cacheKey, fileName, out, err);
+
+            if(cachedStatus != CheckCache.MISS) {
+                return cachedStatus;
+            }
+        }
+
+        Diagnostics diagnostics = new Diagnostics(fileName);
+        SymbolTable symbolTable = null;
+        int status = 0;
+        boolean parsed = false;                    // Whether the file was parsed
+        String printed = "";                       // What a failed check printed on the output
+        boolean cacheable = true;                  // Whether the result can be kept in the cache
+        InputStream fin = null;
+
+        try{
+            fin = (source != null) ? new ByteArrayInputStream(source) : new FileInputStream(fileName);
+            symbolTable = new SymbolTable(diagnostics);
+
+            if(options.getStreaming()) {
+                // The file is parsed and checked a class at a time, without its whole tree
+                StreamingChecker checker = new StreamingChecker(fileName, source, options, symbolTable);
+                checker.parseDeclarations(fin);
+                err.println("Program parsed successfully.");
+                parsed = true;
+                checker.check();
+            }
+            else {
+                Goal root;
+                boolean compacted = false;                 // Whether the parser built the tree compact already
+
+                if(options.getParallelParse()) {
+                    // The classes of the file are parsed in parallel
+                    root = ParallelParser.parse(fin, options, (methodPool != null) ? methodPool : ForkJoinPool.commonPool());
+                }
+                else if(options.getDescentParser()) {
+                    // The hand-written parser, the generated one for the errors
+                    root = DescentParser.parse(fin, options);
+                    compacted = options.getCompactTree();
+                }
+                else {
+                    MiniJavaParser parser = newParser(fin, options);
+                    root = parser.Goal();
+                }
+                err.println("Program parsed successfully.");
+                parsed = true;
+
+                if(options.getCompactTree() && !compacted) {
+                    CompactTree.compact(root);
+                }
+
+                // Call Visitor 1 to collect all the new data types and classes and do some necessary checks
                 Visitor1 vis1 = new Visitor1(symbolTable);
                 root.accept(vis1, null);
-    
-                // After Visitor 1, we must call Visitor 2 in order to check every data type and conduct some more checks 
-                Visitor2 vis2 = new Visitor2(symbolTable);
-                root.accept(vis2, null);
-    
-                // After Visitor 2, we must call Visitor 3 in order to check for semantic errors (incorrect assignments, allocations, etc.)
-                Visitor3 vis3 = new Visitor3(symbolTable);
-                root.accept(vis3, null);
-    
-                symbolTable.setOffsets();
-    
-                symbolTable.printSymbolTable();
-            }
-    
-            catch(ParseException ex){
-                System.out.println(ex.getMessage());
-            }
-    
-            catch(FileNotFoundException ex){
-                System.err.println(ex.getMessage());
-            }
-    
-            finally{
-    
-                try{
-                    if(fin != null) fin.close();
-                }
-    
-                catch(IOException ex){
-                    System.err.println(ex.getMessage());
+                symbolTable.freezeHierarchy();
+
+                if(options.getFused() || session != null) {
+                    // Visitor 2 collects the signatures and queues the method bodies, then Visitor 3 checks only the bodies
+                    ArrayList<MethodBody> bodies = new ArrayList<MethodBody>();
+                    Visitor2 vis2 = new Visitor2(symbolTable, bodies);
+                    root.accept(vis2, null);
+                    symbolTable.freezeMembers();
+
+                    if(options.getMethodJobs() > 1) {
+                        ParallelChecker checker = new ParallelChecker(symbolTable, (methodPool != null) ? methodPool : ForkJoinPool.commonPool());
+                        checker.checkBodies(bodies);
+                    }
+                    else {
+                        Visitor3 vis3 = new Visitor3(symbolTable);
+                        vis3.checkBodies(bodies);
+                    }
+
+                    if(session != null) {
+                        session.keep(root, symbolTable, bodies);
+                    }
                 }
+                else {
+                    // After Visitor 1, we must call Visitor 2 in order to check every data type and conduct some more checks
+                    Visitor2 vis2 = new Visitor2(symbolTable);
+                    root.accept(vis2, null);
+                    symbolTable.freezeMembers();
+
+                    // After Visitor 2, we must call Visitor 3 in order to check for semantic errors (incorrect assignments, allocations, etc.)
+                    Visitor3 vis3 = new Visitor3(symbolTable);
+                    root.accept(vis3, null);
+                }
+            }
+
+            symbolTable.setOffsets();
+
+            symbolTable.printSymbolTable(out);
+        }
+
+        catch(ParseException ex){
+            printed = ex.getMessage() + System.lineSeparator();
+            out.print(printed);
+
+            // The token after the last one consumed is the one that could not be parsed
+            Token errorToken = (ex.currentToken != null) ? ex.currentToken.next : null;
+            if(errorToken != null) {
+                diagnostics.report(Diagnostic.Severity.ERROR, errorToken.beginLine, errorToken.beginColumn, "Syntax error at \"" + errorToken.image + "\"");
+            }
+            else {
+                diagnostics.report(Diagnostic.Severity.ERROR, -1, -1, "Syntax error");
+            }
+            status = 1;
+        }
+
+        catch(TokenMgrError ex){
+            diagnostics.report(Diagnostic.Severity.ERROR, -1, -1, ex.getMessage());
+            status = 1;
+        }
+
+        catch(SemanticException ex){
+            printed = ex.getNewLine() ? ex.getMessage() + System.lineSeparator() : ex.getMessage();
+            out.print(printed);
+            status = ex.getStatus();
+        }
+
+        catch(FileNotFoundException ex){
+            diagnostics.report(Diagnostic.Severity.ERROR, -1, -1, ex.getMessage());
+            status = 1;
+            cacheable = false;
+        }
+
+        // A bug of the checks on an unusual input must not take the rest of the files down with it
+        catch(RuntimeException | StackOverflowError ex){
+            ex.printStackTrace(err);
+            diagnostics.report(Diagnostic.Severity.ERROR, -1, -1, "Internal error: " + ex);
+            status = 1;
+            cacheable = false;
+        }
+
+        finally{
+
+            try{
+                if(fin != null) fin.close();
+            }
+
+            catch(IOException ex){
+                err.println(ex.getMessage());
+            }
+        }
+
+        if(cacheKey != null && cacheable) {
+            try{
+                cache.store(cacheKey, status, parsed, printed, diagnostics, (status == 0) ? symbolTable : null);
+            }
+
+            catch(IOException ex){
+                // The file is checked again next time
+            }
+        }
+
+        diagnostics.print(err);
+        err.println(fileName + ": " + (diagnostics.hasErrors() ? "failed" : "passed"));
+
+        return status;
+    }
+
+    // A parser for the open file (or the bytes read from it): over the tokens scanned up front with --token-array (if the file is plain ASCII and has
+    // no lexical error), over the mapped file with --mapped (if it is plain ASCII), otherwise over the stream,
+    // keeping only the line starts of the file with --lazy-positions; its tokens come from DfaTokenManager with --dfa-lexer.
+    // With --reuse-parsers the parser, its token manager and its stream are the ones of the thread, reset for the file.
+    // With --drop-comments the lexers skip the comments without making Tokens for them.
+    public static MiniJavaParser newParser(InputStream fin, Options options) throws IOException {
+        ParserPool pool = options.getReuseParsers() ? ParserPool.get() : null;
+        JavaCharStream stream = null;
+        InputStream input = fin;
+
+        if(options.getTokenArray()) {
+            byte[] source = fin.readAllBytes();
+            TokenArray tokens = TokenArray.lex(source, options.getDropComments());
+
+            if(tokens != null) {
+                TokenArrayTokenManager tokenManager = new TokenArrayTokenManager(tokens);
+                return (pool != null) ? pool.parser(tokenManager) : new MiniJavaParser(tokenManager);
+            }
+            input = new ByteArrayInputStream(source);
+        }
+        else if(options.getMapped()) {
+            if(fin instanceof FileInputStream) {
+                stream = MappedCharStream.map(((FileInputStream) fin).getChannel());
+            }
+            else {
+                // Already read: the bytes are wrapped instead
+                byte[] source = fin.readAllBytes();
+                stream = MappedCharStream.wrap(ByteBuffer.wrap(source));
+                input = new ByteArrayInputStream(source);
+            }
+        }
+
+        if(pool != null) {
+            return pool.parser((stream != null) ? stream : pool.stream(input, options.getLazyPositions()), options.getDfaLexer(), options.getDropComments());
+        }
+
+        if(stream == null) {
+            stream = new JavaCharStream(input, 1, 1);
+
+            if(options.getLazyPositions()) {
+                stream.setLazyPositions();
+            }
+        }
+
+        if(options.getDfaLexer()) {
+            return new MiniJavaParser(new DfaTokenManager(stream, options.getDropComments()));
+        }
+        if(options.getDropComments()) {
+            return new MiniJavaParser(new CommentDroppingTokenManager(stream));
+        }
+        return new MiniJavaParser(new MiniJavaParserTokenManager(stream));
+    }
+
+    // Checks the files on a work-stealing pool of the given size.
+    // Every file writes into its own buffers, which are then printed in the order the files were given,
+    // so the output is exactly the same as the one of a sequential run.
+    // Returns the exit status of the first file that failed, 0 if all of them passed.
+    public static int compileParallel(Options options) throws Exception {
+
+        ArrayList<String> fileNames = options.getFileNames();
+        int jobs = options.getJobs();
+        ExecutorService pool = Executors.newWorkStealingPool(jobs);
+        ArrayDeque<Future<Compilation>> pending = new ArrayDeque<Future<Compilation>>();
+
+        // Do not run too far ahead of the file that is printed next, so that memory stays bounded
+        int window = jobs * 4;
+        int submitted = 0;
+        int exitStatus = 0;
+
+        try{
+            for(int i = 0; i < fileNames.size(); i++) {
+
+                while(submitted < fileNames.size() && submitted - i < window) {
+                    pending.add(pool.submit(new Compilation(fileNames.get(submitted), options)));
+                    submitted++;
+                }
+
+                Compilation compilation = pending.poll().get();
+                compilation.flush();
+
+                if(compilation.getFailure() != null) {
+                    compilation.rethrow();
+                }
+
+                if(compilation.getStatus() != 0 && exitStatus == 0) {
+                    exitStatus = compilation.getStatus();
+                }
+            }
+        }
+
+        finally{
+            pool.shutdownNow();
+        }
+
+        return exitStatus;
+    }
+
+    // The work of a single file when files are checked in parallel
+    static class Compilation implements Callable<Compilation> {
+        protected String fileName;
+        protected Options options;
+        protected ByteArrayOutputStream outBuffer;
+        protected ByteArrayOutputStream errBuffer;
+        protected int status;
+        protected Throwable failure;
+
+        public Compilation(String fileName, Options options) {
+            this.fileName = fileName;
+            this.options = options;
+            this.outBuffer = new ByteArrayOutputStream();
+            this.errBuffer = new ByteArrayOutputStream();
+        }
+
+        public Compilation call() {
+            PrintStream out = new PrintStream(this.outBuffer, true);
+            PrintStream err = new PrintStream(this.errBuffer, true);
+
+            try{
+                this.status = compile(this.fileName, this.options, out, err);
+            }
+
+            catch(Throwable ex){
+                this.failure = ex;
+            }
+
+            out.flush();
+            err.flush();
+            return this;
+        }
+
+        public int getStatus() {
+            return this.status;
+        }
+
+        public Throwable getFailure() {
+            return this.failure;
+        }
+
+        // Print whatever the file produced, the output first and then the errors
+        public void flush() throws IOException {
+            this.outBuffer.writeTo(System.out);
+            System.out.flush();
+            this.errBuffer.writeTo(System.err);
+            System.err.flush();
+        }
+
+        // Throw again an unexpected failure of the file, as the sequential run would do
+        public void rethrow() throws Exception {
+            if(this.failure instanceof Error) {
+                throw (Error) this.failure;
             }
+            throw (Exception) this.failure;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,323 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+// A JavaCharStream that reads the characters straight out of a file mapped in memory (--mapped).
+// JavaCharStream decodes the file through a Reader into a ring buffer and keeps a line and a column for every buffered
+// character; here a character is a byte of the mapping, the current token is a range of offsets and the positions
+// come from a LineMap built while the file is checked before the parse.
+// Only plain ASCII files without backslashes are read this way, so that a byte is always a character and there are
+// no unicode escapes. For any other file map() returns null and the parser reads the file through JavaCharStream.
+// The positions are the lineMap of JavaCharStream, so its setTabSize() applies to them as well. A stream given a
+// Reader by ReInit() reads it the same way if it is plain ASCII without backslashes, and otherwise leaves it to
+// JavaCharStream, whose buffers are not used until then.
+
+public class MappedCharStream extends JavaCharStream {
+    protected ByteBuffer input;     // null while the characters are read by JavaCharStream
+    protected int length;
+    protected int position;         // offset of the last character read, -1 before the first one
+    protected int begin;            // offset of the first character of the current token
+    protected char[] image;         // where the characters of a token image are gathered
+
+    protected MappedCharStream(ByteBuffer input, LineMap lineMap) {
+        this.image = new char[64];
+        read(input, lineMap);
+    }
+
+    // Reads the characters of the buffer from the first one
+    protected void read(ByteBuffer input, LineMap lineMap) {
+        lineMap.setTabSize(this.tabSize);
+
+        this.input = input;
+        this.length = input.limit();
+        this.position = -1;
+        this.begin = 0;
+        this.lineMap = lineMap;
+    }
+
+    // Maps the whole file of the channel, or returns null if it cannot be read this way
+    public static MappedCharStream map(FileChannel channel) throws IOException {
+        long size = channel.size();
+
+        if(size > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+    }
+
+    // Reads the characters of the buffer (from its position to its limit), or returns null if they are not plain ASCII.
+    // The line starts and the tabs are collected in the same pass.
+    public static MappedCharStream wrap(ByteBuffer input) {
+        ByteBuffer source = input.slice();
+        LineMap lineMap = scan(source);
+        return (lineMap != null) ? new MappedCharStream(source, lineMap) : null;
+    }
+
+    // The line starts and the tabs of the whole buffer, or null if it is not plain ASCII without backslashes
+    protected static LineMap scan(ByteBuffer source) {
+        LineMap lineMap = new LineMap();
+        int length = source.limit();
+        boolean previousIsCR = false;
+
+        for(int i = 0; i < length; i++) {
+            byte c = source.get(i);
+
+            if(c < 0 || c == '\\') {
+                return null;
+            }
+
+            if(previousIsCR && c != '\n') {
+                lineMap.addLineStart(i);
+            }
+            previousIsCR = (c == '\r');
+
+            if(c == '\n') {
+                lineMap.addLineStart(i + 1);
+            }
+            else if(c == '\t') {
+                lineMap.addTab(i);
+            }
+        }
+
+        if(previousIsCR) {
+            lineMap.addLineStart(length);
+        }
+
+        return lineMap;
+    }
+
+    public LineMap getLineMap() {
+        return this.lineMap;
+    }
+
+    // At the end of the file the token is left on the last character, as JavaCharStream does
+    @Override
+    public char BeginToken() throws IOException {
+        if(this.input == null) {
+            return super.BeginToken();
+        }
+
+        if(this.position + 1 >= this.length) {
+            this.begin = this.position;
+            throw new IOException();
+        }
+
+        this.begin = ++this.position;
+        return (char) this.input.get(this.position);
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        if(this.input == null) {
+            return super.readChar();
+        }
+
+        if(this.position + 1 >= this.length) {
+            throw new IOException();
+        }
+
+        return (char) this.input.get(++this.position);
+    }
+
+    @Override
+    public void backup(int amount) {
+        if(this.input == null) {
+            super.backup(amount);
+            return;
+        }
+
+        this.position -= amount;
+    }
+
+    // The comment is skipped over the mapping, whose line starts are all known already, so nothing moves but the position
+    @Override
+    public boolean skipComment() {
+        if(this.input == null) {
+            return super.skipComment();
+        }
+
+        int start = this.position;
+        int i = start + 1;
+
+        if(i >= this.length || (this.input.get(i) != '/' && this.input.get(i) != '*')) {
+            return false;
+        }
+
+        // An empty comment "/**/" may be the start of a longer documentation comment, see JavaCharStream
+        if(this.input.get(i) == '*' && i + 2 < this.length && this.input.get(i + 1) == '*' && this.input.get(i + 2) == '/') {
+            return false;
+        }
+
+        if(this.input.get(i) == '/') {
+            // Up to the end of the line, "\r\n" included
+            i++;
+            while(i < this.length && this.input.get(i) != '\n' && this.input.get(i) != '\r') {
+                i++;
+            }
+            if(i < this.length && this.input.get(i) == '\r' && i + 1 < this.length && this.input.get(i + 1) == '\n') {
+                i++;
+            }
+        }
+        else {
+            // Up to the first "*/" after the "/*"
+            i += 2;
+            while(i < this.length && (this.input.get(i) != '/' || this.input.get(i - 1) != '*')) {
+                i++;
+            }
+        }
+
+        if(i >= this.length) {
+            this.position = this.length - 1;
+            this.begin = start;
+            throw unterminatedComment(getEndLine(), getEndColumn(), GetImage(), (char) this.input.get(this.position));
+        }
+
+        this.position = i;
+        return true;
+    }
+
+    @Deprecated
+    @Override
+    public int getColumn() {
+        return getEndColumn();
+    }
+
+    @Deprecated
+    @Override
+    public int getLine() {
+        return getEndLine();
+    }
+
+    @Override
+    public int getEndColumn() {
+        if(this.input == null) {
+            return super.getEndColumn();
+        }
+        return this.lineMap.getColumn(this.position);
+    }
+
+    @Override
+    public int getEndLine() {
+        if(this.input == null) {
+            return super.getEndLine();
+        }
+        return this.lineMap.getLine(this.position);
+    }
+
+    @Override
+    public int getBeginColumn() {
+        if(this.input == null) {
+            return super.getBeginColumn();
+        }
+        return this.lineMap.getColumn(this.begin);
+    }
+
+    @Override
+    public int getBeginLine() {
+        if(this.input == null) {
+            return super.getBeginLine();
+        }
+        return this.lineMap.getLine(this.begin);
+    }
+
+    @Override
+    public String GetImage() {
+        if(this.input == null) {
+            return super.GetImage();
+        }
+
+        int length = this.position - this.begin + 1;
+
+        if(length > this.image.length) {
+            this.image = new char[Math.max(length, this.image.length * 2)];
+        }
+        for(int i = 0; i < length; i++) {
+            this.image[i] = (char) this.input.get(this.begin + i);
+        }
+
+        return new String(this.image, 0, length);
+    }
+
+    @Override
+    public char[] GetSuffix(int len) {
+        if(this.input == null) {
+            return super.GetSuffix(len);
+        }
+
+        char[] suffix = new char[len];
+
+        for(int i = 0; i < len; i++) {
+            suffix[i] = (char) this.input.get(this.position - len + 1 + i);
+        }
+
+        return suffix;
+    }
+
+    @Override
+    public void Done() {
+        this.input = null;
+        this.image = null;
+        super.Done();
+    }
+
+    // The current token is at the given line and column, and the characters after it are counted from there
+    @Override
+    public void adjustBeginLineColumn(int newLine, int newCol) {
+        if(this.input == null) {
+            super.adjustBeginLineColumn(newLine, newCol);
+            return;
+        }
+
+        this.lineMap.adjust(this.begin, newLine, newCol);
+    }
+
+    // Reads the whole input of the reader (up to an error, where JavaCharStream ends it as well), and then its
+    // characters from the given line and column
+    @Override
+    public void ReInit(Reader dstream, int startline, int startcolumn, int buffersize) {
+        CharArrayWriter text = new CharArrayWriter();
+        char[] chunk = new char[4096];
+
+        try{
+            for(int read = dstream.read(chunk); read != -1; read = dstream.read(chunk)) {
+                text.write(chunk, 0, read);
+            }
+            dstream.close();
+        }
+
+        catch(IOException ex){
+            // The input ends here
+        }
+
+        char[] chars = text.toCharArray();
+        ByteBuffer bytes = ByteBuffer.allocate(chars.length);
+        boolean ascii = true;
+
+        for(int i = 0; i < chars.length && ascii; i++) {
+            ascii = chars[i] < 128;
+            bytes.put(i, (byte) chars[i]);
+        }
+
+        LineMap lineMap = ascii ? scan(bytes) : null;
+
+        if(lineMap == null) {
+            // Read as JavaCharStream reads any file, with a line and a column for every character
+            this.input = null;
+            this.lineMap = null;
+            super.ReInit(new CharArrayReader(chars), startline, startcolumn, buffersize);
+            return;
+        }
+
+        // None of the buffers of JavaCharStream is used
+        super.Done();
+
+        read(bytes, lineMap);
+        if(startline != 1 || startcolumn != 1) {
+            lineMap.adjust(0, startline, startcolumn);
+        }
+        if(this.image == null) {
+            this.image = new char[64];
+        }
+    }
+}
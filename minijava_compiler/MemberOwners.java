@@ -0,0 +1,95 @@
+import java.util.*;
+
+// The classes that own one member name, for every class of the program at once, see SymbolTable.freezeMembers.
+// The owner of the name in a class is the nearest of its super classes (or itself) that declares it. Over the preorder
+// of the inheritance tree this is a step function: a declaring class owns the name over its interval, but for the
+// intervals of its subclasses that declare it again. So the table keeps only the positions where the owner changes,
+// which are at most two per declaring class, and finds the owner of a class with a binary search over them.
+// The whole program shares one table per name, instead of a copy of the inherited names in every class.
+
+public class MemberOwners {
+    protected int[] starts;             // the owner of the positions from starts[i] to starts[i + 1] - 1 ...
+    protected ClassData[] owners;       // ... is owners[i], null where no class declares the name
+    protected int count;
+    protected ArrayList<ClassData> open;     // the declaring classes whose intervals are not closed yet, while adding
+
+    public MemberOwners() {
+        this.starts = new int[2];
+        this.owners = new ClassData[2];
+        this.count = 0;
+        this.open = new ArrayList<ClassData>();
+    }
+
+    // Add a class that declares the name. The classes are added in the preorder of the inheritance tree.
+    public void add(ClassData declaring) {
+        // A name declared twice in one class counts once
+        if(!this.open.isEmpty() && this.open.get(this.open.size() - 1) == declaring) {
+            return;
+        }
+
+        close(declaring.getPreorder());
+        append(declaring.getPreorder(), declaring);
+        this.open.add(declaring);
+    }
+
+    // Called after the last class is added
+    public void finish() {
+        close(Integer.MAX_VALUE);
+        this.open = null;
+    }
+
+    // The class that owns the name in the given class, null if neither it nor its super classes declare it
+    public ClassData ownerOf(ClassData currentClass) {
+        int position = currentClass.getPreorder();
+        int low = 0;
+        int high = this.count - 1;
+
+        // The last change at or before the position
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+
+            if(this.starts[middle] <= position) {
+                low = middle + 1;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+
+        return (high >= 0) ? this.owners[high] : null;
+    }
+
+    // Close the intervals that end before the position; after each one the enclosing declaring class owns the name again
+    protected void close(int position) {
+        while(!this.open.isEmpty()) {
+            ClassData last = this.open.get(this.open.size() - 1);
+
+            if(last.getLastDescendant() >= position) {
+                break;
+            }
+
+            this.open.remove(this.open.size() - 1);
+            append(last.getLastDescendant() + 1, this.open.isEmpty() ? null : this.open.get(this.open.size() - 1));
+        }
+    }
+
+    protected void append(int start, ClassData owner) {
+        // A change at the same position replaces the last one
+        if(this.count > 0 && this.starts[this.count - 1] == start) {
+            this.count--;
+        }
+
+        if(this.count > 0 ? this.owners[this.count - 1] == owner : owner == null) {
+            return;
+        }
+
+        if(this.count == this.starts.length) {
+            this.starts = Arrays.copyOf(this.starts, 2 * this.count);
+            this.owners = Arrays.copyOf(this.owners, 2 * this.count);
+        }
+
+        this.starts[this.count] = start;
+        this.owners[this.count] = owner;
+        this.count++;
+    }
+}
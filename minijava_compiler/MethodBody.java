@@ -0,0 +1,22 @@
+import syntaxtree.*;
+
+// A method whose body is left to be checked once the signatures of all classes are known.
+// The node is the MethodDeclaration of the method, or the MainClass for main.
+
+public class MethodBody {
+    protected Node node;
+    protected MethodData methodData;
+
+    public MethodBody(Node node, MethodData methodData) {
+        this.node = node;
+        this.methodData = methodData;
+    }
+
+    public Node getNode() {
+        return this.node;
+    }
+
+    public MethodData getMethodData() {
+        return this.methodData;
+    }
+}
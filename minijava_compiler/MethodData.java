@@ -2,18 +2,20 @@ import java.util.*;
 
 public class MethodData extends Data {
     protected ClassData classData;                 // whose class implementation it is
-    protected String returnType;                   // its return type
+    protected DataType returnType;                 // its return type
     protected ArrayList<IdData> arguments;      // its list of arguments
     protected ArrayList<IdData> variables;      // its list of variables
-    protected HashMap<String, IdData> generalVarMap;   // Map the variable_names to their data
+    protected HashMap<String, IdData> variableMap;     // Map the variable_names to the data a lookup finds, the lists keep the declaration order
+    protected HashMap<String, IdData> lastVariables;   // the last declaration of a variable name declared twice (main does not
+                                                       // reject it), null until one is
 
 
-    public MethodData(ClassData classData, String returnType, String name, int offset){
+    public MethodData(ClassData classData, DataType returnType, String name, int offset){
         this.classData = classData;
         this.returnType = returnType;
         this.arguments = new ArrayList<IdData>();
         this.variables = new ArrayList<IdData>();
-        this.generalVarMap = new HashMap<String, IdData>();
+        this.variableMap = new HashMap<String, IdData>();
         this.name = name;
         this.offset = offset;
     }
@@ -22,7 +24,7 @@ public class MethodData extends Data {
         return this.classData;
     }
 
-    public String getReturnType() {
+    public DataType getReturnType() {
         return this.returnType;
     }
 
@@ -31,7 +33,9 @@ public class MethodData extends Data {
     }
 
     public void insertArgument(IdData argData) {
+        argData.setArgumentIndex(this.arguments.size());
         this.arguments.add(argData);
+        this.variableMap.putIfAbsent(argData.getName(), argData);
     }
 
     public ArrayList<IdData> getVariables() {
@@ -40,65 +44,47 @@ public class MethodData extends Data {
 
     public void insertVariable(IdData varData) {
         this.variables.add(varData);
-    }
 
-    public HashMap<String, IdData> getGeneralVarMap() {
-        return this.generalVarMap;
+        // The variables come first and then the arguments, and the first declaration of a name is the one looked up
+        IdData previous = this.variableMap.get(varData.getName());
+
+        if(previous == null || isArgument(previous)) {
+            this.variableMap.put(varData.getName(), varData);
+        }
+        else {
+            if(this.lastVariables == null) {
+                this.lastVariables = new HashMap<String, IdData>();
+            }
+            this.lastVariables.put(varData.getName(), varData);
+        }
     }
 
-    public void insertIntoGeneralVarMap(IdData variable) {
-        this.generalVarMap.put(variable.getName(), variable);
+    // Whether the data is one of the arguments of this method
+    protected boolean isArgument(IdData data) {
+        int index = data.getArgumentIndex();
+        return index >= 0 && index < this.arguments.size() && this.arguments.get(index) == data;
     }
 
     public boolean variableExists(String variableName) {
         // Check if variable_name already exists in function
         // it must not exist in the variable list and in the argument list
-        ArrayList<IdData> variableList = this.getVariables();
-        ArrayList<IdData> argumentList = this.getArguments();
-        int methodVarNum = variableList.size();
-        int methodArgNum = argumentList.size();
-        int index;
-        
-        // Check for variable list
-        for(index = 0; index < methodVarNum; index++) {
-            if(variableList.get(index).getName().equals(variableName)) {
-                return true;
-            }
-        }
-
-        // and argument list
-        for(index = 0; index < methodArgNum; index++) {
-            if(argumentList.get(index).getName().equals(variableName)) {
-                return true;
-            }
-        }
+        return this.variableMap.containsKey(variableName);
+    }
 
-        return false;
+    public boolean argumentExists(String argumentName) {
+        IdData data = this.variableMap.get(argumentName);
+        return data != null && isArgument(data);
     }
 
     public IdData getCertainVariable(String variableName) {
-        // Check if variable_name already exists in function
-        // it must not exist in the variable list and in the argument list
-        ArrayList<IdData> variableList = this.getVariables();
-        ArrayList<IdData> argumentList = this.getArguments();
-        int methodVarNum = variableList.size();
-        int methodArgNum = argumentList.size();
-        int index;
-        
-        // Check for variable list
-        for(index = 0; index < methodVarNum; index++) {
-            if(variableList.get(index).getName().equals(variableName)) {
-                return variableList.get(index);
-            }
-        }
+        return this.variableMap.get(variableName);
+    }
 
-        // and argument list
-        for(index = 0; index < methodArgNum; index++) {
-            if(argumentList.get(index).getName().equals(variableName)) {
-                return argumentList.get(index);
-            }
-        }
+    // The last declaration of the name, which the type of an assignment is checked against.
+    // It is the one looked up unless main declares a variable twice.
+    public IdData getLastVariable(String variableName) {
+        IdData last = (this.lastVariables != null) ? this.lastVariables.get(variableName) : null;
 
-        return null;
+        return (last != null) ? last : this.variableMap.get(variableName);
     }
 }
@@ -0,0 +1,188 @@
+import java.util.*;
+
+// The command line options of the compiler. Everything that is not an option is the name of a file to check.
+// An option without its value, or a number that is not a positive one, is an IllegalArgumentException.
+
+public class Options {
+    protected int jobs;                     // --jobs N: files checked in parallel
+    protected boolean fused;                // --fused: Visitor 2 queues the method bodies and Visitor 3 checks only them
+    protected int methodJobs;               // --method-jobs N: the queued bodies of a file are checked in parallel (implies --fused)
+    protected boolean mapped;               // --mapped: the parser reads the files mapped in memory
+    protected boolean lazyPositions;        // --lazy-positions: the lines and columns of the tokens are worked out from the line starts
+    protected boolean dfaLexer;             // --dfa-lexer: the tokens are scanned with the tables of DfaLexer
+    protected boolean tokenArray;           // --token-array: the tokens of a file are all scanned into a TokenArray before the parse
+    protected boolean compactTree;          // --compact-tree: the tree of a file is compacted before it is checked
+    protected boolean streaming;            // --streaming: a file is parsed and checked a class at a time, see StreamingChecker
+    protected String cacheDirectory;        // --cache DIR: the results of the checks are kept in DIR, see CheckCache
+    protected long cacheSize;               // --cache-size MB: the most the entries of the cache take, in megabytes
+    protected boolean reuseParsers;         // --reuse-parsers: every thread reuses its parser from file to file, see ParserPool
+    protected boolean parallelParse;        // --parallel-parse: the classes of a file are parsed in parallel, see ParallelParser
+    protected boolean descentParser;        // --descent-parser: the files are parsed by DescentParser instead of the generated parser
+    protected boolean dropComments;         // --drop-comments: the lexers skip the comments without making tokens for them
+    protected ArrayList<String> fileNames;
+
+    public Options() {
+        this.jobs = 1;
+        this.methodJobs = 1;
+        this.cacheSize = 256;
+        this.fileNames = new ArrayList<String>();
+    }
+
+    public static Options parse(String[] args) {
+        Options options = new Options();
+
+        for(int i = 0; i < args.length; i++) {
+            if(args[i].equals("--jobs")) {
+                options.jobs = positive("--jobs", value(args, i++));
+            }
+            else if(args[i].startsWith("--jobs=")) {
+                options.jobs = positive("--jobs", args[i].substring("--jobs=".length()));
+            }
+            else if(args[i].equals("--fused")) {
+                options.fused = true;
+            }
+            else if(args[i].equals("--method-jobs")) {
+                options.methodJobs = positive("--method-jobs", value(args, i++));
+            }
+            else if(args[i].startsWith("--method-jobs=")) {
+                options.methodJobs = positive("--method-jobs", args[i].substring("--method-jobs=".length()));
+            }
+            else if(args[i].equals("--mapped")) {
+                options.mapped = true;
+            }
+            else if(args[i].equals("--lazy-positions")) {
+                options.lazyPositions = true;
+            }
+            else if(args[i].equals("--dfa-lexer")) {
+                options.dfaLexer = true;
+            }
+            else if(args[i].equals("--token-array")) {
+                options.tokenArray = true;
+            }
+            else if(args[i].equals("--compact-tree")) {
+                options.compactTree = true;
+            }
+            else if(args[i].equals("--streaming")) {
+                options.streaming = true;
+            }
+            else if(args[i].equals("--cache")) {
+                options.cacheDirectory = value(args, i++);
+            }
+            else if(args[i].startsWith("--cache=")) {
+                options.cacheDirectory = args[i].substring("--cache=".length());
+            }
+            else if(args[i].equals("--cache-size")) {
+                options.cacheSize = positive("--cache-size", value(args, i++));
+            }
+            else if(args[i].startsWith("--cache-size=")) {
+                options.cacheSize = positive("--cache-size", args[i].substring("--cache-size=".length()));
+            }
+            else if(args[i].equals("--reuse-parsers")) {
+                options.reuseParsers = true;
+            }
+            else if(args[i].equals("--parallel-parse")) {
+                options.parallelParse = true;
+            }
+            else if(args[i].equals("--descent-parser")) {
+                options.descentParser = true;
+            }
+            else if(args[i].equals("--drop-comments")) {
+                options.dropComments = true;
+            }
+            else {
+                options.fileNames.add(args[i]);
+            }
+        }
+
+        return options;
+    }
+
+    // The value after the option at the given index
+    protected static String value(String[] args, int option) {
+        if(option + 1 >= args.length) {
+            throw new IllegalArgumentException("Option " + args[option] + " has no value");
+        }
+        return args[option + 1];
+    }
+
+    protected static int positive(String option, String value) {
+        try{
+            int number = Integer.parseInt(value);
+
+            if(number > 0) {
+                return number;
+            }
+        }
+
+        catch(NumberFormatException ex){
+            // Reported below
+        }
+
+        throw new IllegalArgumentException("Option " + option + " takes a positive number, not \"" + value + "\"");
+    }
+
+    public int getJobs() {
+        return this.jobs;
+    }
+
+    public boolean getFused() {
+        return this.fused || this.methodJobs > 1;
+    }
+
+    public int getMethodJobs() {
+        return this.methodJobs;
+    }
+
+    public boolean getMapped() {
+        return this.mapped;
+    }
+
+    public boolean getLazyPositions() {
+        return this.lazyPositions;
+    }
+
+    public boolean getDfaLexer() {
+        return this.dfaLexer;
+    }
+
+    public boolean getTokenArray() {
+        return this.tokenArray;
+    }
+
+    public boolean getCompactTree() {
+        return this.compactTree;
+    }
+
+    public boolean getStreaming() {
+        return this.streaming;
+    }
+
+    public String getCacheDirectory() {
+        return this.cacheDirectory;
+    }
+
+    // In bytes
+    public long getCacheSize() {
+        return this.cacheSize * 1024 * 1024;
+    }
+
+    public boolean getReuseParsers() {
+        return this.reuseParsers;
+    }
+
+    public boolean getParallelParse() {
+        return this.parallelParse;
+    }
+
+    public boolean getDescentParser() {
+        return this.descentParser;
+    }
+
+    public boolean getDropComments() {
+        return this.dropComments;
+    }
+
+    public ArrayList<String> getFileNames() {
+        return this.fileNames;
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Checks the method bodies queued by Visitor 2 on a fork/join pool.
+// Once Visitor 2 is done the symbol table is only read, so the bodies can be checked in any order. Every task has its
+// own Visitor 3 and its own diagnostics; the only shared writes are the setInitialized(true) of the fields, which all
+// write the same value. Of all the bodies that fail, the first one in source order wins, which is the one a sequential
+// check would have stopped at, so the diagnostics and the output are the same.
+
+public class ParallelChecker {
+    protected static final int CHUNK = 32;     // bodies checked by one task without splitting further
+
+    protected SymbolTable symbolTable;
+    protected ForkJoinPool pool;
+    protected AtomicInteger firstFailure;      // index of the first failed body found so far
+
+    public ParallelChecker(SymbolTable symbolTable, ForkJoinPool pool) {
+        this.symbolTable = symbolTable;
+        this.pool = pool;
+        this.firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+    }
+
+    public void checkBodies(ArrayList<MethodBody> bodies) throws Exception {
+        Failure failure = this.pool.invoke(new Range(bodies, 0, bodies.size()));
+
+        if(failure == null) {
+            return;
+        }
+
+        // Report the error of the failed body as if it had been found by the sequential check, and stop there
+        this.symbolTable.getDiagnostics().merge(failure.getDiagnostics());
+
+        if(failure.getCause() instanceof Error) {
+            throw (Error) failure.getCause();
+        }
+        throw (Exception) failure.getCause();
+    }
+
+    // A body that failed: where it is, what it threw and what it reported
+    static class Failure {
+        protected int index;
+        protected Throwable cause;
+        protected Diagnostics diagnostics;
+
+        public Failure(int index, Throwable cause, Diagnostics diagnostics) {
+            this.index = index;
+            this.cause = cause;
+            this.diagnostics = diagnostics;
+        }
+
+        public int getIndex() {
+            return this.index;
+        }
+
+        public Throwable getCause() {
+            return this.cause;
+        }
+
+        public Diagnostics getDiagnostics() {
+            return this.diagnostics;
+        }
+
+        // The first of two failures in source order, either may be null
+        public static Failure first(Failure a, Failure b) {
+            if(a == null) return b;
+            if(b == null) return a;
+            return (a.getIndex() <= b.getIndex()) ? a : b;
+        }
+    }
+
+    // Checks the bodies [start, end), splitting the range in halves until it is small enough
+    class Range extends RecursiveTask<Failure> {
+        private static final long serialVersionUID = 1L;
+
+        protected ArrayList<MethodBody> bodies;
+        protected int start;
+        protected int end;
+
+        public Range(ArrayList<MethodBody> bodies, int start, int end) {
+            this.bodies = bodies;
+            this.start = start;
+            this.end = end;
+        }
+
+        protected Failure compute() {
+            // An earlier body failed already, nothing here can be the first failure
+            if(this.start > firstFailure.get()) {
+                return null;
+            }
+
+            if(this.end - this.start > CHUNK) {
+                int middle = (this.start + this.end) >>> 1;
+                Range left = new Range(this.bodies, this.start, middle);
+                Range right = new Range(this.bodies, middle, this.end);
+
+                right.fork();
+                Failure leftFailure = left.compute();
+                Failure rightFailure = right.join();
+
+                return Failure.first(leftFailure, rightFailure);
+            }
+
+            Diagnostics diagnostics = new Diagnostics(symbolTable.getDiagnostics().getFileName());
+            Visitor3 vis3 = new Visitor3(symbolTable, diagnostics);
+
+            for(int i = this.start; i < this.end && i <= firstFailure.get(); i++) {
+                try{
+                    vis3.checkBody(this.bodies.get(i));
+                }
+
+                catch(Throwable ex){
+                    firstFailure.accumulateAndGet(i, Math::min);
+                    return new Failure(i, ex, diagnostics);
+                }
+            }
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+import syntaxtree.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Parses the classes of a file in parallel (--parallel-parse), for the single huge files that generators make.
+// The file is scanned into a TokenArray, and its braces split it into its classes: main first, then every class that
+// starts with "class" at the top level and ends with the "}" that closes it, each one with the comments before it.
+// Nothing in a class depends on another one, so the classes are parsed in chunks of about the same number of tokens,
+// each chunk by a parser of its own over its range of the tokens, on the workers of the pool (the first chunk on the
+// calling thread). Their nodes are then put together into the Goal that Goal() builds, in the order of the file.
+// Whatever does not go this way (a file that cannot be scanned into a TokenArray, braces that do not split it into
+// classes, a chunk that does not parse, or one too deep for the stack of a worker) is parsed again, whole, by the
+// parser of Main.newParser() on the calling thread, so the trees and the errors are always the ones of Goal().
+
+public class ParallelParser implements MiniJavaParserConstants {
+
+    // Chunks per worker of the pool, so that a worker done early takes another chunk instead of waiting
+    protected static final int CHUNKS_PER_WORKER = 4;
+
+    protected TokenArray tokens;
+    protected ForkJoinPool pool;
+
+    public ParallelParser(TokenArray tokens, ForkJoinPool pool) {
+        this.tokens = tokens;
+        this.pool = pool;
+    }
+
+    // Parses the open file as Main.newParser(fin, options).Goal() would, with the classes parsed in parallel
+    public static Goal parse(InputStream fin, Options options, ForkJoinPool pool) throws Exception {
+        byte[] source = fin.readAllBytes();
+        TokenArray tokens = TokenArray.lex(source, options.getDropComments());
+        Goal root = (tokens != null) ? new ParallelParser(tokens, pool).parse() : null;
+
+        if(root != null) {
+            return root;
+        }
+
+        // The whole file again, from the bytes read
+        return Main.newParser(new ByteArrayInputStream(source), options).Goal();
+    }
+
+    // The tree of the tokens, or null if they must be parsed whole
+    public Goal parse() throws InterruptedException {
+        int[] classes = split();
+        if(classes == null) {
+            return null;
+        }
+
+        int[] chunks = chunks(classes);
+        ArrayList<Future<ArrayList<Node>>> pending = new ArrayList<Future<ArrayList<Node>>>();
+
+        for(int i = 1; i < chunks.length - 1; i++) {
+            int first = chunks[i];
+            int end = chunks[i + 1];
+            pending.add(this.pool.submit(() -> parseChunk(first, end)));
+        }
+
+        ArrayList<Node> nodes = new ArrayList<Node>();
+
+        try{
+            nodes.addAll(parseChunk(chunks[0], chunks[1]));
+
+            for(int i = 0; i < pending.size(); i++) {
+                nodes.addAll(pending.get(i).get());
+            }
+        }
+
+        catch(ParseException | StackOverflowError | ExecutionException ex){
+            for(int i = 0; i < pending.size(); i++) {
+                pending.get(i).cancel(true);
+            }
+            return null;
+        }
+
+        // The main class, the classes and the end of the input
+        NodeListOptional declarations = new NodeListOptional();
+        for(int i = 1; i < nodes.size() - 1; i++) {
+            declarations.addNode(nodes.get(i));
+        }
+        declarations.nodes.trimToSize();
+
+        return new Goal((MainClass) nodes.get(0), declarations, (NodeToken) nodes.get(nodes.size() - 1));
+    }
+
+    // The first token of every class, comments included, main first; null if the braces do not split the tokens into
+    // classes
+    protected int[] split() {
+        int[] classes = new int[16];
+        int classNum = 0;
+        int depth = 0;
+        boolean inClass = false;
+        int next = 0;           // the first token after the last class
+
+        for(int i = 0; i < this.tokens.getTokenCount(); i++) {
+            int kind = this.tokens.getKind(i);
+
+            if(this.tokens.isSpecial(i)) {
+                continue;
+            }
+
+            if(!inClass) {
+                if(kind == EOF) {
+                    break;
+                }
+                if(kind != CLASS) {
+                    return null;
+                }
+
+                if(classNum == classes.length) {
+                    classes = Arrays.copyOf(classes, classNum * 2);
+                }
+                classes[classNum++] = next;
+                inClass = true;
+            }
+
+            if(kind == LBRACE) {
+                depth++;
+            }
+            else if(kind == RBRACE) {
+                depth--;
+
+                if(depth < 0) {
+                    return null;
+                }
+                if(depth == 0) {
+                    inClass = false;
+                    next = i + 1;
+                }
+            }
+        }
+
+        if(inClass || classNum == 0) {
+            return null;
+        }
+        return Arrays.copyOf(classes, classNum);
+    }
+
+    // The first token of every chunk of classes, then the end of the input: a new chunk starts at the first class
+    // after its share of the tokens
+    protected int[] chunks(int[] classes) {
+        int last = this.tokens.getTokenCount() - 1;
+        int share = Math.max(1, last / Math.max(1, this.pool.getParallelism() * CHUNKS_PER_WORKER));
+        int[] chunks = new int[classes.length + 1];
+        int chunkNum = 0;
+
+        chunks[chunkNum++] = classes[0];
+        for(int i = 1; i < classes.length; i++) {
+            if(classes[i] - chunks[chunkNum - 1] >= share) {
+                chunks[chunkNum++] = classes[i];
+            }
+        }
+        chunks[chunkNum++] = last;
+
+        return Arrays.copyOf(chunks, chunkNum);
+    }
+
+    // The nodes of the classes from the token first to the one before end: the main class first if the chunk starts
+    // the file, and the end of the input last if the chunk ends it
+    protected ArrayList<Node> parseChunk(int first, int end) throws ParseException {
+        TokenArrayTokenManager tokenManager = new TokenArrayTokenManager(this.tokens.view(), first, end);
+        MiniJavaParser parser = new MiniJavaParser(tokenManager);
+        ArrayList<Node> nodes = new ArrayList<Node>();
+
+        if(first == 0) {
+            nodes.add(parser.MainClass());
+        }
+
+        while(parser.getToken(1).kind == CLASS) {
+            nodes.add(parser.TypeDeclaration());
+        }
+
+        // A class ended before its closing brace
+        if(parser.getToken(1).kind != EOF) {
+            throw new ParseException();
+        }
+
+        if(end == this.tokens.getTokenCount() - 1) {
+            // As Goal() takes it
+            Token eof = parser.getNextToken();
+            eof.beginColumn++;
+            eof.endColumn++;
+            nodes.add(new NodeToken(eof.image.intern(), eof.kind, eof.beginLine, eof.beginColumn, eof.endLine, eof.endColumn));
+        }
+
+        return nodes;
+    }
+}
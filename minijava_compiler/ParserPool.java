@@ -0,0 +1,77 @@
+import java.io.*;
+
+// The parser of a thread, reused from file to file (--reuse-parsers). A new parser comes with a new JavaCharStream
+// (its 4 KB buffers and the line and column of every buffered character), a new token manager (its jjrounds and
+// jjstateSet) and new tables for its lookaheads, and a run over many small files spends a good part of its time
+// allocating them. Here every thread keeps one of each, and a parser for the next file is the same one reset with the
+// ReInit() methods of the generated code, which put back the state a new one starts in: the tokens, the trees and
+// the errors are exactly the ones of a new parser.
+// The parser is the one of the thread until the next call on the same thread, so a file is parsed to the end (or to
+// its error) before the next one is started, as Main and StreamingChecker do.
+
+public class ParserPool {
+
+    protected static final ThreadLocal<ParserPool> POOLS = ThreadLocal.withInitial(ParserPool::new);
+
+    protected JavaCharStream stream;                    // null until the first file read through a stream
+    protected MiniJavaParserTokenManager tokenManager;  // the generated one (CommentDroppingTokenManager with --drop-comments)
+    protected DfaTokenManager dfaTokenManager;
+    protected MiniJavaParser parser;
+
+    protected ParserPool() {
+    }
+
+    // The pool of the current thread
+    public static ParserPool get() {
+        return POOLS.get();
+    }
+
+    // A JavaCharStream over the input from its start, as new JavaCharStream(input, 1, 1) makes it, with the positions
+    // of its tokens worked out from the line starts if lazyPositions is set
+    public JavaCharStream stream(InputStream input, boolean lazyPositions) {
+        if(this.stream == null || this.stream.getLazyPositions() != lazyPositions) {
+            this.stream = new JavaCharStream(input, 1, 1);
+
+            if(lazyPositions) {
+                this.stream.setLazyPositions();
+            }
+            return this.stream;
+        }
+
+        this.stream.ReInit(input, 1, 1);
+        return this.stream;
+    }
+
+    // A parser over the stream, with the generated token manager or with DfaTokenManager; either one skips the
+    // comments without a Token if dropComments is set
+    public MiniJavaParser parser(JavaCharStream stream, boolean dfaLexer, boolean dropComments) {
+        if(dfaLexer) {
+            if(this.dfaTokenManager == null) {
+                this.dfaTokenManager = new DfaTokenManager(stream, dropComments);
+            }
+            else {
+                this.dfaTokenManager.ReInit(stream, dropComments);
+            }
+            return parser(this.dfaTokenManager);
+        }
+
+        if(this.tokenManager == null || (this.tokenManager instanceof CommentDroppingTokenManager) != dropComments) {
+            this.tokenManager = dropComments ? new CommentDroppingTokenManager(stream) : new MiniJavaParserTokenManager(stream);
+        }
+        else {
+            this.tokenManager.ReInit(stream);
+        }
+        return parser(this.tokenManager);
+    }
+
+    // A parser over the given token manager
+    public MiniJavaParser parser(MiniJavaParserTokenManager tokenManager) {
+        if(this.parser == null) {
+            this.parser = new MiniJavaParser(tokenManager);
+        }
+        else {
+            this.parser.ReInit(tokenManager);
+        }
+        return this.parser;
+    }
+}
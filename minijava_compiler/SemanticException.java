@@ -0,0 +1,30 @@
+// Exception thrown by the visitors whenever a semantic check fails.
+// The error itself has already been reported as a diagnostic; the exception only stops checking the file,
+// and carries what Main needs to print the message exactly as it always did.
+
+public class SemanticException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    protected Diagnostic diagnostic;   // the error that was reported
+    protected int status;              // the exit status the checks used to terminate with
+    protected boolean newLine;         // whether the message is printed with a new line at the end
+
+    public SemanticException(Diagnostic diagnostic, int status, boolean newLine) {
+        super(diagnostic.getMessage());
+        this.diagnostic = diagnostic;
+        this.status = status;
+        this.newLine = newLine;
+    }
+
+    public Diagnostic getDiagnostic() {
+        return this.diagnostic;
+    }
+
+    public int getStatus() {
+        return this.status;
+    }
+
+    public boolean getNewLine() {
+        return this.newLine;
+    }
+}
@@ -0,0 +1,130 @@
+import syntaxtree.*;
+import java.io.*;
+import java.util.*;
+
+// Checks a file without keeping its whole tree (--streaming), so that the memory it takes grows with its largest class
+// and with its declarations instead of with the whole program.
+// The file is parsed twice, a class at a time. The first time every class is kept without the bodies of its methods
+// (and of main): the declarations are all Visitor 1 and Visitor 2 look at. Once they have built the symbol table, the
+// file is parsed again and every class is checked by Visitor 3 as soon as it is parsed, and then dropped.
+// The visitors see the classes in the same order as in the whole tree, so the first error found is the same one.
+// A syntax or lexical error is reported by parsing the whole file again with Goal(), so the message is exactly the one
+// of the parser.
+
+public class StreamingChecker implements MiniJavaParserConstants {
+
+    // What is left of the return expression of a method without its body: "true", without a position
+    protected static final Expression NO_EXPRESSION = new Expression(new NodeChoice(new Clause(new NodeChoice(new PrimaryExpression(new NodeChoice(new TrueLiteral(), 1)), 1)), 8));
+
+    protected String fileName;
+    protected byte[] source;                            // the content of the file if it was read already, null otherwise
+    protected Options options;
+    protected SymbolTable symbolTable;
+    protected MainClass mainClass;                      // the classes without their bodies, after parseDeclarations()
+    protected ArrayList<TypeDeclaration> classes;
+
+    public StreamingChecker(String fileName, Options options, SymbolTable symbolTable) {
+        this(fileName, null, options, symbolTable);
+    }
+
+    // The parses read the given content of the file (as it was read for the key of the cache) instead of the file
+    public StreamingChecker(String fileName, byte[] source, Options options, SymbolTable symbolTable) {
+        this.fileName = fileName;
+        this.source = source;
+        this.options = options;
+        this.symbolTable = symbolTable;
+        this.classes = new ArrayList<TypeDeclaration>();
+    }
+
+    // The first parse: keeps the declarations of every class
+    public void parseDeclarations(InputStream fin) throws Exception {
+        try{
+            MiniJavaParser parser = Main.newParser(fin, this.options);
+
+            this.mainClass = parser.MainClass();
+            this.mainClass.f15 = new NodeListOptional();
+
+            while(parser.getToken(1).kind == CLASS) {
+                TypeDeclaration typeDeclaration = parser.TypeDeclaration();
+                dropBodies(typeDeclaration);
+                this.classes.add(typeDeclaration);
+            }
+
+            if(parser.getToken(1).kind == EOF) {
+                return;
+            }
+        }
+
+        catch(ParseException | TokenMgrError ex){
+            parseWhole();
+            throw ex;
+        }
+
+        // Something else than a class after a class
+        parseWhole();
+        throw new IllegalStateException("The parser took a file that the streaming parse did not");
+    }
+
+    // Parses the whole file, for the error it has
+    protected void parseWhole() throws Exception {
+        try(InputStream fin = open()){
+            Main.newParser(fin, this.options).Goal();
+        }
+    }
+
+    // The file again, from its start
+    protected InputStream open() throws IOException {
+        return (this.source != null) ? new ByteArrayInputStream(this.source) : new FileInputStream(this.fileName);
+    }
+
+    // Empties the statements and the return expressions of the methods of the class
+    protected void dropBodies(TypeDeclaration typeDeclaration) {
+        NodeListOptional methods;
+
+        if(typeDeclaration.f0.choice instanceof ClassDeclaration) {
+            methods = ((ClassDeclaration) typeDeclaration.f0.choice).f4;
+        }
+        else {
+            methods = ((ClassExtendsDeclaration) typeDeclaration.f0.choice).f6;
+        }
+
+        for(int i = 0; i < methods.size(); i++) {
+            MethodDeclaration method = (MethodDeclaration) methods.elementAt(i);
+            method.f8 = new NodeListOptional();
+            method.f10 = NO_EXPRESSION;
+        }
+    }
+
+    // Builds the symbol table from the declarations, then parses the file again and checks it a class at a time
+    public void check() throws Exception {
+        Visitor1 vis1 = new Visitor1(this.symbolTable);
+        this.mainClass.accept(vis1, null);
+        for(int i = 0; i < this.classes.size(); i++) {
+            this.classes.get(i).accept(vis1, null);
+        }
+        this.symbolTable.freezeHierarchy();
+
+        Visitor2 vis2 = new Visitor2(this.symbolTable);
+        this.mainClass.accept(vis2, null);
+        for(int i = 0; i < this.classes.size(); i++) {
+            this.classes.get(i).accept(vis2, null);
+        }
+        this.symbolTable.freezeMembers();
+
+        // The declarations are not needed any more
+        this.mainClass = null;
+        this.classes = null;
+
+        Visitor3 vis3 = new Visitor3(this.symbolTable);
+
+        try(InputStream fin = open()){
+            MiniJavaParser parser = Main.newParser(fin, this.options);
+
+            parser.MainClass().accept(vis3, null);
+
+            while(parser.getToken(1).kind == CLASS) {
+                parser.TypeDeclaration().accept(vis3, null);
+            }
+        }
+    }
+}
@@ -1,25 +1,53 @@
+import syntaxtree.*;
 import java.util.*;
+import java.io.*;
 
 public class SymbolTable {
-    protected ArrayList<String> validTypes; // A list of all the valid data types
+    protected HashMap<String, DataType> validTypes; // Map the names of all the valid data types to their types
     protected ArrayList<String> classes; // A list with the names of all classes
     protected HashMap<String, ClassData> classMap; // Where we'll keep information about every class
+    protected Diagnostics diagnostics; // Where the errors of the file are reported
+    protected boolean hierarchyFrozen; // Set once the subtype intervals of the classes are computed
+    protected boolean membersFrozen; // Set once the member tables of the classes are computed
+    protected HashMap<String, MemberOwners> variableOwners; // The classes owning every field name, once the members are frozen
+    protected HashMap<String, MemberOwners> methodOwners; // Same for the method names
 
     public SymbolTable() {
-        this.validTypes = new ArrayList<String>();
+        this(new Diagnostics(null));
+    }
+
+    public SymbolTable(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        this.validTypes = new HashMap<String, DataType>();
         this.classes = new ArrayList<String>();
         this.classMap = new HashMap<String, ClassData>();
 
         // Add the valid data types of mini java.
-        this.validTypes.add("int");
-        this.validTypes.add("boolean");
-        this.validTypes.add("int[]");
+        insertType(DataType.INT);
+        insertType(DataType.BOOLEAN);
+        insertType(DataType.INT_ARRAY);
     }
 
-    public ArrayList<String> getValidTypes() {
+    public HashMap<String, DataType> getValidTypes() {
         return this.validTypes;
     }
 
+    public void insertType(DataType type) {
+        this.validTypes.put(type.getName(), type);
+    }
+
+    // The type with the given name, null if it is not a valid data type
+    public DataType getType(String typeName) {
+        return this.validTypes.get(typeName);
+    }
+
+    // Same, but a name that is not a valid data type gets a type of its own, which is not equal to any other type
+    public DataType resolveType(String typeName) {
+        DataType type = this.validTypes.get(typeName);
+
+        return (type != null) ? type : new DataType(typeName, null);
+    }
+
     public ArrayList<String> getClasses() {
         return this.classes;
     }
@@ -28,6 +56,19 @@ public class SymbolTable {
         return this.classMap;
     }
 
+    public Diagnostics getDiagnostics() {
+        return this.diagnostics;
+    }
+
+    // Report an error about the given node. The caller throws the returned exception to stop the checks.
+    public SemanticException error(Node node, String message) {
+        return this.diagnostics.error(node, message);
+    }
+
+    public SemanticException error(Node node, String message, int status, boolean newLine) {
+        return this.diagnostics.error(node, message, status, newLine);
+    }
+
     public void insertClass(ClassData classData) {
         this.classMap.put(classData.getName(), classData);
     }
@@ -54,103 +95,198 @@ public class SymbolTable {
     }
 
 
-    public boolean variableTypePolymorphism(String identifierType, ClassData idClass) {
+    // Freeze the class hierarchy. Called after Visitor 1, when every class and its parent are known.
+    // Every class gets an interval of the preorder numbering of the inheritance tree, which contains the intervals
+    // of all of its subclasses, so a subtype test is a pair of integer compares.
+    public void freezeHierarchy() {
+        HashMap<ClassData, ArrayList<ClassData>> children = new HashMap<ClassData, ArrayList<ClassData>>();
+        ArrayList<ClassData> roots = new ArrayList<ClassData>();
 
-        boolean flag = false;
-        ClassData idClassParent = idClass.getParent();
+        for(int i = 0; i < this.classes.size(); i++) {
+            ClassData currentClass = this.classMap.get(this.classes.get(i));
 
-        while(idClassParent != null) {
-            if(idClassParent.getName().equals(identifierType)) {
-                flag = true;
-                break;
+            if(currentClass.getParent() == null) {
+                roots.add(currentClass);
             }
             else {
-                idClassParent = idClassParent.getParent();
-                continue;
+                children.computeIfAbsent(currentClass.getParent(), k -> new ArrayList<ClassData>()).add(currentClass);
             }
         }
-        return flag;
-    }
-
-    public boolean variableExistsInSuper(String fieldName, ClassData fieldClass) {
 
-        boolean found = false;
-        ClassData parentPtr = fieldClass.getParent();
+        // Walk the tree without recursion, the hierarchies can be very deep
+        int counter = 0;
+        ArrayDeque<ClassData> stack = new ArrayDeque<ClassData>();
+        ArrayDeque<Boolean> leaving = new ArrayDeque<Boolean>();
 
+        for(int i = roots.size() - 1; i >= 0; i--) {
+            stack.push(roots.get(i));
+            leaving.push(false);
+        }
 
-        while(parentPtr != null) {
+        while(!stack.isEmpty()) {
+            ClassData currentClass = stack.pop();
 
-            if(parentPtr.variableExists(fieldName)) {
-                found = true;
-                break;
-            }
-            else {
-                parentPtr = parentPtr.getParent();
+            if(leaving.pop()) {
+                currentClass.setLastDescendant(counter - 1);
                 continue;
             }
+
+            currentClass.setPreorder(counter++);
+            stack.push(currentClass);
+            leaving.push(true);
+
+            ArrayList<ClassData> subclasses = children.get(currentClass);
+            if(subclasses != null) {
+                for(int i = subclasses.size() - 1; i >= 0; i--) {
+                    stack.push(subclasses.get(i));
+                    leaving.push(false);
+                }
+            }
         }
 
-        return found;
+        this.hierarchyFrozen = true;
     }
 
-    public boolean methodExistsInSuper(String methodName, ClassData methClass) {
+    // Freeze the members of the classes. Called after Visitor 2, when every field and method is known, and after
+    // freezeHierarchy. Every member name gets one table for the whole program, that maps every class to the nearest
+    // class declaring the name, see MemberOwners.
+    public void freezeMembers() {
+        ClassData[] byPreorder = new ClassData[this.classes.size()];
+        for(int i = 0; i < this.classes.size(); i++) {
+            ClassData currentClass = this.classMap.get(this.classes.get(i));
+            byPreorder[currentClass.getPreorder()] = currentClass;
+        }
 
-        boolean flag = false;
-        ClassData methClassParent = methClass.getParent();
+        this.variableOwners = new HashMap<String, MemberOwners>();
+        this.methodOwners = new HashMap<String, MemberOwners>();
 
-        while(methClassParent != null) {
+        for(ClassData currentClass : byPreorder) {
+            for(IdData variable : currentClass.getVariables()) {
+                this.variableOwners.computeIfAbsent(variable.getName(), k -> new MemberOwners()).add(currentClass);
+            }
 
-            if(methClassParent.methodExists(methodName)) {
-                flag = true;
-                break;
+            for(MethodData method : currentClass.getMethods()) {
+                this.methodOwners.computeIfAbsent(method.getName(), k -> new MemberOwners()).add(currentClass);
             }
-            else {
-                methClassParent = methClassParent.getParent();
-                continue;
+        }
+
+        for(MemberOwners owners : this.variableOwners.values()) {
+            owners.finish();
+        }
+
+        for(MemberOwners owners : this.methodOwners.values()) {
+            owners.finish();
+        }
+
+        this.membersFrozen = true;
+    }
+
+    // Check if sub is a strict subclass of sup
+    public boolean isSubclass(ClassData sub, ClassData sup) {
+        if(sub == sup) {
+            return false;
+        }
+
+        if(this.hierarchyFrozen) {
+            return sup.getPreorder() <= sub.getPreorder() && sub.getPreorder() <= sup.getLastDescendant();
+        }
+
+        ClassData parentPtr = sub.getParent();
+        while(parentPtr != null) {
+            if(parentPtr == sup) {
+                return true;
             }
+            parentPtr = parentPtr.getParent();
         }
 
-        return flag;
+        return false;
     }
 
-    public ClassData getSuperMethod(String methodName, ClassData methClass) {
+    // Check if a value of type source can be assigned to a variable of type target,
+    // i.e. the types are the same or source is a subclass of target
+    public boolean isAssignable(DataType target, DataType source) {
+        if(target == source) {
+            return true;
+        }
 
-        ClassData methClassParent = methClass.getParent();
+        return target.isClass() && source.isClass() && isSubclass(source.getClassData(), target.getClassData());
+    }
 
-        while(methClassParent != null) {
+    // The class that declares the field, searching the class itself and then its super classes
+    public ClassData getVariableOwner(String variableName, ClassData varClass) {
+        if(this.membersFrozen) {
+            MemberOwners owners = this.variableOwners.get(variableName);
+            return (owners != null) ? owners.ownerOf(varClass) : null;
+        }
 
-            if(methClassParent.methodExists(methodName)) {
-                break;
-            }
-            else {
-                methClassParent = methClassParent.getParent(); 
-                continue;
-            }
+        ClassData classPtr = varClass;
+        while(classPtr != null && !classPtr.variableExists(variableName)) {
+            classPtr = classPtr.getParent();
         }
 
-        return methClassParent;
+        return classPtr;
     }
 
-    public ClassData getSuperVariable(String variableName, ClassData varClass) {
+    // The class that declares the method, searching the class itself and then its super classes
+    public ClassData getMethodOwner(String methodName, ClassData methClass) {
+        if(this.membersFrozen) {
+            MemberOwners owners = this.methodOwners.get(methodName);
+            return (owners != null) ? owners.ownerOf(methClass) : null;
+        }
+
+        ClassData classPtr = methClass;
+        while(classPtr != null && !classPtr.methodExists(methodName)) {
+            classPtr = classPtr.getParent();
+        }
 
-        ClassData varClassParent = varClass.getParent();
+        return classPtr;
+    }
 
-        while(varClassParent != null) {
+    // The field as seen from the class: its own, or the one of the nearest super class. Null if there is none.
+    public IdData lookupVariable(String variableName, ClassData varClass) {
+        ClassData owner = getVariableOwner(variableName, varClass);
 
-            if(varClassParent.variableExists(variableName)) {
-                break;
-            }
-            else {
-                varClassParent = varClassParent.getParent(); 
-                continue;
-            }
+        return (owner != null) ? owner.getCertainVariable(variableName) : null;
+    }
+
+    // Same for the methods
+    public MethodData lookupMethod(String methodName, ClassData methClass) {
+        ClassData owner = getMethodOwner(methodName, methClass);
+
+        return (owner != null) ? owner.getCertainMethod(methodName) : null;
+    }
+
+    public boolean variableExistsInSuper(String fieldName, ClassData fieldClass) {
+        return getSuperVariable(fieldName, fieldClass) != null;
+    }
+
+    public boolean methodExistsInSuper(String methodName, ClassData methClass) {
+        return getSuperMethod(methodName, methClass) != null;
+    }
+
+    public ClassData getSuperMethod(String methodName, ClassData methClass) {
+        if(methClass.getParent() == null) {
+            return null;
+        }
+
+        return getMethodOwner(methodName, methClass.getParent());
+    }
+
+    public ClassData getSuperVariable(String variableName, ClassData varClass) {
+        if(varClass.getParent() == null) {
+            return null;
         }
 
-        return varClassParent;
+        return getVariableOwner(variableName, varClass.getParent());
     }
 
     // Method for printing
     public void printSymbolTable() {
+        printSymbolTable(System.out);
+    }
+
+    // Same as above, but prints into the given stream (used when many files are checked in parallel)
+    public void printSymbolTable(PrintStream out) {
 
         int classNum = this.classes.size();
         for(int i = 1; i < classNum; i++) {
@@ -158,26 +294,26 @@ public class SymbolTable {
             ClassData currentClass = this.classMap.get(className);
             //System.out.println("Information about class " + className + ":");
 
-            System.out.println("-----------Class " + currentClass.getName() + "-----------");
+            out.println("-----------Class " + currentClass.getName() + "-----------");
 
             // Fields
-            System.out.println("---Variables---");
+            out.println("---Variables---");
 
             for(int j = 0; j < currentClass.getVariables().size(); j++){
-                System.out.println(currentClass.getName() + "." + currentClass.getVariables().get(j).getName() + " : " + currentClass.getVariables().get(j).getOffset());
+                out.println(currentClass.getName() + "." + currentClass.getVariables().get(j).getName() + " : " + currentClass.getVariables().get(j).getOffset());
             }
 
             // Methods
-            System.out.println("---Methods---");
+            out.println("---Methods---");
 
             for (int k = 0; k < currentClass.getMethods().size(); k++) {
                 MethodData currentMethod = currentClass.getMethods().get(k);
                 if(!(currentClass.getParent() != null && methodExistsInSuper(currentMethod.getName(), currentClass))) {
-                    System.out.println(currentMethod.getClassData().getName() + "." + currentMethod.getName() + " : " + currentMethod.getOffset());
+                    out.println(currentMethod.getClassData().getName() + "." + currentMethod.getName() + " : " + currentMethod.getOffset());
                 }
             }
 
-            System.out.println();
+            out.println();
         }
     }
 
@@ -194,7 +330,7 @@ public class SymbolTable {
            for(int j = 0; j < currentClass.getVariables().size(); j++) {
                 currentField = currentClass.getVariables().get(j);
 
-                if(currentField.getType().equals("int")) {
+                if(currentField.getType() == DataType.INT) {
 
                     if(currentClass.getParent() != null) {
 
@@ -216,7 +352,7 @@ public class SymbolTable {
                         currentClass.incFieldOffset(4);
                     }
                 }
-                else if(currentField.getType().equals("boolean")) {
+                else if(currentField.getType() == DataType.BOOLEAN) {
 
                     if(currentClass.getParent() != null) {
 
@@ -238,7 +374,7 @@ public class SymbolTable {
                         currentClass.incFieldOffset(1);
                     }
                 }
-                else if(currentField.getType().equals("int[]")) {
+                else if(currentField.getType() == DataType.INT_ARRAY) {
 
                     if(currentClass.getParent() != null) {
 
@@ -316,4 +452,125 @@ public class SymbolTable {
             }
         }
     }
+
+    // Write the classes with their fields and methods and the offsets computed by setOffsets(), for CheckCache.
+    // The names of all the classes come first, so that the types of the members can refer to any class when read.
+    public void write(DataOutputStream output) throws IOException {
+        output.writeInt(this.classes.size());
+
+        for(int i = 0; i < this.classes.size(); i++) {
+            ClassData currentClass = this.classMap.get(this.classes.get(i));
+
+            output.writeUTF(currentClass.getName());
+            output.writeUTF((currentClass.getParent() != null) ? currentClass.getParent().getName() : "");
+            output.writeInt(currentClass.getFieldOffset());
+            output.writeInt(currentClass.getMethodOffset());
+        }
+
+        for(int i = 0; i < this.classes.size(); i++) {
+            ClassData currentClass = this.classMap.get(this.classes.get(i));
+
+            writeIds(output, currentClass.getVariables());
+
+            output.writeInt(currentClass.getMethods().size());
+            for(int j = 0; j < currentClass.getMethods().size(); j++) {
+                MethodData currentMethod = currentClass.getMethods().get(j);
+
+                output.writeUTF(currentMethod.getName());
+                output.writeUTF(currentMethod.getReturnType().getName());
+                output.writeInt(currentMethod.getOffset());
+                writeIds(output, currentMethod.getArguments());
+                writeIds(output, currentMethod.getVariables());
+            }
+        }
+    }
+
+    protected static void writeIds(DataOutputStream output, ArrayList<IdData> ids) throws IOException {
+        output.writeInt(ids.size());
+
+        for(int i = 0; i < ids.size(); i++) {
+            output.writeUTF(ids.get(i).getName());
+            output.writeUTF(ids.get(i).getType().getName());
+            output.writeInt(ids.get(i).getOffset());
+        }
+    }
+
+    // Read a table written by write(); it is frozen, as after the checks, and its offsets are already set
+    public static SymbolTable read(DataInputStream input, Diagnostics diagnostics) throws IOException {
+        SymbolTable symbolTable = new SymbolTable(diagnostics);
+        int classNum = input.readInt();
+
+        for(int i = 0; i < classNum; i++) {
+            String className = input.readUTF();
+            String parentName = input.readUTF();
+            ClassData parent = parentName.isEmpty() ? null : symbolTable.getCertainClass(parentName);
+
+            ClassData classData = new ClassData(parent, className, 0);
+            classData.setFieldOffset(input.readInt());
+            classData.setMethodOffset(input.readInt());
+
+            symbolTable.getClasses().add(className);
+            symbolTable.insertClass(classData);
+            symbolTable.insertType(classData.getType());
+        }
+
+        for(int i = 0; i < classNum; i++) {
+            ClassData classData = symbolTable.getCertainClass(symbolTable.getClasses().get(i));
+
+            ArrayList<IdData> variables = symbolTable.readIds(input);
+            for(int j = 0; j < variables.size(); j++) {
+                classData.insertVariable(variables.get(j));
+            }
+
+            int methodNum = input.readInt();
+            for(int j = 0; j < methodNum; j++) {
+                String methodName = input.readUTF();
+                DataType returnType = symbolTable.readType(input.readUTF());
+
+                MethodData methodData = new MethodData(classData, returnType, methodName, input.readInt());
+
+                ArrayList<IdData> arguments = symbolTable.readIds(input);
+                for(int k = 0; k < arguments.size(); k++) {
+                    methodData.insertArgument(arguments.get(k));
+                }
+
+                ArrayList<IdData> methodVariables = symbolTable.readIds(input);
+                for(int k = 0; k < methodVariables.size(); k++) {
+                    methodData.insertVariable(methodVariables.get(k));
+                }
+
+                classData.insertMethod(methodData);
+            }
+        }
+
+        symbolTable.freezeHierarchy();
+        symbolTable.freezeMembers();
+
+        return symbolTable;
+    }
+
+    protected ArrayList<IdData> readIds(DataInputStream input) throws IOException {
+        int idNum = input.readInt();
+        ArrayList<IdData> ids = new ArrayList<IdData>(idNum);
+
+        for(int i = 0; i < idNum; i++) {
+            String name = input.readUTF();
+            DataType type = readType(input.readUTF());
+            ids.add(new IdData(type, false, name, input.readInt()));
+        }
+
+        return ids;
+    }
+
+    // The type with the given name, including the ones that are not valid data types for a variable
+    protected DataType readType(String typeName) {
+        if(typeName.equals(DataType.STRING_ARRAY.getName())) {
+            return DataType.STRING_ARRAY;
+        }
+        else if(typeName.equals(DataType.VOID.getName())) {
+            return DataType.VOID;
+        }
+
+        return resolveType(typeName);
+    }
 }
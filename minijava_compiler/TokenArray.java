@@ -0,0 +1,245 @@
+import java.nio.charset.*;
+import java.util.*;
+
+// The tokens of a whole file, scanned before the parse into parallel arrays of ints (--token-array): the kind, the
+// offset and the length of every token, comments included, with the end of the input as the last one. Nothing else
+// is kept for a token: the lines and the columns come from a LineMap of the file when they are asked for, and the
+// image of a token is made only when it is asked for.
+// Only plain ASCII files without backslashes are scanned this way, as for MappedCharStream, and only if they have no
+// lexical error: for any other file lex() returns null and the parser reads the file through JavaCharStream, which
+// reports the errors.
+// With --drop-comments the comments are not kept at all.
+
+public class TokenArray implements MiniJavaParserConstants {
+    protected byte[] source;
+    protected LineMap lineMap;
+
+    protected int count;
+    protected int[] kinds;
+    protected int[] starts;
+    protected int[] lengths;
+    protected boolean dropComments;
+
+    protected TokenArray(byte[] source, LineMap lineMap) {
+        int capacity = source.length / 4 + 16;
+
+        this.source = source;
+        this.lineMap = lineMap;
+        this.count = 0;
+        this.kinds = new int[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+    }
+
+    // The same tokens as the given ones, with the given LineMap
+    protected TokenArray(TokenArray tokens, LineMap lineMap) {
+        this.source = tokens.source;
+        this.lineMap = lineMap;
+        this.count = tokens.count;
+        this.kinds = tokens.kinds;
+        this.starts = tokens.starts;
+        this.lengths = tokens.lengths;
+        this.dropComments = tokens.dropComments;
+    }
+
+    // Scans the whole source, or returns null if it cannot be scanned this way
+    public static TokenArray lex(byte[] source) {
+        return lex(source, false);
+    }
+
+    // Same, without the comments if dropComments is set
+    public static TokenArray lex(byte[] source, boolean dropComments) {
+        LineMap lineMap = new LineMap();
+        int length = source.length;
+        boolean previousIsCR = false;
+
+        for(int i = 0; i < length; i++) {
+            byte c = source[i];
+
+            if(c < 0 || c == '\\') {
+                return null;
+            }
+
+            if(previousIsCR && c != '\n') {
+                lineMap.addLineStart(i);
+            }
+            previousIsCR = (c == '\r');
+
+            if(c == '\n') {
+                lineMap.addLineStart(i + 1);
+            }
+            else if(c == '\t') {
+                lineMap.addTab(i);
+            }
+        }
+
+        if(previousIsCR) {
+            lineMap.addLineStart(length);
+        }
+
+        TokenArray tokens = new TokenArray(source, lineMap);
+        tokens.dropComments = dropComments;
+        return tokens.scan() ? tokens : null;
+    }
+
+    // Scans the tokens as DfaTokenManager does; returns false at the first lexical error
+    protected boolean scan() {
+        byte[] source = this.source;
+        int length = source.length;
+        int i = 0;
+
+        for(;;) {
+            while(i < length && source[i] <= ' ' && (0x100003600L & (1L << source[i])) != 0L) {
+                i++;
+            }
+
+            if(i == length) {
+                add(EOF, length, 0);
+                return true;
+            }
+
+            int state = DfaLexer.START;
+            int kind = -1;          // kind of the longest token so far
+            int matched = 0;        // and its length
+
+            for(int p = i; p < length; ) {
+                int next = DfaLexer.next(state, (char) source[p]);
+
+                if(next < 0) {
+                    break;
+                }
+                state = next;
+                p++;
+
+                if(DfaLexer.accept(state) >= 0) {
+                    kind = DfaLexer.accept(state);
+                    matched = p - i;
+                }
+                if(DfaLexer.isFinal(state)) {
+                    break;
+                }
+            }
+
+            if(kind < 0) {
+                return false;
+            }
+
+            if(kind == IDENTIFIER) {
+                kind = DfaLexer.keyword(source, i, matched);
+
+                if(kind == IDENTIFIER && DfaLexer.isSystem(source, i, matched) && isPrint(i + matched)) {
+                    kind = PRINT;
+                    matched += DfaLexer.PRINT_REST.length;
+                }
+            }
+
+            if(this.dropComments && CommentDroppingTokenManager.isComment(kind)) {
+                i += matched;
+                continue;
+            }
+
+            add(kind, i, matched);
+            i += matched;
+        }
+    }
+
+    // Whether ".out.println" is at the given offset
+    protected boolean isPrint(int offset) {
+        char[] rest = DfaLexer.PRINT_REST;
+
+        if(offset + rest.length > this.source.length) {
+            return false;
+        }
+        for(int i = 0; i < rest.length; i++) {
+            if(this.source[offset + i] != rest[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected void add(int kind, int start, int length) {
+        if(this.count == this.kinds.length) {
+            int capacity = this.count * 2;
+
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+        }
+
+        this.kinds[this.count] = kind;
+        this.starts[this.count] = start;
+        this.lengths[this.count] = length;
+        this.count++;
+    }
+
+    // The same tokens, to be read on another thread: their positions come from a LineMap of their own
+    public TokenArray view() {
+        return new TokenArray(this, new LineMap(this.lineMap));
+    }
+
+    public byte[] getSource() {
+        return this.source;
+    }
+
+    public LineMap getLineMap() {
+        return this.lineMap;
+    }
+
+    // The number of tokens, the comments and the end of the input included
+    public int getTokenCount() {
+        return this.count;
+    }
+
+    public int getKind(int token) {
+        return this.kinds[token];
+    }
+
+    public int getStart(int token) {
+        return this.starts[token];
+    }
+
+    public int getLength(int token) {
+        return this.lengths[token];
+    }
+
+    // Whether the token is a comment, which the grammar makes a special token
+    public boolean isSpecial(int token) {
+        int kind = this.kinds[token];
+        return kind == SINGLE_LINE_COMMENT || kind == FORMAL_COMMENT || kind == MULTI_LINE_COMMENT;
+    }
+
+    // The image of the token as the generated token manager makes it
+    public String getImage(int token) {
+        String image = MiniJavaParserTokenManager.jjstrLiteralImages[this.kinds[token]];
+        if(image != null) {
+            return image;
+        }
+        return new String(this.source, this.starts[token], this.lengths[token], StandardCharsets.US_ASCII);
+    }
+
+    // The end of the input takes the position of the last character of the file, as in JavaCharStream
+    protected int beginOffset(int token) {
+        return (this.kinds[token] == EOF) ? this.source.length - 1 : this.starts[token];
+    }
+
+    protected int endOffset(int token) {
+        return (this.kinds[token] == EOF) ? this.source.length - 1 : this.starts[token] + this.lengths[token] - 1;
+    }
+
+    public int getBeginLine(int token) {
+        return this.lineMap.getLine(beginOffset(token));
+    }
+
+    public int getBeginColumn(int token) {
+        return this.lineMap.getColumn(beginOffset(token));
+    }
+
+    public int getEndLine(int token) {
+        return this.lineMap.getLine(endOffset(token));
+    }
+
+    public int getEndColumn(int token) {
+        return this.lineMap.getColumn(endOffset(token));
+    }
+}
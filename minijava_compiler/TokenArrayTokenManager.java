@@ -0,0 +1,62 @@
+// The tokens of a TokenArray handed to the generated parser one at a time (--token-array).
+// The parser links the Tokens it is given, so a Token is still made for every token it reads, but only then, with the
+// positions worked out from the line starts.
+// The comments before a token are chained into its special tokens, as the generated token manager does.
+// A token manager can also hand out only a range of the tokens, followed by the end of the input, to parse a part of
+// the file on its own (see ParallelParser).
+
+public class TokenArrayTokenManager extends MiniJavaParserTokenManager {
+    protected TokenArray tokens;
+    protected int index;            // the next token to hand out
+    protected int end;              // the token after the last one of the range, then the end of the input comes
+
+    public TokenArrayTokenManager(TokenArray tokens) {
+        this(tokens, 0, tokens.getTokenCount() - 1);
+    }
+
+    // Hands out the tokens from first to the one before end, then the end of the input
+    public TokenArrayTokenManager(TokenArray tokens, int first, int end) {
+        super((JavaCharStream) null);
+        this.tokens = tokens;
+        this.index = first;
+        this.end = end;
+    }
+
+    public TokenArray getTokens() {
+        return this.tokens;
+    }
+
+    @Override
+    public Token getNextToken() {
+        Token specialToken = null;
+
+        for(;;) {
+            // The end of the input is handed out again if the parser asks past it
+            int i = (this.index < this.end) ? this.index++ : this.tokens.getTokenCount() - 1;
+
+            Token token = newToken(i);
+
+            if(!this.tokens.isSpecial(i)) {
+                token.specialToken = specialToken;
+                return token;
+            }
+
+            if(specialToken != null) {
+                token.specialToken = specialToken;
+                specialToken.next = token;
+            }
+            specialToken = token;
+        }
+    }
+
+    protected Token newToken(int i) {
+        Token token = Token.newToken(this.tokens.getKind(i), this.tokens.getImage(i));
+
+        token.beginLine = this.tokens.getBeginLine(i);
+        token.beginColumn = this.tokens.getBeginColumn(i);
+        token.endLine = this.tokens.getEndLine(i);
+        token.endColumn = this.tokens.getEndColumn(i);
+
+        return token;
+    }
+}
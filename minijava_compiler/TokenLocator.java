@@ -0,0 +1,33 @@
+import syntaxtree.*;
+import visitor.*;
+
+// Finds the first token of a node that carries position information, so that a diagnostic can point at it.
+
+class TokenLocator extends DepthFirstVisitor {
+
+    protected NodeToken first;
+
+    public static NodeToken locate(Node node) {
+        if(node == null) {
+            return null;
+        }
+
+        TokenLocator locator = new TokenLocator();
+
+        try{
+            node.accept(locator);
+        }
+
+        catch(Exception ex){
+            // The traversal does not throw, nothing to be done
+        }
+
+        return locator.first;
+    }
+
+    public void visit(NodeToken n) {
+        if(this.first == null && n.beginLine >= 0) {
+            this.first = n;
+        }
+    }
+}
@@ -2,7 +2,7 @@ import syntaxtree.*;
 import visitor.*;
 import java.util.*;
 
-class Visitor1 extends GJDepthFirst<String, Data>{
+class Visitor1 extends IndexedDepthFirst<String, Data>{
 
     protected SymbolTable symbolTable;
 
@@ -51,14 +51,10 @@ class Visitor1 extends GJDepthFirst<String, Data>{
         // Get the class's name and check if it is already declared, if not insert it in the symboltable
         String className = node.f1.accept(this, null);
 
-        if(this.symbolTable.getClasses().contains(className)) {
-            System.out.println("Class name " + className + " already defined!");
-            System.exit(-1);
+        if(this.symbolTable.getClassMap().containsKey(className)) {
+            throw this.symbolTable.error(node.f1, "Class name " + className + " already defined!");
         }
 
-        // Add the name of the class to the list of valid data types
-        this.symbolTable.getValidTypes().add(className);
-
         // Add the name of the current class to the list
         this.symbolTable.getClasses().add(className);
         
@@ -68,6 +64,9 @@ class Visitor1 extends GJDepthFirst<String, Data>{
         // Create a mapping for the current class
         this.symbolTable.insertClass(classData);
 
+        // Add the type of the class to the valid data types
+        this.symbolTable.insertType(classData.getType());
+
         return null;
     }
 
@@ -92,14 +91,10 @@ class Visitor1 extends GJDepthFirst<String, Data>{
      */
     public String visit(ClassDeclaration node, Data argu) throws Exception {
         String className = node.f1.accept(this, null);
-        if(this.symbolTable.getClasses().contains(className)) {
-            System.out.println("Class name " + className + " already defined!");
-            System.exit(-1);
+        if(this.symbolTable.getClassMap().containsKey(className)) {
+            throw this.symbolTable.error(node.f1, "Class name " + className + " already defined!");
         }
 
-        // Add the name of the class to the list of valid data types
-        this.symbolTable.getValidTypes().add(className);
-
         // Add the name of the current class to the list
         this.symbolTable.getClasses().add(className);
         
@@ -109,6 +104,9 @@ class Visitor1 extends GJDepthFirst<String, Data>{
         // Create a mapping for the current class
         this.symbolTable.insertClass(classData);
 
+        // Add the type of the class to the valid data types
+        this.symbolTable.insertType(classData.getType());
+
         return null;
     }
 
@@ -124,30 +122,23 @@ class Visitor1 extends GJDepthFirst<String, Data>{
      */
     public String visit(ClassExtendsDeclaration node, Data argu) throws Exception {
         String className = node.f1.accept(this, null);
-        if(this.symbolTable.getClasses().contains(className)) {
-            System.out.println("Class name " + className + " already defined!");
-            System.exit(-1);
+        if(this.symbolTable.getClassMap().containsKey(className)) {
+            throw this.symbolTable.error(node.f1, "Class name " + className + " already defined!");
         }
 
-        // Add the name of the class to the list of valid data types
-        this.symbolTable.getValidTypes().add(className);
-
         // Add the name of the current class to the list
         this.symbolTable.getClasses().add(className);
 
         // This class inherits from another. We must check if this extension is valid.
         // First we have to check if super class exists
         String superclassName = node.f3.accept(this, null);
-        ArrayList<String> classes = this.symbolTable.getClasses();
-        if(!classes.contains(superclassName)) {
-            System.out.println("Super class " + superclassName + " does not exist!");
-            System.exit(-1);
+        if(!superclassName.equals(className) && !this.symbolTable.getClassMap().containsKey(superclassName)) {
+            throw this.symbolTable.error(node.f3, "Super class " + superclassName + " does not exist!");
         }
 
         // Then check if super class name and child class name match
         if(superclassName.equals(className)) {
-            System.out.println("Super class name and Child class name match! " + superclassName);
-            System.exit(-1);
+            throw this.symbolTable.error(node.f3, "Super class name and Child class name match! " + superclassName);
         }
 
         ClassData superClass = this.symbolTable.getClassMap().get(superclassName);
@@ -157,6 +148,9 @@ class Visitor1 extends GJDepthFirst<String, Data>{
         // Create a mapping for the current class
         this.symbolTable.insertClass(classData);
 
+        // Add the type of the class to the valid data types
+        this.symbolTable.insertType(classData.getType());
+
         return null;
     }
 
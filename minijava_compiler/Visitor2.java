@@ -3,14 +3,22 @@ import visitor.*;
 import java.util.*;
 
 
-class Visitor2 extends GJDepthFirst<String, Data>{
+class Visitor2 extends IndexedDepthFirst<String, Data>{
 
     protected SymbolTable symbolTable;
+    protected ArrayList<MethodBody> bodies;     // Where the method bodies are queued for Visitor 3, if they are
 
     public Visitor2(SymbolTable symbolTable){
         this.symbolTable = symbolTable;
     }
 
+    // Same as above, but also queues every method body in source order, so that Visitor 3 can check them
+    // without walking the whole tree again
+    public Visitor2(SymbolTable symbolTable, ArrayList<MethodBody> bodies){
+        this.symbolTable = symbolTable;
+        this.bodies = bodies;
+    }
+
     /**
      * f0 -> MainClass()
      * f1 -> ( TypeDeclaration() )*
@@ -57,19 +65,17 @@ class Visitor2 extends GJDepthFirst<String, Data>{
         // Now we continue where we left of from Visitor1...
 
         // Get the return type and name of main function.
-        String returnType = "void";
+        DataType returnType = DataType.VOID;
         String methodName = "main";
 
         // Check if method has same name as its class
         if(cdata.getName().equals(methodName)) {
-            System.out.println("Method cannot have the same name as class! " + methodName);
-            System.exit(-1);
+            throw this.symbolTable.error(node.f1, "Method cannot have the same name as class! " + methodName);
         }
 
         // Check if method has already been defined
         if(cdata.methodExists(methodName)) {
-            System.out.println("Method " + methodName + " already defined in class!");
-            System.exit(-1);
+            throw this.symbolTable.error(node.f1, "Method " + methodName + " already defined in class!");
         }
 
         // Create new method data 
@@ -78,7 +84,7 @@ class Visitor2 extends GJDepthFirst<String, Data>{
         cdata.insertMethod(newMethod);
 
         // Get the type of the method's argument
-        String argumentType = "String[]";
+        DataType argumentType = DataType.STRING_ARRAY;
         // Get the name of the method's argument
         String argumentName = "args";
 
@@ -89,8 +95,6 @@ class Visitor2 extends GJDepthFirst<String, Data>{
         IdData newArgument = new IdData(argumentType, true, argumentName, 0);
         // Adding the new identifier into the methods arguments
         newMethod.insertArgument(newArgument);
-        // Map the new data into method's VarMap
-        newMethod.insertIntoGeneralVarMap(newArgument);
 
         // Checking the variables
         if(node.f14.present()) {
@@ -99,19 +103,15 @@ class Visitor2 extends GJDepthFirst<String, Data>{
 
             // Loop for every declaration
             for(int i = 0; i < varDeclNum; i++) {
-                // Extract a string of form (variable_type, variable_name)
-                String variableDeclaration = node.f14.nodes.get(i).accept(this, null);
-
-                // Split string
-                String[] splittedString = variableDeclaration.split(" ");
-                String variableType = splittedString[0];
-                String variableName = splittedString[1];
+                // Get the type and the name of the variable
+                VarDeclaration variableDeclaration = (VarDeclaration) node.f14.nodes.get(i);
+                String typeName = variableDeclaration.f0.accept(this, null);
+                String variableName = variableDeclaration.f1.accept(this, null);
 
                 // Check if variable_type is valid
-                ArrayList<String> validTypes = this.symbolTable.getValidTypes();
-                if(!validTypes.contains(variableType)) {
-                    System.out.println("Invalid type: " + variableType + " for variable: " + variableName);
-                    System.exit(-1);
+                DataType variableType = this.symbolTable.getType(typeName);
+                if(variableType == null) {
+                    throw this.symbolTable.error(node.f14.nodes.get(i), "Invalid type: " + typeName + " for variable: " + variableName);
                 }
 
                 // Check if variable_name already exists
@@ -119,8 +119,7 @@ class Visitor2 extends GJDepthFirst<String, Data>{
                 int classVarNum = variableList.size(); 
                 for(int index = 0; index < classVarNum; index++) {
                     if(variableList.get(i).getName().equals(variableName)) {
-                        System.out.println("Variable " + variableName + " already defined in class!");
-                        System.exit(-1);
+                        throw this.symbolTable.error(node.f14.nodes.get(i), "Variable " + variableName + " already defined in class!");
                     }
                 }
 
@@ -129,11 +128,13 @@ class Visitor2 extends GJDepthFirst<String, Data>{
                 IdData newMethVariable = new IdData(variableType, false, variableName, 0);
                 // Insert it into the methodData
                 newMethod.insertVariable(newMethVariable);
-                // Map the new data into method's VarMap
-                newMethod.insertIntoGeneralVarMap(newMethVariable);
             }
         }
 
+        if(this.bodies != null) {
+            this.bodies.add(new MethodBody(node, newMethod));
+        }
+
         return null;
     }
 
@@ -170,29 +171,20 @@ class Visitor2 extends GJDepthFirst<String, Data>{
 
             // Loop for every declaration
             for(int i = 0; i < varDeclNum; i++) {
-                // Extract a string of form (variable_type, variable_name)
-                String variableDeclaration = node.f3.nodes.get(i).accept(this, null);
-
-                // Split string
-                String[] splittedString = variableDeclaration.split(" ");
-                String variableType = splittedString[0];
-                String variableName = splittedString[1];
+                // Get the type and the name of the variable
+                VarDeclaration variableDeclaration = (VarDeclaration) node.f3.nodes.get(i);
+                String typeName = variableDeclaration.f0.accept(this, null);
+                String variableName = variableDeclaration.f1.accept(this, null);
 
                 // Check if variable_type is valid
-                ArrayList<String> validTypes = this.symbolTable.getValidTypes();
-                if(!validTypes.contains(variableType)) {
-                    System.out.println("Invalid type: " + variableType + " for variable: " + variableName);
-                    System.exit(-1);
+                DataType variableType = this.symbolTable.getType(typeName);
+                if(variableType == null) {
+                    throw this.symbolTable.error(node.f3.nodes.get(i), "Invalid type: " + typeName + " for variable: " + variableName);
                 }
 
                 // Check if variable_name already exists
-                ArrayList<IdData> variableList = cdata.getVariables();
-                int classVarNum = variableList.size(); 
-                for(int index = 0; index < classVarNum; index++) {
-                    if(variableList.get(index).getName().equals(variableName)) {
-                        System.out.println("Variable " + variableName + " already defined in class!");
-                        System.exit(-1);
-                    }
+                if(cdata.variableExists(variableName)) {
+                    throw this.symbolTable.error(node.f3.nodes.get(i), "Variable " + variableName + " already defined in class!");
                 }
 
                 // variable_type is valid and variable_name does not already exists so we insert the new variable in symboltable
@@ -227,29 +219,20 @@ class Visitor2 extends GJDepthFirst<String, Data>{
 
             // Loop for every declaration
             for(int i = 0; i < varDeclNum; i++) {
-                // Extract a string of form (variable_type, variable_name)
-                String variableDeclaration = node.f5.nodes.get(i).accept(this, null);
-
-                // Split string
-                String[] splittedString = variableDeclaration.split(" ");
-                String variableType = splittedString[0];
-                String variableName = splittedString[1];
+                // Get the type and the name of the variable
+                VarDeclaration variableDeclaration = (VarDeclaration) node.f5.nodes.get(i);
+                String typeName = variableDeclaration.f0.accept(this, null);
+                String variableName = variableDeclaration.f1.accept(this, null);
 
                 // Check if variable_type is valid
-                ArrayList<String> validTypes = this.symbolTable.getValidTypes();
-                if(!validTypes.contains(variableType)) {
-                    System.out.println("Invalid type: " + variableType + " for variable: " + variableName);
-                    System.exit(-1);
+                DataType variableType = this.symbolTable.getType(typeName);
+                if(variableType == null) {
+                    throw this.symbolTable.error(node.f5.nodes.get(i), "Invalid type: " + typeName + " for variable: " + variableName);
                 }
 
                 // Check if variable_name already exists
-                ArrayList<IdData> variableList = cdata.getVariables();
-                int classVarNum = variableList.size();    
-                for(int index = 0; index < classVarNum; index++) {
-                    if(variableList.get(index).getName().equals(variableName)) {
-                        System.out.println("Variable " + variableName + " already defined in class!");
-                        System.exit(-1);
-                    }
+                if(cdata.variableExists(variableName)) {
+                    throw this.symbolTable.error(node.f5.nodes.get(i), "Variable " + variableName + " already defined in class!");
                 }
 
                 // variable_type is valid and variable_name does not already exists so we insert the new variable in symboltable
@@ -268,15 +251,6 @@ class Visitor2 extends GJDepthFirst<String, Data>{
         return null;
     }
 
-    /**
-     * f0 -> Type()
-     * f1 -> Identifier()
-     * f2 -> ";"
-     */
-    public String visit(VarDeclaration node, Data argu) throws Exception {
-        return (node.f0.accept(this, null) + " " + node.f1.accept(this, null));
-    }
-
     /**
      * f0 -> "public"
      * f1 -> Type()
@@ -298,27 +272,24 @@ class Visitor2 extends GJDepthFirst<String, Data>{
         ClassData cdata = (ClassData) argu;
 
         // Get the return type of method
-        String returnType = node.f1.accept(this, null);
+        String returnTypeName = node.f1.accept(this, null);
         // Get the method name 
         String methodName = node.f2.accept(this, null);
 
         // Check if variable_type is valid
-        ArrayList<String> validTypes = this.symbolTable.getValidTypes();
-        if(!validTypes.contains(returnType)) {
-            System.out.println("Invalid return type: " + returnType + " for method: " + methodName);
-            System.exit(-1);
+        DataType returnType = this.symbolTable.getType(returnTypeName);
+        if(returnType == null) {
+            throw this.symbolTable.error(node.f1, "Invalid return type: " + returnTypeName + " for method: " + methodName);
         }
 
         // Check if method has already been defined
         if(cdata.methodExists(methodName)) {
-            System.out.println("Method " + methodName + " already defined in class!");
-            System.exit(-1);
+            throw this.symbolTable.error(node.f2, "Method " + methodName + " already defined in class!");
         }
 
         // Check if method has same name as its class
         if(cdata.getName().equals(methodName)) {
-            System.out.println("Method cannot have the same name as class!" + methodName);
-            System.exit(1);
+            throw this.symbolTable.error(node.f2, "Method cannot have the same name as class!" + methodName, 1, true);
         }
 
         // After the checks create the method's data
@@ -341,25 +312,22 @@ class Visitor2 extends GJDepthFirst<String, Data>{
             MethodData superMethod = superClass.getCertainMethod(newMethod.getName());
 
             // The methods must have the same return type
-            if(!superMethod.getReturnType().equals(newMethod.getReturnType())) {
-                System.out.println("Method " + methodName + " has different return types in super class " + superClass.getName());
-                System.exit(-1);
+            if(superMethod.getReturnType() != newMethod.getReturnType()) {
+                throw this.symbolTable.error(node.f2, "Method " + methodName + " has different return types in super class " + superClass.getName());
             }
 
             // The methods must have the same number of arguments
             if(superMethod.getArguments().size() != newMethod.getArguments().size()) {
-                System.out.println("Method " + methodName + " must have the same number of arguments in both the super class " + superClass.getName() + " and sub class " + cdata.getName());
-                System.exit(-1);
+                throw this.symbolTable.error(node.f2, "Method " + methodName + " must have the same number of arguments in both the super class " + superClass.getName() + " and sub class " + cdata.getName());
             }
 
             // The arguments in both methods must have the same data types
             for(int i = 0; i < superMethod.getArguments().size(); i++) {
-                String superType = superMethod.getArguments().get(i).getType();
-                String childType = newMethod.getArguments().get(i).getType();
+                DataType superType = superMethod.getArguments().get(i).getType();
+                DataType childType = newMethod.getArguments().get(i).getType();
 
-                if(!superType.equals(childType)) {
-                    System.out.println("Method " + methodName + "() must have the same type of argumentsin both the super class " + superClass.getName() + " and sub class " + cdata.getName());
-                    System.exit(-1);
+                if(superType != childType) {
+                    throw this.symbolTable.error(node.f2, "Method " + methodName + "() must have the same type of argumentsin both the super class " + superClass.getName() + " and sub class " + cdata.getName());
                 }
             }
 
@@ -372,24 +340,20 @@ class Visitor2 extends GJDepthFirst<String, Data>{
 
             // Loop for every declaration
             for(int i = 0; i < varDeclNum; i++) {
-                // Extract a string of form (variable_type, variable_name)
-                String variableDeclaration = node.f7.nodes.get(i).accept(this, null);
-
-                // Split string
-                String[] splittedString = variableDeclaration.split(" ");
-                String variableType = splittedString[0];
-                String variableName = splittedString[1];
+                // Get the type and the name of the variable
+                VarDeclaration variableDeclaration = (VarDeclaration) node.f7.nodes.get(i);
+                String typeName = variableDeclaration.f0.accept(this, null);
+                String variableName = variableDeclaration.f1.accept(this, null);
 
                 // Check if variable_type is valid
-                if(!validTypes.contains(variableType)) {
-                    System.out.println("Invalid type: " + variableType + " for variable: " + variableName);
-                    System.exit(-1);
+                DataType variableType = this.symbolTable.getType(typeName);
+                if(variableType == null) {
+                    throw this.symbolTable.error(node.f7.nodes.get(i), "Invalid type: " + typeName + " for variable: " + variableName);
                 }
 
                 // Check if variable already exists in method
                 if(newMethod.variableExists(variableName)) {
-                    System.out.println("Variable " + variableName + " already defined in method!");
-                    System.exit(-1);
+                    throw this.symbolTable.error(node.f7.nodes.get(i), "Variable " + variableName + " already defined in method!");
                 }
 
                 // variable_type is valid and variable_name does not already exists so we insert the new variable in symboltable
@@ -397,10 +361,12 @@ class Visitor2 extends GJDepthFirst<String, Data>{
                 IdData newMethVariable = new IdData(variableType, false, variableName, 0);
                 // Insert it into the methodData
                 newMethod.insertVariable(newMethVariable);
-                // Map the new data into method's VarMap
-                newMethod.insertIntoGeneralVarMap(newMethVariable);
             }
         }
+
+        if(this.bodies != null) {
+            this.bodies.add(new MethodBody(node, newMethod));
+        }
         
         return null;
     }
@@ -425,24 +391,18 @@ class Visitor2 extends GJDepthFirst<String, Data>{
         // First of all
         MethodData methData = (MethodData) mdata;
 
-        String argumentType = node.f0.accept(this, null);
+        String argumentTypeName = node.f0.accept(this, null);
         String argumentName = node.f1.accept(this, null);
 
         // Check if argumnent_type is valid
-        if(!this.symbolTable.getValidTypes().contains(argumentType)) {
-            System.out.println("Invalid argument type: " + argumentType + " for argument: " + argumentName);
-            System.exit(-1);
+        DataType argumentType = this.symbolTable.getType(argumentTypeName);
+        if(argumentType == null) {
+            throw this.symbolTable.error(node.f0, "Invalid argument type: " + argumentTypeName + " for argument: " + argumentName);
         }
 
         // Checking if the argument_name already exists in arguments list
-        ArrayList<IdData> argumentList = methData.getArguments();
-        int methodArgNum = argumentList.size(); 
-
-        for(int index = 0; index < methodArgNum; index++) {
-            if(argumentList.get(index).getName().equals(argumentName)) {
-                System.out.println("Argument " + argumentName + " already defined in method!");
-                System.exit(-1);
-            }
+        if(methData.argumentExists(argumentName)) {
+            throw this.symbolTable.error(node.f1, "Argument " + argumentName + " already defined in method!");
         }
 
         // argument_type is valid and argument_name does not already exists so we insert the new argument in symboltable
@@ -450,8 +410,6 @@ class Visitor2 extends GJDepthFirst<String, Data>{
         IdData newArgument = new IdData(argumentType, true, argumentName, 0);
         // Insert it into the method's argument list
         methData.insertArgument(newArgument);
-        // Map the new data into method's VarMap
-        methData.insertIntoGeneralVarMap(newArgument);
 
         return null;
     }
@@ -1,12 +1,22 @@
 import syntaxtree.*;
 import visitor.*;
+import java.util.*;
 
-class Visitor3 extends GJDepthFirst<String, Data>{
+class Visitor3 extends IndexedDepthFirst<DataType, Data>{
 
     protected SymbolTable symbolTable;
+    protected Diagnostics diagnostics;              // Where the errors are reported
+    protected ArrayList<DataType> argumentTypes;    // The types of the arguments of the calls being checked, innermost call last
 
     public Visitor3(SymbolTable symbolTable){
+        this(symbolTable, symbolTable.getDiagnostics());
+    }
+
+    // Same as above, but the errors are reported into the given diagnostics instead of the ones of the symbol table
+    public Visitor3(SymbolTable symbolTable, Diagnostics diagnostics){
         this.symbolTable = symbolTable;
+        this.diagnostics = diagnostics;
+        this.argumentTypes = new ArrayList<DataType>();
     }
 
     /**
@@ -14,7 +24,7 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f1 -> ( TypeDeclaration() )*
      * f2 -> <EOF>
      */
-    public String visit(Goal node, Data argu) throws Exception{
+    public DataType visit(Goal node, Data argu) throws Exception{
         // Call main class
         node.f0.accept(this, null);
         
@@ -46,28 +56,33 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f16 -> "}"
      * f17 -> "}"
      */
-    public String visit(MainClass node, Data argu) throws Exception {
+    public DataType visit(MainClass node, Data argu) throws Exception {
 
         // First of all retrieve the current class data
-        String className = node.f1.accept(this, null);
+        String className = node.f1.f0.toString();
         ClassData cdata = this.symbolTable.getClassMap().get(className);
 
         // Get the current method
         String methodName = "main";
         MethodData mdata = cdata.getCertainMethod(methodName);
 
+        checkMainBody(node, mdata);
+
+        return null;
+    }
+
+    // Check the statements of main
+    public void checkMainBody(MainClass node, MethodData mdata) throws Exception {
         if (node.f15.present()) {
             node.f15.accept(this, mdata);
         }
-
-        return null;
     }
 
     /**
      * f0 -> ClassDeclaration
      *      | ClassExtendsDeclaration
      */
-    public String visit(TypeDeclaration node, Data argu) throws Exception {
+    public DataType visit(TypeDeclaration node, Data argu) throws Exception {
         // Either call ClassDeclaration or ClassExtendsDeclaration
         node.f0.accept(this, null);
         return null;
@@ -81,10 +96,10 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f4 -> ( MethodDeclaration() )*
      * f5 -> "}"
      */
-    public String visit(ClassDeclaration node, Data argu) throws Exception{
+    public DataType visit(ClassDeclaration node, Data argu) throws Exception{
 
         // First of all retrieve the current class data
-        String className = node.f1.accept(this, null);
+        String className = node.f1.f0.toString();
         ClassData cdata = this.symbolTable.getClassMap().get(className);
 
         if (node.f4.present()) {
@@ -104,10 +119,10 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f6 -> ( MethodDeclaration() )*
      * f7 -> "}"
      */
-    public String visit(ClassExtendsDeclaration node, Data argu) throws Exception {
+    public DataType visit(ClassExtendsDeclaration node, Data argu) throws Exception {
 
         // First of all retrieve the current class data
-        String className = node.f1.accept(this, null);
+        String className = node.f1.f0.toString();
         ClassData cdata = this.symbolTable.getClassMap().get(className);
 
         if (node.f6.present()) {
@@ -132,31 +147,51 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f11 -> ";"
      * f12 -> "}"
      */
-    public String visit(MethodDeclaration node, Data cdata) throws Exception {
+    public DataType visit(MethodDeclaration node, Data cdata) throws Exception {
 
         // First of all
         ClassData currentClass = (ClassData) cdata;
 
         // Get the current method's name so that we know which method we update
-        String methodName = node.f2.accept(this, null);
+        String methodName = node.f2.f0.toString();
         // Get the class's method
         MethodData currentMethod = currentClass.getCertainMethod(methodName);
 
+        checkMethodBody(node, currentMethod);
+
+        return null;
+    }
+
+    // Check the statements and the return expression of a method
+    public void checkMethodBody(MethodDeclaration node, MethodData currentMethod) throws Exception {
         if (node.f8.present()) {
             node.f8.accept(this, currentMethod);
         }
 
         // Check if return type does not match the method's type
-        String returnType = node.f10.accept(this, currentMethod);
-        if (!currentMethod.getReturnType().equals(returnType)) {
-            System.out.println("Incompatible return type! " + returnType + " for method: " + currentMethod.getName());
-            System.exit(-1);
+        DataType returnType = node.f10.accept(this, currentMethod);
+        if (currentMethod.getReturnType() != returnType) {
+            throw this.diagnostics.error(node.f10, "Incompatible return type! " + returnType + " for method: " + currentMethod.getName());
         }
 
         // Visit the Expression node with some information
         node.f10.accept(this, currentMethod);
+    }
 
-        return null;
+    // Check the bodies queued by Visitor 2, in their order, instead of walking the tree from the Goal
+    public void checkBodies(ArrayList<MethodBody> bodies) throws Exception {
+        for (int i = 0; i < bodies.size(); i++) {
+            checkBody(bodies.get(i));
+        }
+    }
+
+    public void checkBody(MethodBody body) throws Exception {
+        if (body.getNode() instanceof MainClass) {
+            checkMainBody((MainClass) body.getNode(), body.getMethodData());
+        }
+        else {
+            checkMethodBody((MethodDeclaration) body.getNode(), body.getMethodData());
+        }
     }
 
     /**
@@ -167,7 +202,7 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * | WhileStatement()
      * | PrintStatement()
      */
-    public String visit(Statement node, Data mdata) throws Exception{
+    public DataType visit(Statement node, Data mdata) throws Exception{
         node.f0.accept(this, mdata);
         return null;
     }
@@ -177,7 +212,7 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f1 -> ( Statement() )*
      * f2 -> "}"
      */
-    public String visit(Block node, Data mdata) throws Exception{
+    public DataType visit(Block node, Data mdata) throws Exception{
         if (node.f1.present()) {
             node.f1.accept(this, mdata);
         }
@@ -191,117 +226,48 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f2 -> Expression()
      * f3 -> ";"
      */
-    public String visit(AssignmentStatement node, Data mdata) throws Exception{
+    public DataType visit(AssignmentStatement node, Data mdata) throws Exception{
 
         // First of all
         MethodData currentMethod = (MethodData) mdata;
 
         // Get the identifier's name
-        String identifier = node.f0.accept(this, null);
+        String identifier = node.f0.f0.toString();
         
-        // Check if identifier is defined locally inside function
-        if(currentMethod.variableExists(identifier)) {
-            
-            // Identifier (variable) has been defined inside method so we continue...
-            IdData identifiersData = currentMethod.getGeneralVarMap().get(identifier);
-
-            // Visit the expression node
-            String expressionType = node.f2.accept(this, currentMethod);
-
-            // First of all if epxression returned "this" we have to correct the expressionType
-            if(expressionType.equals("this")) {
-                expressionType = currentMethod.getClassData().getName();
-            }
-
-            if (!identifiersData.getType().equals(expressionType)) {
-
-                // Checking the case of polymorphism
-                if (this.symbolTable.getClassMap().get(expressionType) != null) {
-
-                    if (!(this.symbolTable.variableTypePolymorphism(identifiersData.getType(), this.symbolTable.getClassMap().get(expressionType)))) {
-                        System.out.println("Incompatible types! " + identifiersData.getType() + " " + expressionType);
-                        System.exit(-1);
-                    }
-                } else {
-                    System.out.println("Incompatible types! " + identifiersData.getType() + " " + expressionType); //////////////
-                    System.exit(-1);
-                }
-            }
-
-            // Mark the local variable as initialized
-            currentMethod.getCertainVariable(identifier).setInitialized(true);
-
-        } // Check if identifier refers to a variable of the class's method
-        else if (currentMethod.getClassData().variableExists(identifier)) {
-
-            // Identifier (variable) has been defined inside class's method so we continue...
-            IdData identifiersData = currentMethod.getClassData().getCertainVariable(identifier);
-
-            //StatementData sdata = new StatementData(currentMethod.getClassData(), currentMethod);
-            // Visit the expression node
-            String expressionType = node.f2.accept(this, currentMethod); ////////////////
+        // The identifier is either defined locally inside the function, or it is a field of the class or of a super class
+        IdData identifiersData;
+        IdData initializedData;
 
-            // First of all if epxression returned "this" we have to correct the expressionType
-            if(expressionType.equals("this")) {
-                expressionType = currentMethod.getClassData().getName();
-            }
-
-            if (!identifiersData.getType().equals(expressionType)) {
-
-                // Checking the case of polymorphism
-                if (this.symbolTable.getClassMap().get(expressionType) != null) {
-                    if (!(this.symbolTable.variableTypePolymorphism(identifiersData.getType(), this.symbolTable.getClassMap().get(expressionType)))) {
-                        System.out.println("Incompatible types! " + identifiersData.getType() + " " + expressionType);
-                        System.exit(-1);
-                    }
-                } else {
-                    System.out.println("Incompatible types! " + identifiersData.getType() + " " + expressionType);
-                    System.exit(-1);
-                }
-            }
-
-            // Mark the local variable as initialized
-            currentMethod.getClassData().getCertainVariable(identifier).setInitialized(true);
+        if(currentMethod.variableExists(identifier)) {
+            identifiersData = currentMethod.getLastVariable(identifier);
+            initializedData = currentMethod.getCertainVariable(identifier);
+        }
+        else {
+            identifiersData = this.symbolTable.lookupVariable(identifier, currentMethod.getClassData());
+            initializedData = identifiersData;
         }
 
-        // Case 3: if the identifier refers to a field of the superclass of the method (if it exists)
-        else if (this.symbolTable.variableExistsInSuper(identifier, currentMethod.getClassData())) {
-
-            // Identifier (variable) has been defined inside a super class of class's method so we continue...
-            IdData identifiersData = this.symbolTable.getSuperVariable(identifier, currentMethod.getClassData()).getCertainVariable(identifier);
-            
-            //StatementData sdata = new StatementData(currentMethod.getClassData(), currentMethod);
-            // Visit the expression node
-            String expressionType = node.f2.accept(this, currentMethod); ////////////////
-
-            // First of all if epxression returned "this" we have to correct the expressionType
-            if(expressionType.equals("this")) {
-                expressionType = currentMethod.getClassData().getName();
-            }
+        // If none of the above worked, print an error
+        if(identifiersData == null) {
+            throw this.diagnostics.error(node.f0, "Unknown name " + identifier);
+        }
 
-            if (!identifiersData.getType().equals(expressionType)) {
-
-                // Checking the case of polymorphism
-                if (this.symbolTable.getClassMap().get(expressionType) != null) {
-                    if (!(this.symbolTable.variableTypePolymorphism(identifiersData.getType(), this.symbolTable.getClassMap().get(expressionType)))) {
-                        System.out.println("Incompatible types! " + identifiersData.getType() + " " + expressionType);
-                        System.exit(-1);
-                    }
-                } else {
-                    System.out.println("Incompatible types! " + identifiersData.getType() + " " + expressionType);
-                    System.exit(-1);
-                }
-            }
+        // Visit the expression node
+        DataType expressionType = node.f2.accept(this, currentMethod);
 
-            // Mark the local variable as initialized
-            this.symbolTable.getSuperVariable(identifier, currentMethod.getClassData()).getCertainVariable(identifier).setInitialized(true);
+        // First of all if expression returned "this" we have to correct the expressionType
+        if(expressionType == DataType.THIS) {
+            expressionType = currentMethod.getClassData().getType();
         }
-        // If none of the above worked, print an error
-        else {
-            System.out.println("Unknown name " + identifier);
-            System.exit(-1);
+
+        // The types must match, or the expression must be of a subclass (polymorphism)
+        if (!this.symbolTable.isAssignable(identifiersData.getType(), expressionType)) {
+            throw this.diagnostics.error(node, "Incompatible types! " + identifiersData.getType() + " " + expressionType);
         }
 
+        // Mark the variable as initialized
+        initializedData.setInitialized(true);
+
         return null;
     }
 
@@ -314,7 +280,7 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f5 -> Expression()
      * f6 -> ";"
      */
-    public String visit(ArrayAssignmentStatement node, Data mdata) throws Exception{
+    public DataType visit(ArrayAssignmentStatement node, Data mdata) throws Exception{
 
         // First of all
         MethodData currentMethod = (MethodData) mdata;
@@ -322,41 +288,37 @@ class Visitor3 extends GJDepthFirst<String, Data>{
         // First we have to conduct checks for the identifier...
 
         // Get the identifier's name
-        String identifier = node.f0.accept(this, null);
-        String arrayType = null;
+        String identifier = node.f0.f0.toString();
+        DataType arrayType = null;
 
         // Find the array type based on  the identifier
-        if(currentMethod.variableExists(identifier)) {
-            arrayType = currentMethod.getCertainVariable(identifier).getType();
-        } else if(currentMethod.getClassData().variableExists(identifier)){
-            arrayType = currentMethod.getClassData().getCertainVariable(identifier).getType();
-        } else if(this.symbolTable.variableExistsInSuper(identifier, currentMethod.getClassData())){
-            arrayType = this.symbolTable.getSuperVariable(identifier, currentMethod.getClassData()).getCertainVariable(identifier).getType();
-        } else {
-            System.out.println("Array " + identifier + " not defined!");
-            System.exit(-1);
+        IdData arrayData = currentMethod.getCertainVariable(identifier);
+        if(arrayData == null) {
+            arrayData = this.symbolTable.lookupVariable(identifier, currentMethod.getClassData());
+        }
+
+        if(arrayData == null) {
+            throw this.diagnostics.error(node.f0, "Array " + identifier + " not defined!");
         }
+        arrayType = arrayData.getType();
 
         // Now that we got the array type conduct check
-        if(!(arrayType.equals("int[]"))) {
-            System.out.println("Invalid array type! " + arrayType);
-            System.exit(-1);
+        if(arrayType != DataType.INT_ARRAY) {
+            throw this.diagnostics.error(node.f0, "Invalid array type! " + arrayType);
         }
 
-        String arrayIndex = node.f2.accept(this, currentMethod);
+        DataType arrayIndex = node.f2.accept(this, currentMethod);
 
         // Check the type of the array index
-        if(!(arrayIndex.equals("int"))) {
-            System.out.println("Invalid index type! " + arrayIndex);
-            System.exit(-1);
+        if(arrayIndex != DataType.INT) {
+            throw this.diagnostics.error(node.f2, "Invalid index type! " + arrayIndex);
         }
 
-        String expressionType = node.f5.accept(this, currentMethod);
+        DataType expressionType = node.f5.accept(this, currentMethod);
 
         // Checking the type of the expression that is to be assigned
-        if (!(expressionType.equals("int"))) {
-            System.out.println("Incompatible types! " + arrayType + " " + expressionType);
-            System.exit(-1);
+        if (expressionType != DataType.INT) {
+            throw this.diagnostics.error(node.f5, "Incompatible types! " + arrayType + " " + expressionType);
         }
 
         return null;
@@ -369,7 +331,7 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f3 -> ")"
      * f4 -> ";"
      */
-    public String visit(PrintStatement n, Data mdata) throws Exception{
+    public DataType visit(PrintStatement n, Data mdata) throws Exception{
         n.f2.accept(this, mdata);
         return null;
     }
@@ -383,12 +345,11 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f5 -> "else"
      * f6 -> Statement()
      */
-    public String visit(IfStatement n, Data mdata) throws Exception{
+    public DataType visit(IfStatement n, Data mdata) throws Exception{
 
-        String expressionType = n.f2.accept(this, mdata);
-        if (!expressionType.equals("boolean")) {
-            System.out.println("Invalid type in if statement! " + expressionType);
-            System.exit(-1);
+        DataType expressionType = n.f2.accept(this, mdata);
+        if (expressionType != DataType.BOOLEAN) {
+            throw this.diagnostics.error(n.f2, "Invalid type in if statement! " + expressionType);
         }
 
         n.f4.accept(this, mdata);
@@ -404,12 +365,11 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f3 -> ")"
      * f4 -> Statement()
      */
-    public String visit(WhileStatement n, Data mdata) throws Exception{
+    public DataType visit(WhileStatement n, Data mdata) throws Exception{
 
-        String expressionType = n.f2.accept(this, mdata);
-        if (!expressionType.equals("boolean")) {
-            System.out.println("Invalid type in while loop! " + expressionType);
-            System.exit(1);
+        DataType expressionType = n.f2.accept(this, mdata);
+        if (expressionType != DataType.BOOLEAN) {
+            throw this.diagnostics.error(n.f2, "Invalid type in while loop! " + expressionType, 1, true);
         }
 
         n.f4.accept(this, mdata);
@@ -428,7 +388,7 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * | MessageSend()
      * | Clause()
      */
-    public String visit(Expression n, Data mdata) throws Exception{
+    public DataType visit(Expression n, Data mdata) throws Exception{
         return n.f0.accept(this, mdata);
     }
 
@@ -437,19 +397,18 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f1 -> "&&"
      * f2 -> Clause()
      */
-    public String visit(AndExpression n, Data mdata) throws Exception{
+    public DataType visit(AndExpression n, Data mdata) throws Exception{
 
         // Get clause1 and clause2
-        // These clauses are basically strings - they must be of type boolean
-        String clause1 = n.f0.accept(this, mdata);
-        String clause2 = n.f2.accept(this, mdata);
+        // These clauses are basically types - they must be of type boolean
+        DataType clause1 = n.f0.accept(this, mdata);
+        DataType clause2 = n.f2.accept(this, mdata);
 
-        if (!(clause1.equals("boolean") && clause2.equals("boolean"))) {
-            System.out.println("Bad operand types for && operator! " + clause1 + " " + clause2);
-            System.exit(-1);
+        if (!(clause1 == DataType.BOOLEAN && clause2 == DataType.BOOLEAN)) {
+            throw this.diagnostics.error(n, "Bad operand types for && operator! " + clause1 + " " + clause2);
         }
 
-        return "boolean";
+        return DataType.BOOLEAN;
     }
 
     /**
@@ -457,20 +416,19 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f1 -> "<"
      * f2 -> PrimaryExpression()
      */
-    public String visit(CompareExpression n, Data mdata) throws Exception{
+    public DataType visit(CompareExpression n, Data mdata) throws Exception{
 
         // Get clause1 and clause2
-        // These clauses are basically strings - they must be of type integer ("int")
-        String clause1 = n.f0.accept(this, mdata);
-        String clause2 = n.f2.accept(this, mdata);
+        // These clauses are basically types - they must be of type integer ("int")
+        DataType clause1 = n.f0.accept(this, mdata);
+        DataType clause2 = n.f2.accept(this, mdata);
 
 
-        if (!(clause1.equals("int") && clause2.equals("int"))) {
-            System.out.println("Bad operand types for < operator! " + clause1 + " " + clause2);
-            System.exit(-1);
+        if (!(clause1 == DataType.INT && clause2 == DataType.INT)) {
+            throw this.diagnostics.error(n, "Bad operand types for < operator! " + clause1 + " " + clause2);
         }
 
-        return "boolean";
+        return DataType.BOOLEAN;
     }
 
     /**
@@ -478,20 +436,19 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f1 -> "+"
      * f2 -> PrimaryExpression()
      */
-    public String visit(PlusExpression n, Data mdata) throws Exception{
+    public DataType visit(PlusExpression n, Data mdata) throws Exception{
 
         // Get clause1 and clause2
-        // These clauses are basically strings - they must be of type integer ("int")
-        String clause1 = n.f0.accept(this, mdata);
-        String clause2 = n.f2.accept(this, mdata);
+        // These clauses are basically types - they must be of type integer ("int")
+        DataType clause1 = n.f0.accept(this, mdata);
+        DataType clause2 = n.f2.accept(this, mdata);
 
 
-        if (!(clause1.equals("int") && clause2.equals("int"))) {
-            System.out.println("Bad operand types for + operator! " + clause1 + " " + clause2);
-            System.exit(-1);
+        if (!(clause1 == DataType.INT && clause2 == DataType.INT)) {
+            throw this.diagnostics.error(n, "Bad operand types for + operator! " + clause1 + " " + clause2);
         }
 
-        return "int";
+        return DataType.INT;
     }
 
     /**
@@ -499,20 +456,19 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f1 -> "-"
      * f2 -> PrimaryExpression()
      */
-    public String visit(MinusExpression n, Data mdata) throws Exception{
+    public DataType visit(MinusExpression n, Data mdata) throws Exception{
 
         // Get clause1 and clause2
-        // These clauses are basically strings - they must be of type integer ("int")
-        String clause1 = n.f0.accept(this, mdata);
-        String clause2 = n.f2.accept(this, mdata);
+        // These clauses are basically types - they must be of type integer ("int")
+        DataType clause1 = n.f0.accept(this, mdata);
+        DataType clause2 = n.f2.accept(this, mdata);
 
 
-        if (!(clause1.equals("int") && clause2.equals("int"))) {
-            System.out.println("Bad operand types for - operator! " + clause1 + " " + clause2);
-            System.exit(-1);
+        if (!(clause1 == DataType.INT && clause2 == DataType.INT)) {
+            throw this.diagnostics.error(n, "Bad operand types for - operator! " + clause1 + " " + clause2);
         }
 
-        return "int";
+        return DataType.INT;
     }
 
     /**
@@ -520,20 +476,19 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f1 -> "*"
      * f2 -> PrimaryExpression()
      */
-    public String visit(TimesExpression n, Data mdata) throws Exception{
+    public DataType visit(TimesExpression n, Data mdata) throws Exception{
 
         // Get clause1 and clause2
-        // These clauses are basically strings - they must be of type integer ("int")
-        String clause1 = n.f0.accept(this, mdata);
-        String clause2 = n.f2.accept(this, mdata);
+        // These clauses are basically types - they must be of type integer ("int")
+        DataType clause1 = n.f0.accept(this, mdata);
+        DataType clause2 = n.f2.accept(this, mdata);
 
 
-        if (!(clause1.equals("int") && clause2.equals("int"))) {
-            System.out.println("Bad operand types for * operator! " + clause1 + " " + clause2);
-            System.exit(-1);
+        if (!(clause1 == DataType.INT && clause2 == DataType.INT)) {
+            throw this.diagnostics.error(n, "Bad operand types for * operator! " + clause1 + " " + clause2);
         }
 
-        return "int";
+        return DataType.INT;
     }
 
     /**
@@ -541,17 +496,16 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f1 -> "."
      * f2 -> "length"
      */
-    public String visit(ArrayLength n, Data mdata) throws Exception{
+    public DataType visit(ArrayLength n, Data mdata) throws Exception{
 
-        String arrayType = n.f0.accept(this, mdata);
+        DataType arrayType = n.f0.accept(this, mdata);
 
         // Checking array type
-        if(!(arrayType.equals("int[]"))) {
-            System.out.println("Invalid array type! " + arrayType);
-            System.exit(-1);
+        if(arrayType != DataType.INT_ARRAY) {
+            throw this.diagnostics.error(n.f0, "Invalid array type! " + arrayType);
         }
 
-        return "int";
+        return DataType.INT;
     }
 
     /**
@@ -560,23 +514,21 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f2 -> PrimaryExpression()
      * f3 -> "]"
      */
-    public String visit(ArrayLookup n, Data mdata) throws Exception{
+    public DataType visit(ArrayLookup n, Data mdata) throws Exception{
 
-        String arrayType = n.f0.accept(this, mdata);
+        DataType arrayType = n.f0.accept(this, mdata);
 
         // Checking array type
-        if(!(arrayType.equals("int[]"))) {
-            System.out.println("Invalid array type! " + arrayType);
-            System.exit(-1);
+        if(arrayType != DataType.INT_ARRAY) {
+            throw this.diagnostics.error(n.f0, "Invalid array type! " + arrayType);
         }
 
-        String expressionType = n.f2.accept(this, mdata);
-        if (!expressionType.equals("int")) {
-            System.out.println("Invalid index type! " + expressionType);
-            System.exit(-1);
+        DataType expressionType = n.f2.accept(this, mdata);
+        if (expressionType != DataType.INT) {
+            throw this.diagnostics.error(n.f2, "Invalid index type! " + expressionType);
         }
 
-        return "int";
+        return DataType.INT;
     }
 
     /**
@@ -587,40 +539,26 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f4 -> ( ExpressionList() )?
      * f5 -> ")"
      */
-    public String visit(MessageSend node, Data mdata) throws Exception{
+    public DataType visit(MessageSend node, Data mdata) throws Exception{
 
         // First of all
         MethodData currentMethod = (MethodData) mdata;
 
-        String primaryExpressionType = node.f0.accept(this, mdata);
+        DataType primaryExpressionType = node.f0.accept(this, mdata);
 
         // If "this"
-        if(primaryExpressionType.equals("this")) {
-            primaryExpressionType = currentMethod.getClassData().getName();
+        if(primaryExpressionType == DataType.THIS) {
+            primaryExpressionType = currentMethod.getClassData().getType();
         }
-        
-        String method = node.f2.accept(this, null);
+
+        String method = node.f2.f0.toString();
         // maybe to be corrected later...
-        ClassData callingClass = this.symbolTable.getCertainClass(primaryExpressionType);
-
-        MethodData calledMethod = null;
-        ClassData actualMethodsClass = null;
-
-        // Check if method exists in calling class
-        if (!callingClass.methodExists(method)) {
-
-            // Check if method exists in super classes
-            if (!(this.symbolTable.methodExistsInSuper(method, callingClass))) {        ///////////
-                System.out.print("Method " + method + " does not exist in the calling class and its superclasses!");
-                System.exit(-1);
-            } else {
-                // Correct methods Class
-                actualMethodsClass = this.symbolTable.getSuperMethod(method, callingClass);
-                calledMethod = actualMethodsClass.getCertainMethod(method);
-            }
+        ClassData callingClass = primaryExpressionType.getClassData();
 
-        } else {
-            calledMethod = callingClass.getCertainMethod(method);
+        // Check if method exists in calling class or in its super classes
+        MethodData calledMethod = this.symbolTable.lookupMethod(method, callingClass);
+        if (calledMethod == null) {
+            throw this.diagnostics.error(node.f2, "Method " + method + " does not exist in the calling class and its superclasses!", -1, false);
         }
 
         // Working on the arguments
@@ -628,51 +566,45 @@ class Visitor3 extends GJDepthFirst<String, Data>{
 
             // Check if the method takes any arguments
             if (calledMethod.getArguments().isEmpty()) {
-                System.out.println("Method " + calledMethod.getName() + " does not take arguments");
-                System.exit(-1);
+                throw this.diagnostics.error(node.f4, "Method " + calledMethod.getName() + " does not take arguments");
             }
 
-            // Get the argument list
-            String argumentList = node.f4.accept(this, mdata);
-            // Split it and conduct checks
-            String[] argumentTypes = argumentList.split(" ");
+            // Get the types of the arguments, the expression list pushes them after the ones of the enclosing calls
+            int base = this.argumentTypes.size();
+            node.f4.accept(this, mdata);
+            int argumentNum = this.argumentTypes.size() - base;
 
             // Check the number of arguments
-            if(argumentTypes.length != calledMethod.getArguments().size()) {
-                System.out.println("Method " + calledMethod.getName() + " does not take " + argumentTypes.length + " arguments");
-                System.exit(-1);
+            if(argumentNum != calledMethod.getArguments().size()) {
+                throw this.diagnostics.error(node.f4, "Method " + calledMethod.getName() + " does not take " + argumentNum + " arguments");
             }
 
             // For every argument...
-            String legitArgumentType;
-            String toBeCheckedArgumentType;
-            for(int i = 0; i < argumentTypes.length; i++) {
+            DataType legitArgumentType;
+            DataType toBeCheckedArgumentType;
+            for(int i = 0; i < argumentNum; i++) {
                 legitArgumentType = calledMethod.getArguments().get(i).getType();
-                toBeCheckedArgumentType = argumentTypes[i];
+                toBeCheckedArgumentType = this.argumentTypes.get(base + i);
 
                 // Check the "this" case
-                if(toBeCheckedArgumentType.equals("this")) {
-                    toBeCheckedArgumentType = currentMethod.getClassData().getName();
+                if(toBeCheckedArgumentType == DataType.THIS) {
+                    toBeCheckedArgumentType = currentMethod.getClassData().getType();
                 }
 
                 // Checks for the type of the argument.
                 // if legitArgumentType is not equal to the returned type then check if it corresponds to some parent class...
-                if (!legitArgumentType.equals(toBeCheckedArgumentType)) {
-                    // Checking the case of polymorphism
-                    if(this.symbolTable.getClassMap().get(toBeCheckedArgumentType) != null){
-                        if(!(this.symbolTable.variableTypePolymorphism(legitArgumentType, this.symbolTable.getClassMap().get(toBeCheckedArgumentType)))) {
-                            System.out.println("Invalid type for argument " + calledMethod.getArguments().get(i).getName() + " expected: " + legitArgumentType + " and got: " + toBeCheckedArgumentType);
-                            System.exit(-1);
-                        }
-                    } else {
-                        System.out.println("Invalid type for argument " + calledMethod.getArguments().get(i).getName() + " expected: " + legitArgumentType + " and got: " + toBeCheckedArgumentType);
-                        System.exit(-1);
-                    }
+                if (!this.symbolTable.isAssignable(legitArgumentType, toBeCheckedArgumentType)) {
+                    throw this.diagnostics.error(node.f4, "Invalid type for argument " + calledMethod.getArguments().get(i).getName() + " expected: " + legitArgumentType + " and got: " + toBeCheckedArgumentType);
                 }
             }
+
+            // Pop the arguments of this call
+            for(int i = this.argumentTypes.size() - 1; i >= base; i--) {
+                this.argumentTypes.remove(i);
+            }
         }
 
-        String returnType = calledMethod.getReturnType();
+        DataType returnType = calledMethod.getReturnType();
         return returnType;
     }
 
@@ -680,53 +612,33 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f0 -> Expression()
      * f1 -> ExpressionTail()
      */
-    public String visit(ExpressionList node, Data mdata) throws Exception{
+    public DataType visit(ExpressionList node, Data mdata) throws Exception{
 
-        // Get the type of the first argument
-        String firstType = node.f0.accept(this, mdata);
+        // Push the type of the first argument, the tail pushes the rest
+        this.argumentTypes.add(node.f0.accept(this, mdata));
+        node.f1.accept(this, mdata);
 
-        // Construct a string of all tha arguments
-        // Add the first argument
-        String argumentList = firstType;
-
-        // Get the rest arguments
-        String argumentListRest = node.f1.accept(this, mdata);
-        // Check if the rest list is empty
-        if(argumentListRest != "") {
-            // if not concat
-            argumentList = argumentList + " " + argumentListRest;
-        }
-
-        return argumentList;
+        return null;
     }
 
     /**
      * f0 -> ( ExpressionTerm() )*
      */
-    public String visit(ExpressionTail node, Data mdata) throws Exception{
+    public DataType visit(ExpressionTail node, Data mdata) throws Exception{
 
-        String argumentListRest = "";
-
-        if (node.f0.present()) {
-            // Count how many arguments exist
-            int argNum = node.f0.nodes.size();
-
-            // Loop for every declaration
-            for(int i = 0; i < argNum; i++) {
-                // Extract a string of form (variable_type, variable_name)
-                String argument = node.f0.nodes.get(i).accept(this, mdata);
-
-                argumentListRest = argumentListRest + argument + " ";
-            }
+        // Loop for every argument
+        for(int i = 0; i < node.f0.nodes.size(); i++) {
+            this.argumentTypes.add(node.f0.nodes.get(i).accept(this, mdata));
         }
-        return argumentListRest;
+
+        return null;
     }
 
     /**
      * f0 -> ","
      * f1 -> Expression()
      */
-    public String visit(ExpressionTerm node, Data mdata) throws Exception{
+    public DataType visit(ExpressionTerm node, Data mdata) throws Exception{
         return node.f1.accept(this, mdata);
     }
 
@@ -734,7 +646,7 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f0 -> NotExpression()
      *       | PrimaryExpression()
      */
-    public String visit(Clause n, Data mdata) throws Exception{
+    public DataType visit(Clause n, Data mdata) throws Exception{
         return n.f0.accept(this, mdata);
     }
 
@@ -742,18 +654,17 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f0 -> "!"
      * f1 -> Clause()
      */
-    public String visit(NotExpression n, Data argu) throws Exception{
+    public DataType visit(NotExpression n, Data argu) throws Exception{
 
-        String expressionType = n.f1.accept(this, argu);
+        DataType expressionType = n.f1.accept(this, argu);
         // if (expressionType == null)
         //     System.out.println("Expression type is null");
 
-        if (!expressionType.equals("boolean")) {
-            System.out.println("Bad operand type for ! operator! " + expressionType);
-            System.exit(-1);
+        if (expressionType != DataType.BOOLEAN) {
+            throw this.diagnostics.error(n.f1, "Bad operand type for ! operator! " + expressionType);
         }
 
-        return "boolean";
+        return DataType.BOOLEAN;
     }
 
     /**
@@ -766,59 +677,63 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      *       | AllocationExpression()
      *       | BracketExpression()
      */
-    public String visit(PrimaryExpression n, Data argu) throws Exception{
+    public DataType visit(PrimaryExpression n, Data argu) throws Exception{
 
         // First of all
         MethodData mdata = (MethodData) argu;
 
-        String primaryExpression = n.f0.accept(this, argu);
+        // Case for identifiers: locals first, then the fields of the class and its super classes
+        if (n.f0.choice instanceof Identifier) {
+            String identifier = ((Identifier) n.f0.choice).f0.toString();
+
+            IdData identifiersData = mdata.getCertainVariable(identifier);
+            if (identifiersData == null) {
+                identifiersData = this.symbolTable.lookupVariable(identifier, mdata.getClassData());
+            }
 
-        // Case for identifiers
-        if (mdata.variableExists(primaryExpression)) {
-            return mdata.getCertainVariable(primaryExpression).getType();
-        } else if (mdata.getClassData().variableExists(primaryExpression)) {
-            return mdata.getClassData().getCertainVariable(primaryExpression).getType();
-        } else if (this.symbolTable.variableExistsInSuper(primaryExpression, mdata.getClassData())){
-            return this.symbolTable.getSuperVariable(primaryExpression, mdata.getClassData()).getCertainVariable(primaryExpression).getType();
+            if (identifiersData != null) {
+                return identifiersData.getType();
+            }
         }
 
         // If all above fails just return the type that primaryExpression returned
-        return primaryExpression;
+        return n.f0.accept(this, argu);
     }
 
     /**
      * f0 -> <INTEGER_LITERAL>
      */
-    public String visit(IntegerLiteral n, Data argu) {
-        return "int";
+    public DataType visit(IntegerLiteral n, Data argu) {
+        return DataType.INT;
     }
 
     /**
      * f0 -> "true"
      */
-    public String visit(TrueLiteral n, Data argu) {
-        return "boolean";
+    public DataType visit(TrueLiteral n, Data argu) {
+        return DataType.BOOLEAN;
     }
 
     /**
      * f0 -> "false"
      */
-    public String visit(FalseLiteral n, Data argu) {
-        return "boolean";
+    public DataType visit(FalseLiteral n, Data argu) {
+        return DataType.BOOLEAN;
     }
 
     /**
      * f0 -> <IDENTIFIER>
      */
-    public String visit(Identifier n, Data cdata) {
-        return n.f0.toString();
+    public DataType visit(Identifier n, Data cdata) {
+        // An identifier that is not a variable: the type named by it, which carries the name into the error messages
+        return this.symbolTable.resolveType(n.f0.toString());
     }
 
     /**
      * f0 -> "this"
      */
-    public String visit(ThisExpression n, Data argu) {
-        return "this";
+    public DataType visit(ThisExpression n, Data argu) {
+        return DataType.THIS;
     }
 
     /**
@@ -828,16 +743,15 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f3 -> Expression()
      * f4 -> "]"
      */
-    public String visit(ArrayAllocationExpression n, Data argu) throws Exception{
+    public DataType visit(ArrayAllocationExpression n, Data argu) throws Exception{
 
         // Check for expression at f3
-        String expressionType = n.f3.accept(this, argu);
-        if (!expressionType.equals("int")) {
-            System.out.println("Incompatible types! " + expressionType + " " + "int");
-            System.exit(-1);
+        DataType expressionType = n.f3.accept(this, argu);
+        if (expressionType != DataType.INT) {
+            throw this.diagnostics.error(n.f3, "Incompatible types! " + expressionType + " " + "int");
         }
 
-        return "int[]";
+        return DataType.INT_ARRAY;
     }
 
     /**
@@ -846,16 +760,16 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f2 -> "("
      * f3 -> ")"
      */
-    public String visit(AllocationExpression n, Data argu) throws Exception{
+    public DataType visit(AllocationExpression n, Data argu) throws Exception{
 
         // Identifier must be a name of a declared class
-        String identifier = n.f1.accept(this, null);
-        if (this.symbolTable.getCertainClass(identifier) == null) {
-            System.out.println("Name " + identifier + " does not exist");
-            System.exit(-1);
+        String identifier = n.f1.f0.toString();
+        ClassData allocatedClass = this.symbolTable.getCertainClass(identifier);
+        if (allocatedClass == null) {
+            throw this.diagnostics.error(n.f1, "Name " + identifier + " does not exist");
         }
 
-        return identifier;
+        return allocatedClass.getType();
     }
 
     /**
@@ -863,7 +777,7 @@ class Visitor3 extends GJDepthFirst<String, Data>{
      * f1 -> Expression()
      * f2 -> ")"
      */
-    public String visit(BracketExpression n, Data argu) throws Exception{
+    public DataType visit(BracketExpression n, Data argu) throws Exception{
         return n.f1.accept(this, argu);
     }
 }
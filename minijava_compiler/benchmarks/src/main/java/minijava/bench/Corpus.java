@@ -0,0 +1,97 @@
+package minijava.bench;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.openjdk.jmh.annotations.*;
+
+// The input of a benchmark: the files of one of the example directories, or a synthetic program (synthetic-N for N classes,
+// synthetic-SIZE for a program of about that size, for example synthetic-16M), or the same program with comments before
+// its classes and its methods (commented-N or commented-SIZE).
+// Only the programs that go through every phase without an error are kept, so every phase does its whole work.
+// The example directories are looked up under the directory given by -Dminijava.home (by default the current one).
+@State(Scope.Benchmark)
+public class Corpus {
+
+    @Param({"examples", "examples2", "examples3", "synthetic-100", "synthetic-1M"})
+    public String input;
+
+    public List<byte[]> sources;
+
+    // The lines of comments of the commented programs, as many as in a license header
+    static final int COMMENT_LINES = 12;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        List<byte[]> candidates = new ArrayList<byte[]>();
+
+        if(this.input.startsWith("synthetic-")) {
+            candidates.add(synthetic(this.input.substring("synthetic-".length())).getBytes("US-ASCII"));
+        }
+        else if(this.input.startsWith("commented-")) {
+            candidates.add(synthetic(this.input.substring("commented-".length()), COMMENT_LINES).getBytes("US-ASCII"));
+        }
+        else {
+            Path directory = Paths.get(System.getProperty("minijava.home", "."), this.input);
+
+            try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.java")){
+                List<Path> sorted = new ArrayList<Path>();
+                for(Path file : files) {
+                    sorted.add(file);
+                }
+                Collections.sort(sorted);
+
+                for(Path file : sorted) {
+                    candidates.add(Files.readAllBytes(file));
+                }
+            }
+        }
+
+        this.sources = new ArrayList<byte[]>();
+        for(byte[] source : candidates) {
+            if(passes(source)) {
+                this.sources.add(source);
+            }
+        }
+
+        if(this.sources.isEmpty()) {
+            throw new IllegalStateException("No program of " + this.input + " passes the checks");
+        }
+    }
+
+    // A program of ProgramGenerator with its default knobs: a number is the number of classes,
+    // a size (with the suffix K, M or G) is the size of the program
+    static String synthetic(String spec) throws IOException {
+        return synthetic(spec, 0);
+    }
+
+    // Same, with that many lines of comments before every class and every method
+    static String synthetic(String spec, int comments) throws IOException {
+        ProgramGenerator generator = new ProgramGenerator().setComments(comments);
+
+        if(Character.isDigit(spec.charAt(spec.length() - 1))) {
+            generator.setClasses(Integer.parseInt(spec));
+        }
+        else {
+            generator.setSize(ProgramGenerator.parseSize(spec));
+        }
+
+        return generator.generate();
+    }
+
+    private static boolean passes(byte[] source) {
+        try{
+            syntaxtree.Goal root = Frontend.parse(source);
+            Object symbolTable = Frontend.newSymbolTable();
+            Frontend.visitor1(root, symbolTable);
+            Frontend.visitor2(root, symbolTable);
+            Frontend.visitor3(root, symbolTable);
+            Frontend.setOffsets(symbolTable);
+            return true;
+        }
+
+        catch(RuntimeException ex){
+            return false;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package minijava.bench;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// The generated parser against ExpressionParser, the left-factored one, on expressions alone. The tokens of every
+// expression are scanned beforehand, so only the parsers are timed.
+// Run from minijava_compiler with: java -jar benchmarks/target/benchmarks.jar ExpressionBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    // brackets-N: a comparison inside N nested brackets, where the generated parser scans the inner brackets again
+    // for every alternative of every level; random-N: 1000 expressions of every kind, nested N deep at most
+    @State(Scope.Benchmark)
+    public static class Expressions {
+
+        @Param({"brackets-2", "brackets-4", "brackets-6", "random-2", "random-4"})
+        public String input;
+
+        public List<Object> tokens;
+
+        @Setup(Level.Trial)
+        public void generate() throws Exception {
+            int depth = Integer.parseInt(this.input.substring(this.input.indexOf('-') + 1));
+            List<String> expressions = new ArrayList<String>();
+
+            if(this.input.startsWith("brackets-")) {
+                StringBuilder expression = new StringBuilder();
+                for(int i = 0; i < depth; i++) {
+                    expression.append('(');
+                }
+                expression.append("x < 1");
+                for(int i = 0; i < depth; i++) {
+                    expression.append(')');
+                }
+                expressions.add(expression.toString());
+            }
+            else {
+                Random random = new Random(42);
+                for(int i = 0; i < 1000; i++) {
+                    expressions.add(expression(random, depth));
+                }
+            }
+
+            this.tokens = new ArrayList<Object>();
+            for(String expression : expressions) {
+                this.tokens.add(Frontend.lexTokenArray(expression.getBytes("US-ASCII")));
+            }
+        }
+
+        static String expression(Random random, int depth) {
+            switch(random.nextInt(9)) {
+                case 0: return clause(random, depth) + " && " + clause(random, depth);
+                case 1: return primary(random, depth) + " < " + primary(random, depth);
+                case 2: return primary(random, depth) + " + " + primary(random, depth);
+                case 3: return primary(random, depth) + " - " + primary(random, depth);
+                case 4: return primary(random, depth) + " * " + primary(random, depth);
+                case 5: return primary(random, depth) + "[" + primary(random, depth) + "]";
+                case 6: return primary(random, depth) + ".length";
+                case 7:
+                    StringBuilder call = new StringBuilder(primary(random, depth) + ".run(");
+                    for(int a = random.nextInt(3); a > 0; a--) {
+                        call.append(expression(random, depth - 1)).append(a > 1 ? ", " : "");
+                    }
+                    return call.append(")").toString();
+                default: return clause(random, depth);
+            }
+        }
+
+        static String clause(Random random, int depth) {
+            return (random.nextInt(4) == 0 ? "!" : "") + primary(random, depth);
+        }
+
+        static String primary(Random random, int depth) {
+            switch(random.nextInt(depth > 0 ? 8 : 5)) {
+                case 0: return Integer.toString(random.nextInt(100));
+                case 1: return random.nextBoolean() ? "true" : "false";
+                case 2: return "x" + random.nextInt(4);
+                case 3: return "this";
+                case 4: return "new A()";
+                case 5: return "new int[" + expression(random, depth - 1) + "]";
+                default: return "(" + expression(random, depth - 1) + ")";
+            }
+        }
+    }
+
+    @Benchmark
+    public void generated(Expressions expressions, Blackhole blackhole) {
+        for(Object tokens : expressions.tokens) {
+            blackhole.consume(Frontend.parseExpression(tokens));
+        }
+    }
+
+    @Benchmark
+    public void leftFactored(Expressions expressions, Blackhole blackhole) {
+        for(Object tokens : expressions.tokens) {
+            blackhole.consume(Frontend.parseLeftFactoredExpression(tokens));
+        }
+    }
+}
@@ -0,0 +1,484 @@
+package minijava.bench;
+
+import java.io.*;
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import syntaxtree.*;
+import visitor.*;
+
+// The compiler lives in the default package, which cannot be imported from a named one (and JMH needs a named one).
+// This class reaches its classes through method handles, looked up once; the syntax tree and the visitor interfaces
+// are in named packages, so the trees and the visitors themselves are used directly.
+public final class Frontend {
+    private static final MethodHandle NEW_PARSER;
+    private static final MethodHandle NEW_TOKEN_PARSER;
+    private static final MethodHandle NEW_TOKEN_MANAGER;
+    private static final MethodHandle NEW_DFA_TOKEN_MANAGER;
+    private static final MethodHandle NEW_COMMENT_DROPPING_TOKEN_MANAGER;
+    private static final MethodHandle NEW_COMMENT_DROPPING_DFA_TOKEN_MANAGER;
+    private static final MethodHandle GET_NEXT_TOKEN;
+    private static final MethodHandle TOKEN_KIND;
+    private static final MethodHandle LEX_TOKEN_ARRAY;
+    private static final MethodHandle NEW_ARRAY_TOKEN_MANAGER;
+    private static final MethodHandle WRAP_MAPPED;
+    private static final MethodHandle NEW_CHAR_STREAM;
+    private static final MethodHandle SET_LAZY_POSITIONS;
+    private static final MethodHandle GET_PARSER_POOL;
+    private static final MethodHandle POOLED_STREAM;
+    private static final MethodHandle POOLED_PARSER;
+    private static final MethodHandle NEW_PARALLEL_PARSER;
+    private static final MethodHandle PARALLEL_GOAL;
+    private static final MethodHandle NEW_DESCENT_PARSER;
+    private static final MethodHandle DESCENT_GOAL;
+    private static final MethodHandle GOAL;
+    private static final MethodHandle EXPRESSION;
+    private static final MethodHandle NEW_EXPRESSION_PARSER;
+    private static final MethodHandle LEFT_FACTORED_EXPRESSION;
+    private static final MethodHandle NEW_SYMBOL_TABLE;
+    private static final MethodHandle NEW_VISITOR1;
+    private static final MethodHandle NEW_VISITOR2;
+    private static final MethodHandle NEW_VISITOR3;
+    private static final MethodHandle NEW_QUEUING_VISITOR2;
+    private static final MethodHandle CHECK_BODIES;
+    private static final MethodHandle NEW_PARALLEL_CHECKER;
+    private static final MethodHandle CHECK_BODIES_IN_PARALLEL;
+    private static final MethodHandle FREEZE_HIERARCHY;
+    private static final MethodHandle FREEZE_MEMBERS;
+    private static final MethodHandle SET_OFFSETS;
+    private static final MethodHandle PRINT_SYMBOL_TABLE;
+    private static final MethodHandle PARSE_OPTIONS;
+    private static final MethodHandle FILE_NAMES;
+    private static final MethodHandle COMPILE;
+    private static final MethodHandle NEW_SESSION;
+    private static final MethodHandle SESSION_CHECK;
+    private static final MethodHandle INCREMENTAL_CHECKS;
+
+    static {
+        try{
+            Class<?> parser = Class.forName("MiniJavaParser");
+            Class<?> symbolTable = Class.forName("SymbolTable");
+
+            Class<?> tokenManager = Class.forName("MiniJavaParserTokenManager");
+
+            NEW_PARSER = constructor(parser, InputStream.class);
+            NEW_TOKEN_PARSER = constructor(parser, tokenManager);
+            NEW_TOKEN_MANAGER = constructor(tokenManager, Class.forName("JavaCharStream"));
+            NEW_DFA_TOKEN_MANAGER = constructor(Class.forName("DfaTokenManager"), Class.forName("JavaCharStream"));
+            NEW_COMMENT_DROPPING_TOKEN_MANAGER = constructor(Class.forName("CommentDroppingTokenManager"), Class.forName("JavaCharStream"));
+            NEW_COMMENT_DROPPING_DFA_TOKEN_MANAGER = constructor(Class.forName("DfaTokenManager"), Class.forName("JavaCharStream"), boolean.class);
+            GET_NEXT_TOKEN = method(tokenManager, "getNextToken");
+            TOKEN_KIND = getter(Class.forName("Token"), "kind");
+            LEX_TOKEN_ARRAY = method(Class.forName("TokenArray"), "lex", byte[].class);
+            NEW_ARRAY_TOKEN_MANAGER = constructor(Class.forName("TokenArrayTokenManager"), Class.forName("TokenArray"));
+            WRAP_MAPPED = method(Class.forName("MappedCharStream"), "wrap", ByteBuffer.class);
+            NEW_CHAR_STREAM = constructor(Class.forName("JavaCharStream"), InputStream.class, int.class, int.class);
+            SET_LAZY_POSITIONS = method(Class.forName("JavaCharStream"), "setLazyPositions");
+            GET_PARSER_POOL = method(Class.forName("ParserPool"), "get");
+            POOLED_STREAM = method(Class.forName("ParserPool"), "stream", InputStream.class, boolean.class);
+            POOLED_PARSER = method(Class.forName("ParserPool"), "parser", Class.forName("JavaCharStream"), boolean.class, boolean.class);
+            NEW_PARALLEL_PARSER = constructor(Class.forName("ParallelParser"), Class.forName("TokenArray"), ForkJoinPool.class);
+            PARALLEL_GOAL = method(Class.forName("ParallelParser"), "parse");
+            NEW_DESCENT_PARSER = constructor(Class.forName("DescentParser"), Class.forName("TokenArray"));
+            DESCENT_GOAL = method(Class.forName("DescentParser"), "Goal");
+            GOAL = method(parser, "Goal");
+            EXPRESSION = method(parser, "Expression");
+            NEW_EXPRESSION_PARSER = constructor(Class.forName("ExpressionParser"), Class.forName("TokenArray"));
+            LEFT_FACTORED_EXPRESSION = method(Class.forName("ExpressionParser"), "Expression");
+            NEW_SYMBOL_TABLE = constructor(symbolTable);
+            NEW_VISITOR1 = constructor(Class.forName("Visitor1"), symbolTable);
+            NEW_VISITOR2 = constructor(Class.forName("Visitor2"), symbolTable);
+            NEW_VISITOR3 = constructor(Class.forName("Visitor3"), symbolTable);
+            NEW_QUEUING_VISITOR2 = constructor(Class.forName("Visitor2"), symbolTable, ArrayList.class);
+            CHECK_BODIES = method(Class.forName("Visitor3"), "checkBodies", ArrayList.class);
+            NEW_PARALLEL_CHECKER = constructor(Class.forName("ParallelChecker"), symbolTable, ForkJoinPool.class);
+            CHECK_BODIES_IN_PARALLEL = method(Class.forName("ParallelChecker"), "checkBodies", ArrayList.class);
+            FREEZE_HIERARCHY = method(symbolTable, "freezeHierarchy");
+            FREEZE_MEMBERS = method(symbolTable, "freezeMembers");
+            SET_OFFSETS = method(symbolTable, "setOffsets");
+            PRINT_SYMBOL_TABLE = method(symbolTable, "printSymbolTable", PrintStream.class);
+            PARSE_OPTIONS = method(Class.forName("Options"), "parse", String[].class);
+            FILE_NAMES = method(Class.forName("Options"), "getFileNames");
+            COMPILE = method(Class.forName("Main"), "compile", String.class, Class.forName("Options"), PrintStream.class, PrintStream.class);
+            NEW_SESSION = constructor(Class.forName("CompilerSession"), String.class, Class.forName("Options"));
+            SESSION_CHECK = method(Class.forName("CompilerSession"), "check", PrintStream.class, PrintStream.class);
+            INCREMENTAL_CHECKS = method(Class.forName("CompilerSession"), "getIncrementalChecks");
+        }
+
+        catch(ReflectiveOperationException ex){
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private Frontend() {
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... parameters) throws ReflectiveOperationException {
+        Constructor<?> constructor = owner.getDeclaredConstructor(parameters);
+        constructor.setAccessible(true);
+        return MethodHandles.lookup().unreflectConstructor(constructor);
+    }
+
+    private static MethodHandle method(Class<?> owner, String name, Class<?>... parameters) throws ReflectiveOperationException {
+        Method method = owner.getDeclaredMethod(name, parameters);
+        method.setAccessible(true);
+        return MethodHandles.lookup().unreflect(method);
+    }
+
+    private static MethodHandle getter(Class<?> owner, String name) throws ReflectiveOperationException {
+        Field field = owner.getDeclaredField(name);
+        field.setAccessible(true);
+        return MethodHandles.lookup().unreflectGetter(field);
+    }
+
+    // The phases throw whatever the compiler throws: parse errors, semantic errors and bugs alike
+    private static RuntimeException rethrow(Throwable ex) {
+        if(ex instanceof RuntimeException) {
+            return (RuntimeException) ex;
+        }
+        if(ex instanceof Error) {
+            throw (Error) ex;
+        }
+        return new IllegalStateException(ex);
+    }
+
+    public static Goal parse(byte[] source) {
+        try{
+            Object parser = NEW_PARSER.invoke((InputStream) new ByteArrayInputStream(source));
+            return (Goal) GOAL.invoke(parser);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // The parser of the thread, reset for the source, as Main does with --reuse-parsers
+    public static Goal parseReused(byte[] source) {
+        try{
+            Object pool = GET_PARSER_POOL.invoke();
+            Object stream = POOLED_STREAM.invoke(pool, (InputStream) new ByteArrayInputStream(source), false);
+            Object parser = POOLED_PARSER.invoke(pool, stream, false, false);
+            return (Goal) GOAL.invoke(parser);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // The parser over a JavaCharStream that keeps only the line starts, as Main does with --lazy-positions
+    public static Goal parseLazy(byte[] source) {
+        try{
+            Object stream = NEW_CHAR_STREAM.invoke((InputStream) new ByteArrayInputStream(source), 1, 1);
+            SET_LAZY_POSITIONS.invoke(stream);
+
+            Object parser = NEW_TOKEN_PARSER.invoke(NEW_TOKEN_MANAGER.invoke(stream));
+            return (Goal) GOAL.invoke(parser);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // The parser over a MappedCharStream, as Main does with --mapped; the buffer must hold plain ASCII
+    public static Goal parseMapped(ByteBuffer source) {
+        try{
+            Object stream = WRAP_MAPPED.invoke(source);
+            if(stream == null) {
+                throw new IllegalArgumentException("The source is not plain ASCII");
+            }
+
+            Object parser = NEW_TOKEN_PARSER.invoke(NEW_TOKEN_MANAGER.invoke(stream));
+            return (Goal) GOAL.invoke(parser);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // The parser over the tokens scanned up front into a TokenArray, as Main does with --token-array; the source must be
+    // plain ASCII without lexical errors
+    public static Goal parseTokenArray(byte[] source) {
+        try{
+            Object tokens = LEX_TOKEN_ARRAY.invoke(source);
+            if(tokens == null) {
+                throw new IllegalArgumentException("The source cannot be scanned into a TokenArray");
+            }
+
+            Object parser = NEW_TOKEN_PARSER.invoke(NEW_ARRAY_TOKEN_MANAGER.invoke(tokens));
+            return (Goal) GOAL.invoke(parser);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // The hand-written parser over the tokens scanned into a TokenArray, as Main does with --descent-parser when it
+    // takes the file; the source must be plain ASCII without lexical errors
+    public static Goal parseDescent(byte[] source) {
+        try{
+            return (Goal) DESCENT_GOAL.invoke(NEW_DESCENT_PARSER.invoke(lexTokenArray(source)));
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // The classes parsed in parallel on the pool, as Main does with --parallel-parse; the source must be plain ASCII,
+    // without lexical errors and split into classes by its braces
+    public static Goal parseParallel(byte[] source, ForkJoinPool pool) {
+        try{
+            Goal root = (Goal) PARALLEL_GOAL.invoke(NEW_PARALLEL_PARSER.invoke(lexTokenArray(source), pool));
+            if(root == null) {
+                throw new IllegalArgumentException("The source cannot be parsed in parallel");
+            }
+            return root;
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // The tokens of the source scanned into a TokenArray; the source must be plain ASCII without lexical errors
+    public static Object lexTokenArray(byte[] source) {
+        try{
+            Object tokens = LEX_TOKEN_ARRAY.invoke(source);
+            if(tokens == null) {
+                throw new IllegalArgumentException("The source cannot be scanned into a TokenArray");
+            }
+            return tokens;
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // A single Expression parsed by the generated parser from the tokens of lexTokenArray()
+    public static Expression parseExpression(Object tokens) {
+        try{
+            Object parser = NEW_TOKEN_PARSER.invoke(NEW_ARRAY_TOKEN_MANAGER.invoke(tokens));
+            return (Expression) EXPRESSION.invoke(parser);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // Same, parsed by ExpressionParser
+    public static Expression parseLeftFactoredExpression(Object tokens) {
+        try{
+            return (Expression) LEFT_FACTORED_EXPRESSION.invoke(NEW_EXPRESSION_PARSER.invoke(tokens));
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // Runs the generated token manager, or DfaTokenManager (as Main does with --dfa-lexer), over the whole source
+    // and returns the number of tokens, the end of the input included
+    public static int tokenize(byte[] source, boolean dfa) {
+        return tokenize(source, dfa, false);
+    }
+
+    // Same, without making tokens for the comments if dropComments is set (as Main does with --drop-comments)
+    public static int tokenize(byte[] source, boolean dfa, boolean dropComments) {
+        try{
+            Object stream = NEW_CHAR_STREAM.invoke((InputStream) new ByteArrayInputStream(source), 1, 1);
+            Object tokenManager;
+
+            if(dfa) {
+                tokenManager = dropComments ? NEW_COMMENT_DROPPING_DFA_TOKEN_MANAGER.invoke(stream, true) : NEW_DFA_TOKEN_MANAGER.invoke(stream);
+            }
+            else {
+                tokenManager = dropComments ? NEW_COMMENT_DROPPING_TOKEN_MANAGER.invoke(stream) : NEW_TOKEN_MANAGER.invoke(stream);
+            }
+            int tokens = 0;
+
+            for(;;) {
+                Object token = GET_NEXT_TOKEN.invoke(tokenManager);
+                tokens++;
+
+                if((int) TOKEN_KIND.invoke(token) == 0) {
+                    return tokens;
+                }
+            }
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    public static Object newSymbolTable() {
+        try{
+            return NEW_SYMBOL_TABLE.invoke();
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // Visitor 1, then the hierarchy is frozen as Main does
+    public static void visitor1(Goal root, Object symbolTable) {
+        try{
+            accept(root, NEW_VISITOR1.invoke(symbolTable));
+            FREEZE_HIERARCHY.invoke(symbolTable);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // Visitor 2, then the members are frozen as Main does
+    public static void visitor2(Goal root, Object symbolTable) {
+        try{
+            accept(root, NEW_VISITOR2.invoke(symbolTable));
+            FREEZE_MEMBERS.invoke(symbolTable);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    public static void visitor3(Goal root, Object symbolTable) {
+        try{
+            accept(root, NEW_VISITOR3.invoke(symbolTable));
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // Visitor 2 queuing the method bodies and Visitor 3 checking only them, as Main does with --fused
+    public static void fused(Goal root, Object symbolTable) {
+        try{
+            ArrayList<?> bodies = new ArrayList<Object>();
+            accept(root, NEW_QUEUING_VISITOR2.invoke(symbolTable, bodies));
+            FREEZE_MEMBERS.invoke(symbolTable);
+            CHECK_BODIES.invoke(NEW_VISITOR3.invoke(symbolTable), bodies);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // Same, with the bodies checked on the given pool, as Main does with --method-jobs
+    public static void fusedParallel(Goal root, Object symbolTable, ForkJoinPool pool) {
+        try{
+            ArrayList<?> bodies = new ArrayList<Object>();
+            accept(root, NEW_QUEUING_VISITOR2.invoke(symbolTable, bodies));
+            FREEZE_MEMBERS.invoke(symbolTable);
+            CHECK_BODIES_IN_PARALLEL.invoke(NEW_PARALLEL_CHECKER.invoke(symbolTable, pool), bodies);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    public static void setOffsets(Object symbolTable) {
+        try{
+            SET_OFFSETS.invoke(symbolTable);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    public static void printSymbolTable(Object symbolTable, PrintStream out) {
+        try{
+            PRINT_SYMBOL_TABLE.invoke(symbolTable, out);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // The options of a command line of Main, with the names of its files
+    public static Object parseOptions(String[] args) {
+        try{
+            return PARSE_OPTIONS.invoke(args);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static List<String> fileNames(Object options) {
+        try{
+            return (List<String>) FILE_NAMES.invoke(options);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // The whole check of the file by Main, printing what it prints; returns its exit status
+    public static int compile(String fileName, Object options, PrintStream out, PrintStream err) {
+        try{
+            return (int) COMPILE.invoke(fileName, options, out, err);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // A CompilerSession for the file
+    public static Object newSession(String fileName, Object options) {
+        try{
+            return NEW_SESSION.invoke(fileName, options);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    // The check of the file as it is now by the session, incremental if it can be
+    public static int check(Object session, PrintStream out, PrintStream err) {
+        try{
+            return (int) SESSION_CHECK.invoke(session, out, err);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    public static int incrementalChecks(Object session) {
+        try{
+            return (int) INCREMENTAL_CHECKS.invoke(session);
+        }
+
+        catch(Throwable ex){
+            throw rethrow(ex);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void accept(Goal root, Object visitor) throws Exception {
+        root.accept((GJVisitor) visitor, null);
+    }
+}
@@ -0,0 +1,94 @@
+package minijava.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// The generated token manager against DfaTokenManager (--dfa-lexer), in tokens per second, each one also without
+// the tokens of the comments (--drop-comments), which only a commented input such as commented-16M tells apart.
+// The commentHeavy ones scan a program that is mostly comments, with a block of the given number of lines before
+// every class and every method, where --drop-comments skips the comments without scanning them as tokens.
+// Run from minijava_compiler with: java -jar benchmarks/target/benchmarks.jar LexerBenchmark -p input=synthetic-16M
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+    // The tokens scanned, reported by JMH as a rate next to the one of the calls
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Tokens {
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.tokens = 0;
+        }
+    }
+
+    // A program of about 4 MB whose comments have that many lines each: 12 as a license header has, and 400, far
+    // more than the buffer of the stream holds
+    @State(Scope.Benchmark)
+    public static class Commented {
+        @Param({"12", "400"})
+        public int lines;
+
+        public byte[] source;
+
+        @Setup(Level.Trial)
+        public void load() throws IOException {
+            this.source = Corpus.synthetic("4M", this.lines).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Benchmark
+    public void generated(Corpus corpus, Tokens tokens) {
+        for(byte[] source : corpus.sources) {
+            tokens.tokens += Frontend.tokenize(source, false);
+        }
+    }
+
+    @Benchmark
+    public void dfa(Corpus corpus, Tokens tokens) {
+        for(byte[] source : corpus.sources) {
+            tokens.tokens += Frontend.tokenize(source, true);
+        }
+    }
+
+    @Benchmark
+    public void generatedDroppingComments(Corpus corpus, Tokens tokens) {
+        for(byte[] source : corpus.sources) {
+            tokens.tokens += Frontend.tokenize(source, false, true);
+        }
+    }
+
+    @Benchmark
+    public void dfaDroppingComments(Corpus corpus, Tokens tokens) {
+        for(byte[] source : corpus.sources) {
+            tokens.tokens += Frontend.tokenize(source, true, true);
+        }
+    }
+
+    @Benchmark
+    public void commentHeavy(Commented commented, Tokens tokens) {
+        tokens.tokens += Frontend.tokenize(commented.source, false);
+    }
+
+    @Benchmark
+    public void commentHeavyDfa(Commented commented, Tokens tokens) {
+        tokens.tokens += Frontend.tokenize(commented.source, true);
+    }
+
+    @Benchmark
+    public void commentHeavyDroppingComments(Commented commented, Tokens tokens) {
+        tokens.tokens += Frontend.tokenize(commented.source, false, true);
+    }
+
+    @Benchmark
+    public void commentHeavyDfaDroppingComments(Commented commented, Tokens tokens) {
+        tokens.tokens += Frontend.tokenize(commented.source, true, true);
+    }
+}
@@ -0,0 +1,116 @@
+package minijava.bench;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import syntaxtree.*;
+
+// Visitor 3 on programs that stress its lookups:
+//   calls   - examples/TreeVisitor.java, where most expressions are calls
+//   nested  - methods whose calls take eight arguments, each of them a call again
+//   members - a class with thousands of fields and methods, used from a subclass
+// Visitor 3 does not change the symbol table, so it runs again and again on the same one.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+    @Param({"calls", "nested", "members"})
+    public String program;
+
+    private Goal root;
+    private Object symbolTable;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        byte[] source;
+
+        if(this.program.equals("calls")) {
+            source = Files.readAllBytes(Paths.get(System.getProperty("minijava.home", "."), "examples", "TreeVisitor.java"));
+        }
+        else if(this.program.equals("nested")) {
+            source = nestedCalls(200, 8).getBytes("US-ASCII");
+        }
+        else {
+            source = manyMembers(4000).getBytes("US-ASCII");
+        }
+
+        this.root = Frontend.parse(source);
+        this.symbolTable = Frontend.newSymbolTable();
+        Frontend.visitor1(this.root, this.symbolTable);
+        Frontend.visitor2(this.root, this.symbolTable);
+    }
+
+    @Benchmark
+    public void visitor3() {
+        Frontend.visitor3(this.root, this.symbolTable);
+    }
+
+    // Every method calls the next one four times, with arguments that are calls themselves
+    static String nestedCalls(int methods, int arguments) {
+        StringBuilder program = new StringBuilder();
+
+        program.append("class Main { public static void main(String[] a) { System.out.println(new Calls().m0(");
+        appendArguments(program, arguments, "1");
+        program.append(")); } }\n");
+
+        program.append("class Calls {\n");
+        for(int m = 0; m < methods; m++) {
+            program.append("  public int m").append(m).append("(");
+            for(int i = 0; i < arguments; i++) {
+                program.append(i > 0 ? ", " : "").append("int p").append(i);
+            }
+            program.append(") {\n    int r;\n");
+
+            int callee = (m + 1) % methods;
+            StringBuilder inner = new StringBuilder("this.m").append(callee).append("(");
+            appendArguments(inner, arguments, "p0");
+            inner.append(")");
+
+            for(int s = 0; s < 4; s++) {
+                program.append("    r = this.m").append(callee).append("(");
+                appendArguments(program, arguments, inner.toString());
+                program.append(");\n");
+            }
+            program.append("    return r;\n  }\n");
+        }
+        program.append("}\n");
+
+        return program.toString();
+    }
+
+    private static void appendArguments(StringBuilder program, int arguments, String argument) {
+        for(int i = 0; i < arguments; i++) {
+            program.append(i > 0 ? ", " : "").append(argument);
+        }
+    }
+
+    // A class with the given number of fields and methods, and a subclass whose method uses all of them
+    static String manyMembers(int members) {
+        StringBuilder program = new StringBuilder();
+
+        program.append("class Main { public static void main(String[] a) { System.out.println(new Wide().use()); } }\n");
+
+        program.append("class Base {\n");
+        for(int i = 0; i < members; i++) {
+            program.append("  int f").append(i).append(";\n");
+        }
+        for(int i = 0; i < members; i++) {
+            program.append("  public int g").append(i).append("() { return f").append(i).append("; }\n");
+        }
+        program.append("}\n");
+
+        program.append("class Wide extends Base {\n  public int use() {\n    int sum;\n    sum = 0;\n");
+        for(int i = 0; i < members; i++) {
+            program.append("    f").append(i).append(" = this.g").append((i * 7919) % members).append("();\n");
+            program.append("    sum = sum + f").append(i).append(";\n");
+        }
+        program.append("    return sum;\n  }\n}\n");
+
+        return program.toString();
+    }
+}
@@ -0,0 +1,160 @@
+package minijava.bench;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.file.*;
+import java.util.*;
+import syntaxtree.*;
+
+// Compares the trees of DescentParser (--descent-parser) with the ones of the generated parser, node by node: the
+// kinds of the nodes, the alternatives chosen, the lengths of the lists, and the image, the kind and the position of
+// every token. A file must be parsed by both into the same tree, or rejected by both. A file that cannot be scanned
+// into a TokenArray never reaches DescentParser and is skipped.
+// Run from minijava_compiler with: java -Xss64m -cp benchmarks/target/benchmarks.jar minijava.bench.ParserDiff examples*/*.java
+public final class ParserDiff {
+
+    // The children of every kind of node of the grammar: its fields f0, f1, f2, ... in order
+    private static final ClassValue<Field[]> CHILDREN = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            ArrayList<Field> children = new ArrayList<Field>();
+
+            for(Field field : type.getFields()) {
+                if(field.getName().matches("f[0-9]+") && Node.class.isAssignableFrom(field.getType())) {
+                    children.add(field);
+                }
+            }
+            children.sort(Comparator.comparingInt(field -> Integer.parseInt(field.getName().substring(1))));
+
+            return children.toArray(new Field[0]);
+        }
+    };
+
+    private ParserDiff() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int compared = 0;
+        int skipped = 0;
+        int different = 0;
+
+        for(String fileName : args) {
+            byte[] source = Files.readAllBytes(Paths.get(fileName));
+
+            try{
+                Frontend.lexTokenArray(source);
+            }
+
+            catch(IllegalArgumentException ex){
+                skipped++;
+                continue;
+            }
+
+            Goal expected = null;
+            Goal actual = null;
+
+            try{
+                expected = Frontend.parse(source);
+            }
+
+            catch(RuntimeException ex){
+                // Rejected, ParseException comes wrapped
+            }
+
+            try{
+                actual = Frontend.parseDescent(source);
+            }
+
+            catch(RuntimeException ex){
+                // Same
+            }
+
+            String difference;
+            if(expected == null || actual == null) {
+                difference = (expected == actual) ? null : (expected == null) ? "taken by DescentParser only" : "rejected by DescentParser only";
+            }
+            else {
+                difference = compare(expected, actual, "Goal");
+            }
+
+            compared++;
+            if(difference != null) {
+                different++;
+                System.out.println(fileName + ": " + difference);
+            }
+        }
+
+        System.out.println(compared + " files compared, " + different + " different, " + skipped + " skipped");
+
+        if(different > 0) {
+            System.exit(1);
+        }
+    }
+
+    // The first difference between the two nodes, with the path to it, or null if they are the same
+    private static String compare(Node expected, Node actual, String path) throws IllegalAccessException {
+        if(expected == null || actual == null) {
+            return (expected == actual) ? null : path + ": one of the nodes is missing";
+        }
+        if(expected.getClass() != actual.getClass()) {
+            return path + ": " + actual.getClass().getSimpleName() + " instead of " + expected.getClass().getSimpleName();
+        }
+
+        if(expected instanceof NodeToken) {
+            NodeToken e = (NodeToken) expected;
+            NodeToken a = (NodeToken) actual;
+
+            if(!e.tokenImage.equals(a.tokenImage) || e.kind != a.kind || e.beginLine != a.beginLine || e.beginColumn != a.beginColumn || e.endLine != a.endLine || e.endColumn != a.endColumn) {
+                return path + ": " + describe(a) + " instead of " + describe(e);
+            }
+            return null;
+        }
+        else if(expected instanceof NodeChoice) {
+            NodeChoice e = (NodeChoice) expected;
+            NodeChoice a = (NodeChoice) actual;
+
+            if(e.which != a.which) {
+                return path + ": alternative " + a.which + " instead of " + e.which;
+            }
+            return compare(e.choice, a.choice, path + "/" + e.which);
+        }
+        else if(expected instanceof NodeOptional) {
+            return compare(((NodeOptional) expected).node, ((NodeOptional) actual).node, path + "?");
+        }
+        else if(expected instanceof NodeListOptional) {
+            return compareLists(((NodeListOptional) expected).nodes, ((NodeListOptional) actual).nodes, path);
+        }
+        else if(expected instanceof NodeList) {
+            return compareLists(((NodeList) expected).nodes, ((NodeList) actual).nodes, path);
+        }
+        else if(expected instanceof NodeSequence) {
+            return compareLists(((NodeSequence) expected).nodes, ((NodeSequence) actual).nodes, path);
+        }
+
+        for(Field field : CHILDREN.get(expected.getClass())) {
+            String difference = compare((Node) field.get(expected), (Node) field.get(actual), path + "/" + expected.getClass().getSimpleName() + "." + field.getName());
+            if(difference != null) {
+                return difference;
+            }
+        }
+        return null;
+    }
+
+    private static String compareLists(Vector<Node> expected, Vector<Node> actual, String path) throws IllegalAccessException {
+        if(expected.size() != actual.size()) {
+            return path + ": " + actual.size() + " nodes instead of " + expected.size();
+        }
+
+        for(int i = 0; i < expected.size(); i++) {
+            String difference = compare(expected.get(i), actual.get(i), path + "[" + i + "]");
+            if(difference != null) {
+                return difference;
+            }
+        }
+        return null;
+    }
+
+    private static String describe(NodeToken token) {
+        return "\"" + token.tokenImage + "\" (" + token.kind + ") at " + token.beginLine + ":" + token.beginColumn + "-" + token.endLine + ":" + token.endColumn;
+    }
+}
@@ -0,0 +1,252 @@
+package minijava.bench;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import syntaxtree.*;
+
+// Every phase of the front end on its own, over all the programs of a corpus:
+// the parser, Visitor 1, Visitor 2, Visitor 3, the offsets and the printing of the symbol table.
+// The phases that change the symbol table get fresh tables, prepared up to the phase before them, for every call.
+// Run from minijava_compiler with: java -jar benchmarks/target/benchmarks.jar PhaseBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhaseBenchmark {
+
+    // The trees of the corpus, parsed once
+    @State(Scope.Benchmark)
+    public static class Parsed {
+        public List<Goal> roots;
+
+        @Setup(Level.Trial)
+        public void parse(Corpus corpus) {
+            this.roots = new ArrayList<Goal>();
+            for(byte[] source : corpus.sources) {
+                this.roots.add(Frontend.parse(source));
+            }
+        }
+    }
+
+    // Empty symbol tables, for Visitor 1
+    @State(Scope.Thread)
+    public static class BeforeVisitor1 {
+        public List<Object> symbolTables;
+
+        @Setup(Level.Invocation)
+        public void prepare(Parsed parsed) {
+            this.symbolTables = new ArrayList<Object>();
+            for(int i = 0; i < parsed.roots.size(); i++) {
+                this.symbolTables.add(Frontend.newSymbolTable());
+            }
+        }
+    }
+
+    // Symbol tables after Visitor 1, for Visitor 2
+    @State(Scope.Thread)
+    public static class BeforeVisitor2 {
+        public List<Object> symbolTables;
+
+        @Setup(Level.Invocation)
+        public void prepare(Parsed parsed) {
+            this.symbolTables = new ArrayList<Object>();
+            for(Goal root : parsed.roots) {
+                Object symbolTable = Frontend.newSymbolTable();
+                Frontend.visitor1(root, symbolTable);
+                this.symbolTables.add(symbolTable);
+            }
+        }
+    }
+
+    // Symbol tables after Visitor 2, for Visitor 3 and the offsets
+    @State(Scope.Thread)
+    public static class BeforeVisitor3 {
+        public List<Object> symbolTables;
+
+        @Setup(Level.Invocation)
+        public void prepare(Parsed parsed) {
+            this.symbolTables = new ArrayList<Object>();
+            for(Goal root : parsed.roots) {
+                Object symbolTable = Frontend.newSymbolTable();
+                Frontend.visitor1(root, symbolTable);
+                Frontend.visitor2(root, symbolTable);
+                this.symbolTables.add(symbolTable);
+            }
+        }
+    }
+
+    // Complete symbol tables, for the printing, which does not change them
+    @State(Scope.Benchmark)
+    public static class Checked {
+        public List<Object> symbolTables;
+
+        @Setup(Level.Trial)
+        public void prepare(Parsed parsed) {
+            this.symbolTables = new ArrayList<Object>();
+            for(Goal root : parsed.roots) {
+                Object symbolTable = Frontend.newSymbolTable();
+                Frontend.visitor1(root, symbolTable);
+                Frontend.visitor2(root, symbolTable);
+                Frontend.visitor3(root, symbolTable);
+                Frontend.setOffsets(symbolTable);
+                this.symbolTables.add(symbolTable);
+            }
+        }
+    }
+
+    @Benchmark
+    public void parse(Corpus corpus, Blackhole blackhole) {
+        for(byte[] source : corpus.sources) {
+            blackhole.consume(Frontend.parse(source));
+        }
+    }
+
+    // The parser of the thread reused from source to source (--reuse-parsers)
+    @Benchmark
+    public void parseReused(Corpus corpus, Blackhole blackhole) {
+        for(byte[] source : corpus.sources) {
+            blackhole.consume(Frontend.parseReused(source));
+        }
+    }
+
+    // The parser working out the positions of the tokens from the line starts (--lazy-positions)
+    @Benchmark
+    public void parseLazy(Corpus corpus, Blackhole blackhole) {
+        for(byte[] source : corpus.sources) {
+            blackhole.consume(Frontend.parseLazy(source));
+        }
+    }
+
+    // The parser over the tokens of every file scanned first into a TokenArray (--token-array)
+    @Benchmark
+    public void parseTokenArray(Corpus corpus, Blackhole blackhole) {
+        for(byte[] source : corpus.sources) {
+            blackhole.consume(Frontend.parseTokenArray(source));
+        }
+    }
+
+    // The hand-written parser over the tokens of every file scanned first into a TokenArray (--descent-parser)
+    @Benchmark
+    public void parseDescent(Corpus corpus, Blackhole blackhole) {
+        for(byte[] source : corpus.sources) {
+            blackhole.consume(Frontend.parseDescent(source));
+        }
+    }
+
+    // The classes of every file parsed in parallel (--parallel-parse)
+    @Benchmark
+    public void parseParallel(Corpus corpus, Pool pool, Blackhole blackhole) {
+        for(byte[] source : corpus.sources) {
+            blackhole.consume(Frontend.parseParallel(source, pool.pool));
+        }
+    }
+
+    // The sources copied once outside the heap, the closest a benchmark gets to a mapped file
+    @State(Scope.Benchmark)
+    public static class Mapped {
+        public List<ByteBuffer> sources;
+
+        @Setup(Level.Trial)
+        public void copy(Corpus corpus) {
+            this.sources = new ArrayList<ByteBuffer>();
+            for(byte[] source : corpus.sources) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(source.length);
+                buffer.put(source);
+                buffer.flip();
+                this.sources.add(buffer);
+            }
+        }
+    }
+
+    // The parser reading straight from the buffers (--mapped)
+    @Benchmark
+    public void parseMapped(Mapped mapped, Blackhole blackhole) {
+        for(ByteBuffer source : mapped.sources) {
+            blackhole.consume(Frontend.parseMapped(source));
+        }
+    }
+
+    @Benchmark
+    public void visitor1(Parsed parsed, BeforeVisitor1 tables) {
+        for(int i = 0; i < parsed.roots.size(); i++) {
+            Frontend.visitor1(parsed.roots.get(i), tables.symbolTables.get(i));
+        }
+    }
+
+    @Benchmark
+    public void visitor2(Parsed parsed, BeforeVisitor2 tables) {
+        for(int i = 0; i < parsed.roots.size(); i++) {
+            Frontend.visitor2(parsed.roots.get(i), tables.symbolTables.get(i));
+        }
+    }
+
+    @Benchmark
+    public void visitor3(Parsed parsed, BeforeVisitor3 tables) {
+        for(int i = 0; i < parsed.roots.size(); i++) {
+            Frontend.visitor3(parsed.roots.get(i), tables.symbolTables.get(i));
+        }
+    }
+
+    // Visitor 2 and Visitor 3 one after the other, each walking the tree from the Goal
+    @Benchmark
+    public void visitors2and3(Parsed parsed, BeforeVisitor2 tables) {
+        for(int i = 0; i < parsed.roots.size(); i++) {
+            Frontend.visitor2(parsed.roots.get(i), tables.symbolTables.get(i));
+            Frontend.visitor3(parsed.roots.get(i), tables.symbolTables.get(i));
+        }
+    }
+
+    // The same work with the method bodies queued by Visitor 2 (--fused)
+    @Benchmark
+    public void fused(Parsed parsed, BeforeVisitor2 tables) {
+        for(int i = 0; i < parsed.roots.size(); i++) {
+            Frontend.fused(parsed.roots.get(i), tables.symbolTables.get(i));
+        }
+    }
+
+    // The pool of the parallel checks, as big as the machine
+    @State(Scope.Benchmark)
+    public static class Pool {
+        public ForkJoinPool pool;
+
+        @Setup(Level.Trial)
+        public void start() {
+            this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            this.pool.shutdown();
+        }
+    }
+
+    // The same work with the queued bodies checked in parallel (--method-jobs)
+    @Benchmark
+    public void fusedParallel(Parsed parsed, BeforeVisitor2 tables, Pool pool) {
+        for(int i = 0; i < parsed.roots.size(); i++) {
+            Frontend.fusedParallel(parsed.roots.get(i), tables.symbolTables.get(i), pool.pool);
+        }
+    }
+
+    @Benchmark
+    public void setOffsets(BeforeVisitor3 tables) {
+        for(Object symbolTable : tables.symbolTables) {
+            Frontend.setOffsets(symbolTable);
+        }
+    }
+
+    @Benchmark
+    public void printSymbolTable(Checked checked) {
+        PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+
+        for(Object symbolTable : checked.symbolTables) {
+            Frontend.printSymbolTable(symbolTable, out);
+        }
+    }
+}
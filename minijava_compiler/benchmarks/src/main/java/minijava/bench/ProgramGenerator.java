@@ -0,0 +1,493 @@
+package minijava.bench;
+
+import java.io.*;
+import java.util.*;
+
+// Generates MiniJava programs of any size that pass every check of the compiler, or that fail exactly one of them.
+//
+// The shape of the program is set by the knobs:
+//   classes    - number of classes besides the main one
+//   depth      - length of the inheritance chains (1 means that no class extends another)
+//   fields     - fields per class, of the types int, boolean, int[] and the class itself in turn
+//   methods    - methods per class besides run(), which every class declares or overrides
+//   statements - statements per method
+//   nesting    - depth of the expressions
+//   arguments  - arguments of the methods and of the calls to them
+//   comments   - lines of comments before every class and every method, none by default
+//   seed       - seed of the choices, the same knobs and seed give the same program
+//   error      - kind of the error to inject into one method, or none
+//
+// Usage: java -cp benchmarks.jar minijava.bench.ProgramGenerator [--classes N] [--depth N] [--fields N] [--methods N]
+//        [--statements N] [--nesting N] [--arguments N] [--comments N] [--seed N] [--error KIND] [--size BYTES] [-o FILE]
+// With --size the number of classes is chosen so that the program is about that big (suffixes K, M and G are allowed).
+public class ProgramGenerator {
+
+    // The errors that can be injected, every one of them is found by a different check
+    public enum ErrorKind {
+        NONE,
+        TYPE,               // a boolean assigned to an int variable
+        UNDECLARED,         // an assignment to a variable that is not declared
+        UNKNOWN_METHOD,     // a call to a method that does not exist
+        ARGUMENTS,          // a call with one argument too many
+        CONDITION           // an int as the condition of an if statement
+    }
+
+    protected int classes = 10;
+    protected int depth = 4;
+    protected int fields = 4;
+    protected int methods = 3;
+    protected int statements = 8;
+    protected int nesting = 2;
+    protected int arguments = 2;
+    protected int comments = 0;
+    protected long seed = 42;
+    protected ErrorKind error = ErrorKind.NONE;
+
+    protected Random random;
+    protected Writer out;
+    protected int errorClass;           // where the error is injected
+    protected int errorMethod;
+
+    public ProgramGenerator setClasses(int classes) {
+        this.classes = Math.max(1, classes);
+        return this;
+    }
+
+    public ProgramGenerator setDepth(int depth) {
+        this.depth = Math.max(1, depth);
+        return this;
+    }
+
+    public ProgramGenerator setFields(int fields) {
+        this.fields = Math.max(0, fields);
+        return this;
+    }
+
+    public ProgramGenerator setMethods(int methods) {
+        this.methods = Math.max(0, methods);
+        return this;
+    }
+
+    public ProgramGenerator setStatements(int statements) {
+        this.statements = Math.max(0, statements);
+        return this;
+    }
+
+    public ProgramGenerator setNesting(int nesting) {
+        this.nesting = Math.max(0, nesting);
+        return this;
+    }
+
+    public ProgramGenerator setArguments(int arguments) {
+        this.arguments = Math.max(0, arguments);
+        return this;
+    }
+
+    public ProgramGenerator setComments(int comments) {
+        this.comments = Math.max(0, comments);
+        return this;
+    }
+
+    public ProgramGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public ProgramGenerator setError(ErrorKind error) {
+        this.error = error;
+        return this;
+    }
+
+    // Choose the number of classes so that the program is about the given size
+    public ProgramGenerator setSize(long bytes) throws IOException {
+        int sampleClasses = Math.max(this.depth, 16);
+        int savedClasses = this.classes;
+        ErrorKind savedError = this.error;
+
+        this.classes = sampleClasses;
+        this.error = ErrorKind.NONE;
+        CountingWriter counter = new CountingWriter();
+        generate(counter);
+
+        this.classes = savedClasses;
+        this.error = savedError;
+
+        long perClass = Math.max(1, counter.getCount() / sampleClasses);
+        return setClasses((int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes / perClass)));
+    }
+
+    public String generate() {
+        StringWriter program = new StringWriter();
+
+        try{
+            generate(program);
+        }
+
+        catch(IOException ex){
+            throw new UncheckedIOException(ex);
+        }
+
+        return program.toString();
+    }
+
+    // Write the program into the given writer, class by class, so that even huge programs are never kept in memory
+    public void generate(Writer out) throws IOException {
+        this.out = out;
+        this.random = new Random(this.seed);
+
+        // Where the error goes: any method of any class, run() included
+        this.errorClass = this.random.nextInt(this.classes);
+        this.errorMethod = this.random.nextInt(this.methods + 1);
+
+        write("class Main {\n");
+        write("    public static void main(String[] args) {\n");
+        write("        System.out.println(new C0().run(" + this.classes + "));\n");
+        write("    }\n");
+        write("}\n");
+
+        for(int c = 0; c < this.classes; c++) {
+            generateClass(c);
+        }
+
+        out.flush();
+    }
+
+    protected void write(String text) throws IOException {
+        this.out.write(text);
+    }
+
+    protected boolean hasParent(int c) {
+        return c % this.depth != 0;
+    }
+
+    // The fields of class c are named after the class, so that the ones of its super classes are never hidden
+    protected String fieldName(int c, int k) {
+        switch(k % 4) {
+            case 0: return "count" + c + "_" + k;
+            case 1: return "flag" + c + "_" + k;
+            case 2: return "values" + c + "_" + k;
+            default: return "next" + c + "_" + k;
+        }
+    }
+
+    protected String fieldType(int c, int k) {
+        switch(k % 4) {
+            case 0: return "int";
+            case 1: return "boolean";
+            case 2: return "int[]";
+            default: return "C" + c;
+        }
+    }
+
+    protected void generateClass(int c) throws IOException {
+        // A block comment before the class, as a license header is
+        if(this.comments > 0) {
+            write("\n/*\n");
+            for(int l = 0; l < this.comments; l++) {
+                write(" * Line " + l + " of the comment of class C" + c + ", which the compiler never reads.\n");
+            }
+            write(" */");
+        }
+
+        write("\nclass C" + c + (hasParent(c) ? " extends C" + (c - 1) : "") + " {\n");
+
+        for(int k = 0; k < this.fields; k++) {
+            write("    " + fieldType(c, k) + " " + fieldName(c, k) + ";\n");
+        }
+
+        for(int m = 0; m < this.methods; m++) {
+            generateMethodComment(c, "m" + c + "_" + m);
+            write("\n    public int m" + c + "_" + m + "(");
+            for(int a = 0; a < this.arguments; a++) {
+                write((a > 0 ? ", " : "") + "int p" + a);
+            }
+            write(") {\n");
+            generateBody(c, m);
+        }
+
+        // run() is declared by the first class of every chain and overridden by the rest
+        generateMethodComment(c, "run");
+        write("\n    public int run(int p0) {\n");
+        generateBody(c, this.methods);
+
+        write("}\n");
+    }
+
+    // A documentation comment before a method, and a line comment after it
+    protected void generateMethodComment(int c, String method) throws IOException {
+        if(this.comments == 0) {
+            return;
+        }
+
+        write("\n    /**\n");
+        for(int l = 1; l < this.comments; l++) {
+            write("     * Line " + l + " of the documentation of " + method + " in class C" + c + ".\n");
+        }
+        write("     */");
+        write("\n    // " + method + " returns an int");
+    }
+
+    protected void generateBody(int c, int m) throws IOException {
+        write("        int x;\n");
+        write("        int i;\n");
+        write("        boolean t;\n");
+        write("        int[] a;\n");
+        write("        x = 1;\n");
+        write("        i = 0;\n");
+        write("        t = false;\n");
+        write("        a = new int[10];\n");
+
+        for(int s = 0; s < this.statements; s++) {
+            generateStatement(c, "        ", 1);
+        }
+
+        if(this.error != ErrorKind.NONE && c == this.errorClass && m == this.errorMethod) {
+            generateError(c);
+        }
+
+        write("        return x;\n");
+        write("    }\n");
+    }
+
+    // A statement of any kind, the loops and branches contain statements themselves up to a small depth
+    protected void generateStatement(int c, String indent, int level) throws IOException {
+        int kind = this.random.nextInt(level < 3 ? 8 : 5);
+
+        switch(kind) {
+            case 0:
+            case 1:
+                write(indent + "x = " + intExpression(c, this.nesting) + ";\n");
+                break;
+            case 2:
+                write(indent + "a[" + intPrimary(c, this.nesting) + "] = " + intExpression(c, this.nesting) + ";\n");
+                break;
+            case 3:
+                write(indent + "t = " + booleanExpression(c, this.nesting) + ";\n");
+                break;
+            case 4:
+                write(indent + "System.out.println(" + intExpression(c, this.nesting) + ");\n");
+                break;
+            case 5:
+                write(indent + "if (" + booleanExpression(c, this.nesting) + ")\n");
+                generateStatement(c, indent + "    ", level + 1);
+                write(indent + "else\n");
+                generateStatement(c, indent + "    ", level + 1);
+                break;
+            case 6:
+                write(indent + "while (i < " + intPrimary(c, 0) + ") {\n");
+                generateStatement(c, indent + "    ", level + 1);
+                write(indent + "    i = i + 1;\n");
+                write(indent + "}\n");
+                break;
+            default:
+                generateFieldStatement(c, indent);
+                break;
+        }
+    }
+
+    // An assignment to a field of the class or of its super class
+    protected void generateFieldStatement(int c, String indent) throws IOException {
+        if(this.fields == 0) {
+            write(indent + "x = " + intExpression(c, this.nesting) + ";\n");
+            return;
+        }
+
+        int owner = (hasParent(c) && this.random.nextBoolean()) ? c - 1 : c;
+        int k = this.random.nextInt(this.fields);
+
+        switch(k % 4) {
+            case 0:
+                write(indent + fieldName(owner, k) + " = " + intExpression(c, this.nesting) + ";\n");
+                break;
+            case 1:
+                write(indent + fieldName(owner, k) + " = " + booleanExpression(c, this.nesting) + ";\n");
+                break;
+            case 2:
+                write(indent + fieldName(owner, k) + " = new int[" + intExpression(c, this.nesting) + "];\n");
+                break;
+            default:
+                // An object of the class itself is also one of its super class
+                write(indent + fieldName(owner, k) + " = " + (this.random.nextBoolean() ? "this" : "new C" + c + "()") + ";\n");
+                break;
+        }
+    }
+
+    protected void generateError(int c) throws IOException {
+        switch(this.error) {
+            case TYPE:
+                write("        x = true;\n");
+                break;
+            case UNDECLARED:
+                write("        undeclared = x;\n");
+                break;
+            case UNKNOWN_METHOD:
+                write("        x = this.missing();\n");
+                break;
+            case ARGUMENTS:
+                write("        x = this.run(1, 2);\n");
+                break;
+            case CONDITION:
+                write("        if (x) x = 1; else x = 2;\n");
+                break;
+            default:
+                break;
+        }
+    }
+
+    // An expression of type int, of the given depth at most
+    protected String intExpression(int c, int level) {
+        if(level == 0) {
+            return intPrimary(c, 0);
+        }
+
+        switch(this.random.nextInt(7)) {
+            case 0: return intPrimary(c, level - 1) + " + " + intPrimary(c, level - 1);
+            case 1: return intPrimary(c, level - 1) + " - " + intPrimary(c, level - 1);
+            case 2: return intPrimary(c, level - 1) + " * " + intPrimary(c, level - 1);
+            case 3: return "a[" + intPrimary(c, level - 1) + "]";
+            case 4: return "a.length";
+            case 5: return call(c, level - 1);
+            default: return intPrimary(c, level - 1);
+        }
+    }
+
+    // A primary expression of type int: a literal, a variable, or any int expression in brackets
+    protected String intPrimary(int c, int level) {
+        if(level > 0 && this.random.nextInt(3) != 0) {
+            return "(" + intExpression(c, level) + ")";
+        }
+
+        switch(this.random.nextInt(4)) {
+            case 0: return Integer.toString(this.random.nextInt(100));
+            case 1: return "x";
+            case 2: return "i";
+            default: return (this.arguments > 0) ? "p0" : "x";
+        }
+    }
+
+    // A call to a method of the class or of its super class
+    protected String call(int c, int level) {
+        if(this.methods == 0) {
+            return "this.run(" + intExpression(c, level) + ")";
+        }
+
+        int owner = (hasParent(c) && this.random.nextBoolean()) ? c - 1 : c;
+        StringBuilder call = new StringBuilder("this.m").append(owner).append("_").append(this.random.nextInt(this.methods)).append("(");
+
+        for(int a = 0; a < this.arguments; a++) {
+            call.append(a > 0 ? ", " : "").append(intExpression(c, level));
+        }
+
+        return call.append(")").toString();
+    }
+
+    // An expression of type boolean, of the given depth at most
+    protected String booleanExpression(int c, int level) {
+        if(level == 0) {
+            return booleanClause(c, 0);
+        }
+
+        switch(this.random.nextInt(3)) {
+            case 0: return booleanClause(c, level - 1) + " && " + booleanClause(c, level - 1);
+            case 1: return intPrimary(c, level - 1) + " < " + intPrimary(c, level - 1);
+            default: return booleanClause(c, level - 1);
+        }
+    }
+
+    protected String booleanClause(int c, int level) {
+        if(level > 0 && this.random.nextInt(3) != 0) {
+            return (this.random.nextBoolean() ? "!" : "") + "(" + booleanExpression(c, level) + ")";
+        }
+
+        switch(this.random.nextInt(4)) {
+            case 0: return "true";
+            case 1: return "false";
+            case 2: return "t";
+            default: return "!t";
+        }
+    }
+
+    // Counts what is written into it, to measure the size of a program without keeping it
+    static class CountingWriter extends Writer {
+        protected long count;
+
+        public long getCount() {
+            return this.count;
+        }
+
+        public void write(char[] buffer, int offset, int length) {
+            this.count += length;
+        }
+
+        public void write(String text) {
+            this.count += text.length();
+        }
+
+        public void flush() {
+        }
+
+        public void close() {
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        ProgramGenerator generator = new ProgramGenerator();
+        String outputFile = null;
+        String size = null;
+
+        // Every option takes a value
+        if(args.length % 2 != 0) {
+            usage("Option " + args[args.length - 1] + " has no value");
+        }
+
+        for(int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+
+            switch(args[i]) {
+                case "--classes": generator.setClasses(Integer.parseInt(value)); break;
+                case "--depth": generator.setDepth(Integer.parseInt(value)); break;
+                case "--fields": generator.setFields(Integer.parseInt(value)); break;
+                case "--methods": generator.setMethods(Integer.parseInt(value)); break;
+                case "--statements": generator.setStatements(Integer.parseInt(value)); break;
+                case "--nesting": generator.setNesting(Integer.parseInt(value)); break;
+                case "--arguments": generator.setArguments(Integer.parseInt(value)); break;
+                case "--comments": generator.setComments(Integer.parseInt(value)); break;
+                case "--seed": generator.setSeed(Long.parseLong(value)); break;
+                case "--error": generator.setError(ErrorKind.valueOf(value.toUpperCase().replace('-', '_'))); break;
+                case "--size": size = value; break;
+                case "-o": outputFile = value; break;
+                default: usage("Unknown option " + args[i]);
+            }
+        }
+
+        // The size is applied last, it depends on the other knobs
+        if(size != null) {
+            generator.setSize(parseSize(size));
+        }
+
+        Writer out = (outputFile != null) ? new FileWriter(outputFile) : new OutputStreamWriter(System.out);
+        try(Writer buffered = new BufferedWriter(out, 1 << 16)){
+            generator.generate(buffered);
+        }
+    }
+
+    static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: java -cp benchmarks.jar minijava.bench.ProgramGenerator [--classes N] [--depth N] [--fields N]");
+        System.err.println("       [--methods N] [--statements N] [--nesting N] [--arguments N] [--comments N] [--seed N]");
+        System.err.println("       [--error KIND] [--size BYTES] [-o FILE]");
+        System.exit(2);
+    }
+
+    static long parseSize(String size) {
+        long unit = 1;
+        char last = Character.toUpperCase(size.charAt(size.length() - 1));
+
+        if(last == 'K') unit = 1L << 10;
+        if(last == 'M') unit = 1L << 20;
+        if(last == 'G') unit = 1L << 30;
+
+        String digits = (unit == 1) ? size : size.substring(0, size.length() - 1);
+        return Long.parseLong(digits) * unit;
+    }
+}
@@ -0,0 +1,113 @@
+package minijava.bench;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.*;
+import org.openjdk.jmh.annotations.*;
+
+// The time a CompilerSession takes to check a large generated program again after an edit, as an editor that checks
+// the file on every save sees it. The file goes back and forth between two versions that both pass, which differ by:
+//   statement - a number in a statement of a method in the middle of the file (one body parsed and checked again)
+//   locals    - a variable added to that method (the symbol table is built again from the tree, without a parse)
+//   rename    - that method renamed, in its declaration and in every call of it (every body that calls it is
+//               checked again)
+//   field     - a field added to the class of that method (the whole file is checked again, for comparison)
+// Only the check is timed; the file is written before it.
+// Run from minijava_compiler with: java -jar benchmarks/target/benchmarks.jar SessionBenchmark -p size=16M
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+@State(Scope.Benchmark)
+public class SessionBenchmark {
+
+    private static final Pattern METHOD = Pattern.compile("\n    public int (m[0-9]+_[0-9]+)\\(");
+    private static final Pattern NUMBER = Pattern.compile("= ([0-9]+);");
+
+    @Param({"1M", "16M"})
+    public String size;
+
+    @Param({"statement", "locals", "rename", "field"})
+    public String edit;
+
+    private Path file;
+    private byte[][] versions;
+    private int next;
+    private Object session;
+    private PrintStream out;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        String original = Corpus.synthetic(this.size);
+        String edited = edit(original, this.edit);
+
+        this.versions = new byte[][] { original.getBytes(StandardCharsets.US_ASCII), edited.getBytes(StandardCharsets.US_ASCII) };
+        this.file = Files.createTempFile("session", ".java");
+        this.out = new PrintStream(OutputStream.nullOutputStream());
+
+        Object options = Frontend.parseOptions(new String[] { this.file.toString() });
+
+        // Both versions must pass, or the session would go back to the last one that did
+        for(int i = 1; i >= 0; i--) {
+            Files.write(this.file, this.versions[i]);
+            if(Frontend.compile(this.file.toString(), options, this.out, this.out) != 0) {
+                throw new IllegalStateException("The " + (i == 0 ? "generated" : "edited") + " program does not pass");
+            }
+        }
+
+        this.session = Frontend.newSession(this.file.toString(), options);
+        Frontend.check(this.session, this.out, this.out);
+        this.next = 1;
+    }
+
+    @Setup(Level.Invocation)
+    public void save() throws IOException {
+        Files.write(this.file, this.versions[this.next]);
+        this.next ^= 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    @Benchmark
+    public int check() {
+        return Frontend.check(this.session, this.out, this.out);
+    }
+
+    // The program with the edit made to the first method after its middle
+    static String edit(String program, String edit) {
+        Matcher method = METHOD.matcher(program);
+        if(!method.find(program.length() / 2)) {
+            throw new IllegalStateException("No method after the middle of the program");
+        }
+
+        String name = method.group(1);
+        int start = method.start() + 1;
+        int body = program.indexOf('{', start) + 1;
+
+        switch(edit) {
+            case "statement": {
+                Matcher number = NUMBER.matcher(program);
+                if(!number.find(body)) {
+                    throw new IllegalStateException("No number in " + name);
+                }
+                String other = number.group(1).equals("1") ? "2" : "1";
+                return program.substring(0, number.start(1)) + other + program.substring(number.end(1));
+            }
+            case "locals":
+                return program.substring(0, body) + "\n        int added;" + program.substring(body);
+            case "rename":
+                return program.replaceAll("\\b" + name + "\\b", name + "r");
+            case "field":
+                int classBody = program.indexOf('{', program.lastIndexOf("\nclass ", start)) + 1;
+                return program.substring(0, classBody) + "\n    int added;" + program.substring(classBody);
+            default:
+                throw new IllegalArgumentException("Unknown edit " + edit);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package minijava.bench;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.*;
+
+// Compares the checks of a CompilerSession with the whole checks of Main, over a series of edits of every file, as an
+// editor that saves it again and again would make them. Every edit is made to a copy of the file, which is then checked
+// by the session (incrementally when only bodies changed) and by Main.compile() from scratch; the exit status, the
+// output and the errors must be the same, but for the frames of the stack trace of an internal error, where the session
+// checks a body from another method than Main. The edits are picked at random, with a seed of the name of the file, from:
+// a statement duplicated or deleted, a number or a name of a statement changed (which often makes a semantic error),
+// an operator changed, a ';' deleted (a syntax error), a line break inserted anywhere (so that the bodies after it
+// move), a name changed anywhere (mostly a declaration, which makes the whole check run), a method that is called
+// renamed everywhere (its declaration and the bodies that call it), a type changed between int and boolean (often in
+// a signature, which the bodies that use the method see), and two of these edits at once. Every edit starts from the
+// last version that passed, so the session has a tree to compare with whenever it can.
+// The options of the compiler come before the files, as for Main.
+// Run from minijava_compiler with: java -Xss64m -cp benchmarks/target/benchmarks.jar minijava.bench.SessionDiff examples*/*.java
+public final class SessionDiff {
+
+    private static final int EDITS = 40;           // the number of edits of every file
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Pattern NUMBER = Pattern.compile("\\b[0-9]+\\b");
+    private static final Pattern OPERATOR = Pattern.compile("[-+*<]|&&");
+    private static final String[] OPERATORS = { "+", "-", "*", "<", "&&" };
+    private static final Pattern CALLED = Pattern.compile("(?<=\\.)[A-Za-z_][A-Za-z0-9_]*(?=\\s*\\()");
+    private static final Pattern TYPE = Pattern.compile("\\b(int|boolean)\\b(?!\\s*\\[)");
+
+    private SessionDiff() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Object options = Frontend.parseOptions(args);
+        Path directory = Files.createTempDirectory("sessions");
+        int files = 0;
+        int checks = 0;
+        int incremental = 0;
+        int different = 0;
+
+        try{
+            for(String fileName : Frontend.fileNames(options)) {
+                Path copy = directory.resolve(Paths.get(fileName).getFileName());
+                String original = new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.ISO_8859_1);
+                Random random = new Random(fileName.hashCode());
+
+                Files.write(copy, original.getBytes(StandardCharsets.ISO_8859_1));
+                Object session = Frontend.newSession(copy.toString(), options);
+                String passed = original;       // the last version that passed
+                String edit = "the file as it is";
+                files++;
+
+                for(int i = 0; i <= EDITS; i++) {
+                    String text = passed;
+
+                    if(i > 0) {
+                        String[] edited = edit(passed, random);
+                        text = edited[0];
+                        edit = edited[1];
+                        Files.write(copy, text.getBytes(StandardCharsets.ISO_8859_1));
+                    }
+
+                    ByteArrayOutputStream sessionOut = new ByteArrayOutputStream();
+                    ByteArrayOutputStream sessionErr = new ByteArrayOutputStream();
+                    int sessionStatus = Frontend.check(session, new PrintStream(sessionOut, true), new PrintStream(sessionErr, true));
+
+                    ByteArrayOutputStream wholeOut = new ByteArrayOutputStream();
+                    ByteArrayOutputStream wholeErr = new ByteArrayOutputStream();
+                    int wholeStatus = Frontend.compile(copy.toString(), options, new PrintStream(wholeOut, true), new PrintStream(wholeErr, true));
+                    checks++;
+
+                    String difference = null;
+                    if(sessionStatus != wholeStatus) {
+                        difference = "status " + sessionStatus + " instead of " + wholeStatus;
+                    }
+                    else if(!Arrays.equals(sessionOut.toByteArray(), wholeOut.toByteArray())) {
+                        difference = "output " + firstDifference(sessionOut, wholeOut);
+                    }
+                    else if(!withoutFrames(sessionErr).equals(withoutFrames(wholeErr))) {
+                        difference = "errors " + firstDifference(sessionErr, wholeErr);
+                    }
+
+                    if(difference != null) {
+                        different++;
+                        System.out.println(fileName + ": edit " + i + " (" + edit + "): " + difference);
+
+                        // The next edits start from a session that saw the last version that passed
+                        incremental += Frontend.incrementalChecks(session);
+                        Files.write(copy, passed.getBytes(StandardCharsets.ISO_8859_1));
+                        session = Frontend.newSession(copy.toString(), options);
+                        Frontend.check(session, new PrintStream(new ByteArrayOutputStream()), new PrintStream(new ByteArrayOutputStream()));
+                        checks++;
+                    }
+                    else if(wholeStatus == 0) {
+                        passed = text;
+                    }
+                }
+
+                incremental += Frontend.incrementalChecks(session);
+                Files.deleteIfExists(copy);
+            }
+        }
+
+        finally{
+            try(DirectoryStream<Path> left = Files.newDirectoryStream(directory)){
+                for(Path file : left) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+
+        System.out.println(files + " files, " + checks + " checks, " + incremental + " of them incremental, " + different + " different");
+
+        if(different > 0) {
+            System.exit(1);
+        }
+    }
+
+    // The text after a random edit, and what the edit was
+    private static String[] edit(String text, Random random) {
+        ArrayList<int[]> statements = statements(text);
+
+        // Without statements, the line breaks and the names are all there is to edit
+        int kind = statements.isEmpty() ? 6 + random.nextInt(2) : random.nextInt(11);
+
+        if(kind == 8) {
+            String[] once = edit(text, random);
+            String[] twice = edit(once[0], random);
+            return new String[] { twice[0], once[1] + ", then " + twice[1] };
+        }
+
+        if(kind == 9) {
+            int[] called = pick(CALLED.matcher(text), 0, text.length(), random);
+            if(called != null) {
+                String name = text.substring(called[0], called[1]);
+                String other = otherName(text, random);
+                return new String[] { text.replaceAll("\\b" + Pattern.quote(name) + "\\b", Matcher.quoteReplacement(other)), "the method " + name + " renamed to " + other };
+            }
+            kind = 7;
+        }
+
+        if(kind == 10) {
+            int[] type = pick(TYPE.matcher(text), 0, text.length(), random);
+            if(type != null) {
+                String other = text.substring(type[0], type[1]).equals("int") ? "boolean" : "int";
+                return new String[] { replace(text, type, other), "the type at " + type[0] + " made " + other };
+            }
+            kind = 7;
+        }
+
+        if(kind >= 6) {
+            if(kind == 6 || !NAME.matcher(text).find()) {
+                int offset = random.nextInt(text.length() + 1);
+                return new String[] { text.substring(0, offset) + "\n" + text.substring(offset), "a line break at " + offset };
+            }
+
+            int[] name = pick(NAME.matcher(text), 0, text.length(), random);
+            return new String[] { replace(text, name, otherName(text, random)), "the name at " + name[0] };
+        }
+
+        int[] statement = statements.get(random.nextInt(statements.size()));
+        int start = statement[0];
+        int end = statement[1];
+        String line = text.substring(start, end);
+
+        switch(kind) {
+            case 0:
+                return new String[] { text.substring(0, end) + line + text.substring(end), "the statement at " + start + " twice" };
+            case 1:
+                return new String[] { text.substring(0, start) + text.substring(end), "the statement at " + start + " deleted" };
+            case 2: {
+                int[] number = pick(NUMBER.matcher(text), start, end, random);
+                if(number != null) {
+                    return new String[] { replace(text, number, String.valueOf(random.nextInt(100))), "the number at " + number[0] };
+                }
+                break;
+            }
+            case 3: {
+                int[] operator = pick(OPERATOR.matcher(text), start, end, random);
+                if(operator != null) {
+                    return new String[] { replace(text, operator, OPERATORS[random.nextInt(OPERATORS.length)]), "the operator at " + operator[0] };
+                }
+                break;
+            }
+            case 4: {
+                int semicolon = text.lastIndexOf(';', end);
+                if(semicolon >= start) {
+                    return new String[] { text.substring(0, semicolon) + text.substring(semicolon + 1), "the ';' at " + semicolon + " deleted" };
+                }
+                break;
+            }
+            default:
+                break;
+        }
+
+        int[] name = pick(NAME.matcher(text), start, end, random);
+        if(name == null) {
+            return new String[] { text.substring(0, end) + line + text.substring(end), "the statement at " + start + " twice" };
+        }
+        return new String[] { replace(text, name, otherName(text, random)), "the name at " + name[0] + " in a statement" };
+    }
+
+    // The lines that look like statements: an assignment, a print, an if or a while, each as its offsets, with the
+    // line break after it
+    private static ArrayList<int[]> statements(String text) {
+        ArrayList<int[]> statements = new ArrayList<int[]>();
+        int start = 0;
+
+        while(start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = (end < 0) ? text.length() : end + 1;
+
+            String line = text.substring(start, end).trim();
+            if((line.endsWith(";") && (line.contains("=") || line.startsWith("System.out.println"))) || line.startsWith("if") || line.startsWith("while")) {
+                statements.add(new int[] { start, end });
+            }
+            start = end;
+        }
+
+        return statements;
+    }
+
+    // One of the matches within the given range, as its offsets, or null if there is none
+    private static int[] pick(Matcher matcher, int start, int end, Random random) {
+        ArrayList<int[]> matches = new ArrayList<int[]>();
+
+        matcher.region(start, end);
+        while(matcher.find()) {
+            matches.add(new int[] { matcher.start(), matcher.end() });
+        }
+
+        return matches.isEmpty() ? null : matches.get(random.nextInt(matches.size()));
+    }
+
+    // Another name of the file, or a new one now and then
+    private static String otherName(String text, Random random) {
+        if(random.nextInt(4) == 0) {
+            return "unknown" + random.nextInt(10);
+        }
+        int[] name = pick(NAME.matcher(text), 0, text.length(), random);
+        return text.substring(name[0], name[1]);
+    }
+
+    private static String replace(String text, int[] range, String replacement) {
+        return text.substring(0, range[0]) + replacement + text.substring(range[1]);
+    }
+
+    // The errors without the frames of the stack traces
+    private static String withoutFrames(ByteArrayOutputStream errors) {
+        StringBuilder lines = new StringBuilder();
+
+        for(String line : errors.toString().split("\n", -1)) {
+            if(!line.startsWith("\tat ") && !line.startsWith("\t...")) {
+                lines.append(line).append('\n');
+            }
+        }
+        return lines.toString();
+    }
+
+    // The first line where the two outputs differ
+    private static String firstDifference(ByteArrayOutputStream actual, ByteArrayOutputStream expected) {
+        String[] a = actual.toString().split("\n", -1);
+        String[] e = expected.toString().split("\n", -1);
+
+        for(int i = 0; i < Math.max(a.length, e.length); i++) {
+            String x = (i < a.length) ? a[i] : "(nothing)";
+            String y = (i < e.length) ? e[i] : "(nothing)";
+
+            if(!x.equals(y)) {
+                return "line " + (i + 1) + ": \"" + x + "\" instead of \"" + y + "\"";
+            }
+        }
+        return "";
+    }
+}